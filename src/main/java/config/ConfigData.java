@@ -49,6 +49,57 @@ public class ConfigData {
     public static final String CALIB_HEADING_SPEED = "calibrate.heading.speed";
     public static final String CALIB_VERTICAL_DATA = "calibrate.vertical.data";
     public static final String CALIB_VERTICAL_SPEED = "calibrate.vertical.speed";
+    public static final String CALIB_HEADING_HYSTERESIS = "calibrate.heading.hysteresis";
+    public static final String CALIB_VERTICAL_HYSTERESIS = "calibrate.vertical.hysteresis";
+    public static final String CALIB_BUTTON_DEBOUNCE = "calibrate.button.debounce";
+    public static final String CALIB_WINDOW = "calibrate.window";
+    public static final String CALIB_HEADING_MIN_NULL = "calibrate.heading.min.null";
+    public static final String CALIB_VERTICAL_MIN_NULL = "calibrate.vertical.min.null";
+    public static final String DWELL_ACTION = "dwell.action";
+    public static final String DWELL_TIME = "dwell.time";
+    public static final String DWELL_COOLDOWN = "dwell.cooldown";
+    public static final String DWELL_RADIUS = "dwell.radius";
+    public static final String GESTURE_WINDOW = "gesture.window";
+    public static final String GESTURE_SWINGS = "gesture.swings";
+    public static final String GESTURE_NOD_THRESHOLD = "gesture.nod.threshold";
+    public static final String GESTURE_SHAKE_THRESHOLD = "gesture.shake.threshold";
+    public static final String GESTURE_TILT_THRESHOLD = "gesture.tilt.threshold";
+    public static final String GESTURE_TILT_TIME = "gesture.tilt.time";
+    /*
+    Prefix for the gesture actions. For example gesture.action.nod
+    */
+    public static final String GESTURE_ACTION = "gesture.action.";
+    public static final String POINTER_MODE = "pointer.mode";
+    public static final String POINTER_SMOOTHING = "pointer.absolute.smoothing";
+    public static final String POINTER_PRECISION = "pointer.absolute.precision";
+    public static final String POINTER_MAPPING_X = "pointer.mapping.x";
+    public static final String POINTER_MAPPING_Y = "pointer.mapping.y";
+    public static final String POINTER_MAPPING_POINTS = "pointer.mapping.points";
+    public static final String POINTER_GAIN = "pointer.relative.gain";
+    public static final String POINTER_EXPONENT = "pointer.relative.exponent";
+    public static final String POINTER_DEADBAND = "pointer.relative.deadband";
+    public static final String ROBOT_TICK_RATE = "robot.tick.rate";
+    public static final String ROBOT_INTERPOLATE = "robot.interpolate";
+    public static final String ROBOT_POSITION_CHECK_RATE = "robot.position.check.rate";
+    public static final String ROBOT_WATCHDOG = "robot.watchdog";
+    public static final String TYPE_INTERVAL = "type.interval";
+    public static final String KEYBOARD_WORDS = "keyboard.words";
+    public static final String KEYBOARD_HISTORY = "keyboard.history";
+    public static final String KEYBOARD_PREDICTIONS = "keyboard.predictions";
+    public static final String GUI_FRAME_RATE = "gui.frame.rate";
+    public static final String BUTTON_SENSOR_1 = "button.sensor.1";
+    public static final String BUTTON_SENSOR_2 = "button.sensor.2";
+    public static final String BUTTON_RECEIVER_1 = "button.receiver.1";
+    public static final String BUTTON_RECEIVER_2 = "button.receiver.2";
+    public static final String SCROLL_ENABLED = "scroll.enabled";
+    public static final String SCROLL_NULL = "scroll.null";
+    public static final String SCROLL_RATE = "scroll.rate";
+    public static final String SCROLL_MAX_RATE = "scroll.max.rate";
+    public static final String DRIFT_ENABLED = "drift.enabled";
+    public static final String DRIFT_RATE = "drift.rate";
+    public static final String DRIFT_STEP_TIME = "drift.step.time";
+    public static final String DRIFT_LIMIT = "drift.limit";
+    public static final String DRIFT_STILL = "drift.still";
     
     public static final String SETTINGS_FILE_KEY = "settings.file";
     public static final String DEFAULT_PORT = "default.port";
@@ -110,6 +161,29 @@ public class ConfigData {
      * @param value The value of the setting
      */
     public static void set(String name, String value) {
+        setValue(name, value);
+        store(name);
+    }
+
+    /**
+     * Add a number of values to the settings and update the settings file
+     * once.
+     *
+     * Use this when values belong together (for example calibration data) so
+     * the settings file has all or none of them.
+     *
+     * If a value is null the setting is cleared.
+     *
+     * @param values The names and values of the settings
+     */
+    public static void set(Map<String, String> values) {
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            setValue(entry.getKey(), entry.getValue());
+        }
+        store(String.join(",", values.keySet()));
+    }
+
+    private static void setValue(String name, String value) {
         /*
         Clear or set the value.
         
@@ -121,6 +195,14 @@ public class ConfigData {
         } else {
             settings.setProperty(settingName, value);
         }
+    }
+
+    /**
+     * Write the settings to the settings file.
+     *
+     * @param comment The comment at the top of the file
+     */
+    private static void store(String comment) {
         /*
         Get the settings file name. If not defined then do nothing.
          */
@@ -136,7 +218,7 @@ public class ConfigData {
         FileOutputStream fos = null;
         try {
             fos = new FileOutputStream(settingsFileName);
-            settings.store(fos, name);
+            settings.store(fos, comment);
         } catch (IOException ex) {
             throw new ConfigException(ex.getMessage());
         } finally {
@@ -229,6 +311,49 @@ public class ConfigData {
         return longs;
     }
 
+    /**
+     * Get an optional list of numbers or a default value if not found.
+     *
+     * @param name The property name
+     * @param count The number of values required
+     * @param defaultValue The value returned if not found
+     * @return The values
+     */
+    public static long[] getLongs(String name, int count, long[] defaultValue) {
+        if (getValue(name, null) == null) {
+            return defaultValue;
+        }
+        return getLongs(name, count);
+    }
+
+    /**
+     * Get an optional list of decimal numbers or a default value if not found.
+     *
+     * @param name The property name
+     * @param count The number of values required
+     * @param defaultValue The value returned if not found
+     * @return The values
+     */
+    public static double[] getDoubles(String name, int count, double[] defaultValue) {
+        String s = getValue(name, null);
+        if (s == null) {
+            return defaultValue;
+        }
+        String[] values = s.split("\\,");
+        if (values.length != count) {
+            throw new ConfigException("Config data [" + fileName + "] property [" + name + "] must have "+count+" numbers. It must be a valid list of comma separated numbers");
+        }
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                doubles[i] = Double.parseDouble(values[i].trim());
+            } catch (NumberFormatException nfe) {
+                throw new ConfigException("Config data [" + fileName + "] property [" + name + "] value ["+values[i]+"] is invalid. It must be a valid list of comma separated numbers");
+            }
+        }
+        return doubles;
+    }
+
     /**
      * Get an optional integer property or a default value if not found.
      * <pre>
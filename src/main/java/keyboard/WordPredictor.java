@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package keyboard;
+
+import config.ConfigException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Predict words for the on-screen keyboard.
+ *
+ * The words come from a word frequency file and from the user's history.
+ * Each line of the word file is a word and a count separated by spaces, for
+ * example "the 100000". Lines starting with # are ignored. A line with no
+ * count counts as 1.
+ *
+ * The history file has one word per line. Each word the user types is added
+ * to it and counts 'historyWeight' so the user's own words come first.
+ *
+ * Learned words are predicted straight away. They are written to the history
+ * file by save() in the background so the GUI does not wait for the disk. If
+ * the file cannot be written the words are still predicted until the
+ * application is closed.
+ *
+ * This class is NOT thread safe except for save(). It is used by the JavaFX
+ * thread.
+ */
+public class WordPredictor {
+
+    private final WordTrie trie;
+    private final Path historyFile;
+    private final int historyWeight;
+    /*
+    Words learned but not yet saved. One thread writes the history so the
+    words are added in order.
+     */
+    private final List<String> unsaved = new ArrayList<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "WordHistory");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param wordFile The word frequency file. Ignored if it does not exist.
+     * @param historyFile The user's history. Created when the first word is
+     * learned. Can be null to not keep a history.
+     * @param historyWeight The count added each time the user types a word.
+     * @param best The most predictions for a prefix.
+     * @throws ConfigException if a file exists but cannot be read.
+     */
+    public WordPredictor(String wordFile, String historyFile, int historyWeight, int best) {
+        this.trie = new WordTrie(best);
+        this.historyFile = (historyFile == null) ? null : Paths.get(historyFile);
+        this.historyWeight = historyWeight;
+        if (wordFile != null) {
+            for (String line : read(Paths.get(wordFile))) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                int count = 1;
+                if (parts.length > 1) {
+                    try {
+                        count = Integer.parseInt(parts[1]);
+                    } catch (NumberFormatException ex) {
+                        throw new ConfigException("Word file [" + wordFile + "] has an invalid count [" + line + "]", ex);
+                    }
+                }
+                trie.add(parts[0], count);
+            }
+        }
+        if (this.historyFile != null) {
+            for (String line : read(this.historyFile)) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    trie.add(line, historyWeight);
+                }
+            }
+        }
+    }
+
+    private static List<String> read(Path path) {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        try {
+            return Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new ConfigException("Failed to read file [" + path.toAbsolutePath() + "]", ex);
+        }
+    }
+
+    /**
+     * @param prefix The start of the word
+     * @param out The predictions, most likely first.
+     * @return The number of predictions put in out.
+     */
+    public int predict(CharSequence prefix, String[] out) {
+        if (prefix.length() == 0) {
+            return 0;
+        }
+        return trie.complete(prefix, out);
+    }
+
+    /**
+     * Learn a word the user has typed. It is added to the history file by
+     * the next save().
+     *
+     * @param word The word. Only letters, digits and ' are kept.
+     */
+    public void learn(String word) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isLetterOrDigit(c) || (c == '\'')) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        if (sb.length() < 2) {
+            return;
+        }
+        String clean = sb.toString();
+        trie.add(clean, historyWeight);
+        if (historyFile != null) {
+            unsaved.add(clean);
+        }
+    }
+
+    /**
+     * Add the words learned since the last save to the history file. Returns
+     * straight away. The file is written by another thread. A failure is
+     * reported on System.err and the words are not tried again.
+     *
+     * @return Completed with true when the words have been written or false
+     * if the file could not be written.
+     */
+    public CompletableFuture<Boolean> save() {
+        if (unsaved.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        List<String> words = new ArrayList<>(unsaved);
+        unsaved.clear();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Files.write(historyFile, words, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                return true;
+            } catch (IOException ex) {
+                System.err.println("Failed to write file [" + historyFile.toAbsolutePath() + "]: " + ex.getMessage());
+                return false;
+            }
+        }, writer);
+    }
+
+    /**
+     * @return The trie of all the words.
+     */
+    public WordTrie getTrie() {
+        return trie;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package keyboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A prefix tree (trie) of words with a count for each word. Used to find the
+ * most likely completions of a partly typed word.
+ *
+ * The nodes are kept in arrays (not objects) to keep it small. Each node has
+ * a character, its first child, its next sibling and the word that ends at
+ * it (if any).
+ *
+ * Each node also keeps the best few words below it (highest count first) so
+ * a lookup only has to find the node for the prefix. The cost does not
+ * depend on the number of words.
+ *
+ * Words are stored in lower case. This class is NOT thread safe.
+ */
+public class WordTrie {
+
+    private static final int NONE = -1;
+
+    private final int best;
+    private char[] chars;
+    private int[] firstChild;
+    private int[] sibling;
+    private int[] wordAt;
+    /*
+    The best words for each node. 'best' entries per node, NONE if unused.
+     */
+    private int[] top;
+    private int nodes = 0;
+    private final List<String> words = new ArrayList<>();
+    private int[] counts = new int[256];
+
+    /**
+     * @param best The most completions kept for each prefix.
+     */
+    public WordTrie(int best) {
+        this.best = best;
+        int size = 1024;
+        chars = new char[size];
+        firstChild = new int[size];
+        sibling = new int[size];
+        wordAt = new int[size];
+        top = new int[size * best];
+        newNode('\0'); // The root
+    }
+
+    private int newNode(char c) {
+        if (nodes == chars.length) {
+            int size = nodes * 2;
+            chars = Arrays.copyOf(chars, size);
+            firstChild = Arrays.copyOf(firstChild, size);
+            sibling = Arrays.copyOf(sibling, size);
+            wordAt = Arrays.copyOf(wordAt, size);
+            top = Arrays.copyOf(top, size * best);
+        }
+        chars[nodes] = c;
+        firstChild[nodes] = NONE;
+        sibling[nodes] = NONE;
+        wordAt[nodes] = NONE;
+        Arrays.fill(top, nodes * best, (nodes + 1) * best, NONE);
+        return nodes++;
+    }
+
+    private int child(int node, char c) {
+        int n = firstChild[node];
+        while ((n != NONE) && (chars[n] != c)) {
+            n = sibling[n];
+        }
+        return n;
+    }
+
+    /**
+     * Add to the count for a word. The word is added if it is new.
+     *
+     * @param word The word. Empty words are ignored.
+     * @param count The amount to add to the count.
+     */
+    public void add(String word, int count) {
+        if (word.isEmpty()) {
+            return;
+        }
+        String lower = word.toLowerCase();
+        int node = 0;
+        int[] path = new int[lower.length() + 1];
+        path[0] = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            int next = child(node, c);
+            if (next == NONE) {
+                next = newNode(c);
+                sibling[next] = firstChild[node];
+                firstChild[node] = next;
+            }
+            node = next;
+            path[i + 1] = node;
+        }
+        int id = wordAt[node];
+        if (id == NONE) {
+            id = words.size();
+            words.add(lower);
+            if (id == counts.length) {
+                counts = Arrays.copyOf(counts, id * 2);
+            }
+            wordAt[node] = id;
+        }
+        counts[id] += count;
+        /*
+        Counts only go up so the word can only move up the best lists on
+        its path.
+         */
+        for (int n : path) {
+            promote(n, id);
+        }
+    }
+
+    private void promote(int node, int id) {
+        int start = node * best;
+        int end = start + best;
+        int at = end - 1;
+        for (int i = start; i < end; i++) {
+            if ((top[i] == id) || (top[i] == NONE)) {
+                at = i;
+                break;
+            }
+        }
+        if ((top[at] != id) && (top[at] != NONE) && (counts[top[at]] >= counts[id])) {
+            return; // Not good enough for this node
+        }
+        top[at] = id;
+        while ((at > start) && (counts[top[at - 1]] < counts[id])) {
+            top[at] = top[at - 1];
+            top[at - 1] = id;
+            at--;
+        }
+    }
+
+    /**
+     * Find the best completions of a prefix.
+     *
+     * @param prefix The start of the word (any case)
+     * @param out The completions are put here, highest count first. Its
+     * length is the most that are returned (not more than 'best').
+     * @return The number of completions put in out.
+     */
+    public int complete(CharSequence prefix, String[] out) {
+        int node = 0;
+        for (int i = 0; (i < prefix.length()) && (node != NONE); i++) {
+            node = child(node, Character.toLowerCase(prefix.charAt(i)));
+        }
+        if (node == NONE) {
+            return 0;
+        }
+        int found = 0;
+        for (int i = node * best; (i < (node + 1) * best) && (found < out.length) && (top[i] != NONE); i++) {
+            out[found++] = words.get(top[i]);
+        }
+        return found;
+    }
+
+    /**
+     * @param word A word (any case)
+     * @return The count for the word. 0 if it is not known.
+     */
+    public int getCount(String word) {
+        int node = 0;
+        String lower = word.toLowerCase();
+        for (int i = 0; (i < lower.length()) && (node != NONE); i++) {
+            node = child(node, lower.charAt(i));
+        }
+        if ((node == NONE) || (wordAt[node] == NONE)) {
+            return 0;
+        }
+        return counts[wordAt[node]];
+    }
+
+    /**
+     * @return The number of different words.
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * @return The number of nodes.
+     */
+    public int getNodeCount() {
+        return nodes;
+    }
+}
@@ -19,6 +19,8 @@ package main;
 
 import config.ConfigData;
 import java.awt.Point;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -43,11 +45,20 @@ import serial.SerialMonitorThread;
 import serial.SerialPortListener;
 
 import java.net.URL;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.Timer;
-import java.util.TimerTask;
 import javafx.scene.control.CheckBox;
+import keyboard.WordPredictor;
+import metrics.Histogram;
+import metrics.Metrics;
+import mouse.Calibration;
+import mouse.MouseController;
+import mouse.PointerMode;
+import mouse.PoseMapping;
+import robot.DwellClicker;
 import robot.RobotMouseEventListener;
 /**
  * @author huw
@@ -69,8 +80,43 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
 
     private static final int READINGS_SIZE = 50;
     private static final double TO_RADIANS = Math.PI / 180.0;
-    private final Timer displayTimer = new Timer();
+    /*
+    Each word the user sends counts this much (the top word in words.txt is
+    100000) and the most predictions that can be shown.
+     */
+    private static final int KEYBOARD_HISTORY_WEIGHT = 2000;
+    private static final int KEYBOARD_MAX_PREDICTIONS = 6;
+    private static final Font SMALL_FONT = new Font(15);
+    private static final Font LARGE_FONT = new Font(20);
+    /*
+    The canvas is drawn by displayTimer on the JavaFX thread. readingCount is
+    changed for each reading (sensor thread) and drawnCount is the reading the
+    canvas was last drawn for so nothing is drawn until there is something new.
+    redraw is set when the canvas must be drawn anyway (size or connection).
+     */
+    private final AnimationTimer displayTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            displayFrame(now);
+        }
+    };
+    private final AtomicLong readingCount = new AtomicLong();
+    private long drawnCount = -1;
+    private volatile boolean redraw = true;
+    private long minFramePeriod;
+    private long lastFrame;
+    private final Histogram framePeriod = Metrics.histogram("gui.frame.period");
+    private final Histogram frameTime = Metrics.histogram("gui.frame.time");
     private GraphicsContext canvasGraphics;
+    private GraphicsContext backgroundGraphics;
+    /*
+    What the background was last drawn for and a place to put the current
+    values so they can be compared without creating anything.
+    See backgroundChanged.
+     */
+    private final double[] backgroundKey = new double[12];
+    private final double[] nextBackgroundKey = new double[12];
+    private final StringBuilder statusText = new StringBuilder();
     private double canvasWidth;
     private double canvasHeight;
     private String rightButtonLabel;
@@ -92,17 +138,31 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
     @FXML
     private Button buttonCalibrateVertical;
 
+    @FXML
+    private Button buttonCalibrateScreen;
+    @FXML
+    private Button buttonKeyboard;
+    private OnScreenKeyboard keyboard;
+
     @FXML
     private CheckBox cbSwapLR;
 
     @FXML
     private CheckBox cbSwapUD;
 
+    @FXML
+    private ChoiceBox<DwellClicker.DwellAction> choiceBoxDwell;
+
+    @FXML
+    private ChoiceBox<PointerMode> choiceBoxPointer;
+
     @FXML
     private Button buttonCalibrateHeading;
 
     @FXML
     private Canvas mainCanvas;
+    @FXML
+    private Canvas backgroundCanvas;
     /*
     Needed so we can alculate the height of the canvas when the mainBorderPane changes size
      */
@@ -180,6 +240,66 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
         });
     }
 
+    @FXML
+    private void handleButtonKeyboard() {
+        if (keyboard == null) {
+            WordPredictor predictor = new WordPredictor(
+                    ConfigData.getValue(ConfigData.KEYBOARD_WORDS, "words.txt"),
+                    ConfigData.getValue(ConfigData.KEYBOARD_HISTORY, "history.txt"),
+                    KEYBOARD_HISTORY_WEIGHT, KEYBOARD_MAX_PREDICTIONS);
+            keyboard = new OnScreenKeyboard(predictor, Main.getRobotMouseThread(),
+                    Math.max(1, Math.min(KEYBOARD_MAX_PREDICTIONS, ConfigData.getInt(ConfigData.KEYBOARD_PREDICTIONS, 4))));
+        }
+        keyboard.show();
+    }
+
+    @FXML
+    private void handleButtonCalibrateScreen() {
+        int points = ConfigData.getInt(ConfigData.POINTER_MAPPING_POINTS, 9);
+        new ScreenCalibration(Main.getScreenRectangle(), points, this::calibrationWindow, this::screenCalibrated).start();
+    }
+
+    /**
+     * Fit a pose mapping to the screen calibration and save it.
+     *
+     * The raw heading and vertical are changed to offsets from the centre in
+     * the same way as the MouseController does.
+     *
+     * @param screenCalibration The finished screen calibration
+     */
+    private void screenCalibrated(ScreenCalibration screenCalibration) {
+        MouseController mc = Main.getMouseController();
+        long[] heading = screenCalibration.getHeading();
+        long[] vertical = screenCalibration.getVertical();
+        for (int i = 0; i < heading.length; i++) {
+            heading[i] = mc.toHeadingOffset(heading[i]);
+            vertical[i] = mc.toVerticalOffset(vertical[i]);
+        }
+        PoseMapping mapping;
+        try {
+            mapping = PoseMapping.fit(heading, vertical, screenCalibration.getTargetX(), screenCalibration.getTargetY());
+        } catch (IllegalArgumentException ex) {
+            alertOk("Screen Calibration Failed", ex.getMessage(), "Ok to continue");
+            return;
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put(ConfigData.POINTER_MAPPING_X, join(mapping.getCoefficientsX()));
+        values.put(ConfigData.POINTER_MAPPING_Y, join(mapping.getCoefficientsY()));
+        ConfigData.set(values);
+        Main.initMouseController();
+    }
+
+    private static String join(double[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (double d : values) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(d);
+        }
+        return sb.toString();
+    }
+
     @FXML
     private void handleCbSwapUD(ActionEvent event) {
         boolean current = cbSwapUD.isSelected();
@@ -213,15 +333,11 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
         Add the reading to the list of readings.
          */
         readings.add(reading);
-        Platform.runLater(new Runnable() {
-            @Override
-            public void run() {
-                /*
-                Set the label to display the raw data
-                 */
-                status1.setText(readings.getLatency() + "ms [" + readings.size() + "]" + ": " + reading.toString());
-            }
-        });
+        /*
+        The canvas and the status label are updated by displayTimer (at most
+        once a frame) from the last reading.
+         */
+        readingCount.incrementAndGet();
     }
 
     @Override
@@ -236,6 +352,7 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
 
     @Override
     public void connectedSensor(String devicePort, int baud, String name) {
+        redraw = true;
         Platform.runLater(new Runnable() {
             @Override
             public void run() {
@@ -247,6 +364,7 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
     @Override
     public void disConnectedSensor(String devicePort, String name) {
         readings.clear();
+        redraw = true;
         Platform.runLater(new Runnable() {
             @Override
             public void run() {
@@ -307,214 +425,313 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         initConnections();
+        initDwell();
+        initPointerMode();
         initTheCanvas();
         setSensorConnectButtonState();
         cbSwapLR.setSelected(ConfigData.getBoolean(ConfigData.CALIB_SWAP_LR, false));
         cbSwapUD.setSelected(ConfigData.getBoolean(ConfigData.CALIB_SWAP_UD, false));
-        displayTimer.scheduleAtFixedRate(displayTimerTask, 1, 333);
+        int frameRate = ConfigData.getInt(ConfigData.GUI_FRAME_RATE, 60);
+        minFramePeriod = (frameRate > 0) ? 1000000000L / frameRate : 0;
+        displayTimer.start();
     }
 
     /**
-     * TimerTask is an instance of Runnable (has a run method). The run method
-     * is invoked by the JAVA FX Timer (displayTimer) started in the initialize
-     * method.
+     * Called by displayTimer (an AnimationTimer) on the JavaFX thread for each
+     * pulse (usually 60 a second).
      * <p>
-     * Currently invoked every 200 MS
+     * The canvas and status label are only updated if there is a new reading
+     * (or the canvas must be drawn anyway) and not more often than
+     * gui.frame.rate. So readings arriving faster than that do not fill the
+     * JavaFX event queue.
+     *
+     * @param now The time of the pulse in nano seconds
      */
-    TimerTask displayTimerTask = new TimerTask() {
-        @Override
-        public void run() {
+    private void displayFrame(long now) {
+        if ((now - lastFrame) < minFramePeriod) {
+            return;
+        }
+        long count = readingCount.get();
+        if ((count == drawnCount) && !redraw) {
+            return;
+        }
+        if (lastFrame > 0) {
+            framePeriod.record(now - lastFrame);
+        }
+        lastFrame = now;
+        long start = System.nanoTime();
+        if (count != drawnCount) {
+            displayStatus();
+        }
+        drawnCount = count;
+        redraw = false;
+        drawCanvas();
+        frameTime.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Set the status label to display the latency and the last reading.
+     */
+    private void displayStatus() {
+        Reading lastReading = readings.getLastReading();
+        if (lastReading == null) {
+            return;
+        }
+        statusText.setLength(0);
+        statusText.append(readings.getLatency()).append("ms [").append(readings.size()).append("]: ").append(lastReading);
+        status1.setText(statusText.toString());
+    }
+
+    /**
+     * Draw the parts of the canvas that change with each reading on mainCanvas.
+     * These are the trace of the last readings, the heading hand and the
+     * buttons. Everything else is on backgroundCanvas (behind mainCanvas) and
+     * is only drawn when it changes.
+     */
+    private void drawCanvas() {
+        try {
+            if (backgroundChanged()) {
+                drawBackground();
+            }
+            canvasGraphics.clearRect(0, 0, canvasWidth, canvasHeight);
+            if (!isConnectedToSensor() || (readings.size() == 0)) {
+                return;
+            }
+            MouseController mouseController = Main.getMouseController();
             /*
-            Only draw if connected to sensor
+            Given the size of the canvas. Calculate each X step and the origin.
              */
-            canvasGraphics = mainCanvas.getGraphicsContext2D();
-            try {
-                /*
-                Init the canvas with a background colour and fill it!
-                 */
-                canvasGraphics.setFill(Color.AQUA);
-                canvasGraphics.fillRect(0, 0, canvasWidth, canvasHeight);
-                canvasGraphics.setLineWidth(1);
-                canvasGraphics.setFont(new Font(15));
-                canvasGraphics.setStroke(Color.BLACK);
-                double yOrg = canvasHeight / 2; // Center of the canvas
-                double xOrg = canvasWidth / 2;  // Center of the canvas
-                if (!isConnectedToSensor()) {
-                    /*
-                    Sensor is not connected.
-                     */
+            double yOrg = canvasHeight / 2; // Center of the canvas
+            double xOrg = canvasWidth / 2;  // Center of the canvas
+            double xStep = canvasWidth / (readings.capacity() - 1);
+            double radius2 = Math.min(canvasHeight, canvasWidth) / 3;
+            double scaleY = canvasHeight / 3000;
+            double scale = canvasHeight / 1000;
+            double xPos;
+            double yPos;
+            double yPosPrev;
+            double lastPlotReading;
+            canvasGraphics.setLineWidth(2);
+            canvasGraphics.setFont(LARGE_FONT);
+
+            List<Reading> list = readings.readings();
+
+            switch (mouseController.getMouseVerticalState()) {
+                case INACTIVE:
+                    canvasGraphics.setStroke(Color.DARKGRAY);
+                    break;
+                case ACTIVE:
+                    canvasGraphics.setStroke(Color.GREEN);
+                    break;
+                case NULL_ZONE:
+                    canvasGraphics.setStroke(Color.YELLOW);
+                    break;
+                default:
                     canvasGraphics.setStroke(Color.RED);
-                    canvasGraphics.strokeText("Sensor is not connected", xOrg - 100, 50);
+                    break;
+            }
+
+            xPos = -(xStep * 2);
+            yPos = yOrg;
+            yPosPrev = yPos;
+            lastPlotReading = 0;
+            for (Reading reading : list) {
+                lastPlotReading = reading.getY();
+                xPos = xPos + xStep;
+                yPos = yOrg + (lastPlotReading * scaleY);
+                canvasGraphics.strokeLine(xPos, yPosPrev, xPos + xStep, yPos);
+                yPosPrev = yPos;
+            }
+            canvasGraphics.strokeText("" + lastPlotReading, xPos - 80, yPos + 20);
+            canvasGraphics.strokeText("" + mouseController.getMouseVerticalOffset(), xPos - 80, yPos - 20);
+
+            Reading lastReading = readings.getLastReading();
+            if (lastReading != null) {
+                Color col;
+
+                String offsetHeading = String.valueOf(mouseController.getMouseHeadingOffset());
+                String actualHeading = String.valueOf(lastReading.getHeading());
+                String displayHeading;
+                switch (mouseController.getMouseHeadingState()) {
+                    case INACTIVE:
+                        col = Color.DARKGREY;
+                        displayHeading = actualHeading + "[D]";
+                        break;
+                    case ACTIVE:
+                        col = Color.GREEN;
+                        displayHeading = actualHeading + "[" + offsetHeading + "]";
+                        break;
+                    case NULL_ZONE:
+                        displayHeading = actualHeading + "[" + offsetHeading + "]";
+                        col = Color.YELLOW;
+                        break;
+                    default:
+                        displayHeading = actualHeading + "[?]";
+                        col = Color.RED;
+                }
+                if (Main.getSerialMonitorThread().isSwapLR()) {
+                    rightButtonLabel = "B";
+                    leftButtonLabel = "A";
                 } else {
-                    /*
-                    Given the size of the canvas. Calculate each X step and the origin line. Also the tick height.
-                     */
-                    double xStep = canvasWidth / (readings.capacity() - 1);
-                    double tickHeight = canvasHeight / 80;
-                    double radius = Math.min(canvasHeight, canvasWidth) / 4;
-                    double radius2 = Math.min(canvasHeight, canvasWidth) / 3;
-                    double scaleY = canvasHeight / 3000;
-                    double scale = canvasHeight / 1000;
-                    double xPos;
-                    double yPos;
-                    double yPosPrev;
-                    double lastPlotReading;
-                    /*
-                    Set the line width to 1. Draw a bounding box and origin line in black
-                     */
-                    canvasGraphics.strokeRect(0, 0, canvasWidth, canvasHeight);
-                    canvasGraphics.strokeLine(0, yOrg, canvasWidth, yOrg);
-                    /*
-                    Draw the ticks. Each 10th goes below the line
-                     */
-                    for (int t = 0; t < readings.capacity(); t++) {
-                        if ((t % 10) == 0) {
-                            canvasGraphics.strokeLine(t * xStep, yOrg - tickHeight, t * xStep, yOrg + tickHeight);
-                        } else {
-                            canvasGraphics.strokeLine(t * xStep, yOrg, t * xStep, yOrg - tickHeight);
-                        }
-                    }
-                    /*
-                    Draw the vertical boundaries.
-                     */
-                    drawVerticalLimitLine(yOrg, scaleY, Color.BLUE, Main.getMouseController().getVerticalMin(), "MIN:");
-                    drawVerticalLimitLine(yOrg, scaleY, Color.BLUE, Main.getMouseController().getVerticalMax(), "MAX:");
-
-                    drawVerticalLimitLine(yOrg, scaleY, Color.RED, Main.getMouseController().getVerticalLimitMin(), "MIN:");
-                    drawVerticalLimitLine(yOrg, scaleY, Color.RED, Main.getMouseController().getVerticalLimitMax(), "MAX:");
-
-                    /*
-                    If there are ANY values in the readings
-                     */
-                    canvasGraphics.setLineWidth(2);
-                    canvasGraphics.setFont(new Font(20));
-
-                    if (readings.size() > 0) {
-                        List<Reading> list = readings.readings();
-
-                        switch (Main.getMouseController().getMouseVerticalState()) {
-                            case INACTIVE:
-                                canvasGraphics.setStroke(Color.DARKGRAY);
-                                break;
-                            case ACTIVE:
-                                canvasGraphics.setStroke(Color.GREEN);
-                                break;
-                            case NULL_ZONE:
-                                canvasGraphics.setStroke(Color.YELLOW);
-                                break;
-                            default:
-                                canvasGraphics.setStroke(Color.RED);
-                                break;
-                        }
-
-                        xPos = -(xStep * 2);
-                        yPos = yOrg;
-                        yPosPrev = yPos;
-                        lastPlotReading = 0;
-                        for (Reading reading : list) {
-                            lastPlotReading = reading.getY();
-                            xPos = xPos + xStep;
-                            yPos = yOrg + (lastPlotReading * scaleY);
-                            canvasGraphics.strokeLine(xPos, yPosPrev, xPos + xStep, yPos);
-                            yPosPrev = yPos;
-                        }
-                        canvasGraphics.strokeText("" + lastPlotReading, xPos - 80, yPos + 20);
-                        canvasGraphics.strokeText("" + Main.getMouseController().getMouseVerticalOffset(), xPos - 80, yPos - 20);
-
-                        Reading lastReading = readings.getLastReading();
-                        if (lastReading != null) {
-                            canvasGraphics.setStroke(Color.BLACK);
-                            canvasGraphics.strokeOval(xOrg - radius, yOrg - radius, radius * 2, radius * 2);
-                            drawClockHand(xOrg, yOrg, radius, 0, Color.YELLOW, 1, "North");
-                            drawClockHand(xOrg, yOrg, radius2, Main.getMouseController().getHeadingMin(), Color.BLUE, 1, "Min:" + Main.getMouseController().getHeadingMin());
-                            drawClockHand(xOrg, yOrg, radius2, Main.getMouseController().getHeadingMax(), Color.BLUE, 1, "Max:" + Main.getMouseController().getHeadingMax());
-                            drawClockHand(xOrg, yOrg, radius, Main.getMouseController().getHeadingLimitMin(), Color.RED, 1, "Min:" + Main.getMouseController().getHeadingLimitMin());
-                            drawClockHand(xOrg, yOrg, radius, Main.getMouseController().getHeadingLimitMax(), Color.RED, 1, "Max:" + Main.getMouseController().getHeadingLimitMax());
-                            Color col;
-
-                            String offsetHeading = String.valueOf(Main.getMouseController().getMouseHeadingOffset());
-                            String actualHeading = String.valueOf(lastReading.getHeading());
-                            String displayHeading;
-                            switch (Main.getMouseController().getMouseHeadingState()) {
-                                case INACTIVE:
-                                    col = Color.DARKGREY;
-                                    displayHeading = actualHeading + "[D]";
-                                    break;
-                                case ACTIVE:
-                                    col = Color.GREEN;
-                                    displayHeading = actualHeading + "[" + offsetHeading + "]";
-                                    break;
-                                case NULL_ZONE:
-                                    displayHeading = actualHeading + "[" + offsetHeading + "]";
-                                    col = Color.YELLOW;
-                                    break;
-                                default:
-                                    displayHeading = actualHeading + "[?]";
-                                    col = Color.RED;
-                            }
-                            if (Main.getSerialMonitorThread().isSwapLR()) {
-                                rightButtonLabel = "B";
-                                leftButtonLabel = "A";
-                            } else {
-                                rightButtonLabel = "A";
-                                leftButtonLabel = "B";
-                            }
-                            drawClockHand(xOrg, yOrg, radius2, (long) lastReading.getHeading(), col, 2, displayHeading);
-                            drawButton(50, 50, 80 * scale, Main.getMouseController().isLeftButtonPressed(), lastReading.isB2S(), lastReading.isB2R(), leftButtonLabel);
-                            drawButton(canvasWidth - 50, 50, 80 * scale, Main.getMouseController().isRightButtonPressed(), lastReading.isB1S(), lastReading.isB1R(), rightButtonLabel);
-                        }
-                    } else {
-                        canvasGraphics.setLineWidth(1);
-                        canvasGraphics.setStroke(Color.RED);
-                        canvasGraphics.strokeText("No readings have been received", xOrg - 120, 50);
-                    }
+                    rightButtonLabel = "A";
+                    leftButtonLabel = "B";
                 }
-            } catch (Throwable ex) {
-                ex.printStackTrace();
+                drawClockHand(canvasGraphics, xOrg, yOrg, radius2, (long) lastReading.getHeading(), col, 2, displayHeading);
+                drawButton(canvasGraphics, 50, 50, 80 * scale, mouseController.isLeftButtonPressed(), lastReading.isB2S(), lastReading.isB2R(), leftButtonLabel);
+                drawButton(canvasGraphics, canvasWidth - 50, 50, 80 * scale, mouseController.isRightButtonPressed(), lastReading.isB1S(), lastReading.isB1R(), rightButtonLabel);
             }
+        } catch (Throwable ex) {
+            ex.printStackTrace();
         }
-    };
+    }
+
+    /**
+     * Check if the background must be drawn again. It depends on the size of
+     * the canvas, the sensor connection and the calibration (which can also be
+     * changed by drift compensation) so these are kept from the last time it
+     * was drawn.
+     *
+     * @return true if any of them have changed.
+     */
+    private boolean backgroundChanged() {
+        nextBackgroundKey[0] = canvasWidth;
+        nextBackgroundKey[1] = canvasHeight;
+        nextBackgroundKey[2] = isConnectedToSensor() ? 1 : 0;
+        nextBackgroundKey[3] = readings.size() > 0 ? 1 : 0;
+        if (isConnectedToSensor()) {
+            MouseController mouseController = Main.getMouseController();
+            nextBackgroundKey[4] = mouseController.getVerticalMin();
+            nextBackgroundKey[5] = mouseController.getVerticalMax();
+            nextBackgroundKey[6] = mouseController.getVerticalLimitMin();
+            nextBackgroundKey[7] = mouseController.getVerticalLimitMax();
+            nextBackgroundKey[8] = mouseController.getHeadingMin();
+            nextBackgroundKey[9] = mouseController.getHeadingMax();
+            nextBackgroundKey[10] = mouseController.getHeadingLimitMin();
+            nextBackgroundKey[11] = mouseController.getHeadingLimitMax();
+        }
+        if (Arrays.equals(nextBackgroundKey, backgroundKey)) {
+            return false;
+        }
+        System.arraycopy(nextBackgroundKey, 0, backgroundKey, 0, backgroundKey.length);
+        return true;
+    }
+
+    /**
+     * Draw the background, ticks, boundary lines, the 'clock face' and the
+     * calibration limits on backgroundCanvas.
+     */
+    private void drawBackground() {
+        GraphicsContext gc = backgroundGraphics;
+        /*
+        Init the canvas with a background colour and fill it!
+         */
+        gc.setFill(Color.AQUA);
+        gc.fillRect(0, 0, canvasWidth, canvasHeight);
+        gc.setLineWidth(1);
+        gc.setFont(SMALL_FONT);
+        gc.setStroke(Color.BLACK);
+        double yOrg = canvasHeight / 2; // Center of the canvas
+        double xOrg = canvasWidth / 2;  // Center of the canvas
+        if (!isConnectedToSensor()) {
+            /*
+            Sensor is not connected.
+             */
+            gc.setStroke(Color.RED);
+            gc.strokeText("Sensor is not connected", xOrg - 100, 50);
+            return;
+        }
+        MouseController mouseController = Main.getMouseController();
+        /*
+        Given the size of the canvas. Calculate each X step and the origin line. Also the tick height.
+         */
+        double xStep = canvasWidth / (readings.capacity() - 1);
+        double tickHeight = canvasHeight / 80;
+        double radius = Math.min(canvasHeight, canvasWidth) / 4;
+        double radius2 = Math.min(canvasHeight, canvasWidth) / 3;
+        double scaleY = canvasHeight / 3000;
+        /*
+        Set the line width to 1. Draw a bounding box and origin line in black
+         */
+        gc.strokeRect(0, 0, canvasWidth, canvasHeight);
+        gc.strokeLine(0, yOrg, canvasWidth, yOrg);
+        /*
+        Draw the ticks. Each 10th goes below the line
+         */
+        for (int t = 0; t < readings.capacity(); t++) {
+            if ((t % 10) == 0) {
+                gc.strokeLine(t * xStep, yOrg - tickHeight, t * xStep, yOrg + tickHeight);
+            } else {
+                gc.strokeLine(t * xStep, yOrg, t * xStep, yOrg - tickHeight);
+            }
+        }
+        /*
+        Draw the vertical boundaries.
+         */
+        drawVerticalLimitLine(gc, yOrg, scaleY, Color.BLUE, mouseController.getVerticalMin(), "MIN:");
+        drawVerticalLimitLine(gc, yOrg, scaleY, Color.BLUE, mouseController.getVerticalMax(), "MAX:");
+
+        drawVerticalLimitLine(gc, yOrg, scaleY, Color.RED, mouseController.getVerticalLimitMin(), "MIN:");
+        drawVerticalLimitLine(gc, yOrg, scaleY, Color.RED, mouseController.getVerticalLimitMax(), "MAX:");
+
+        gc.setLineWidth(2);
+        gc.setFont(LARGE_FONT);
+        if (readings.size() > 0) {
+            gc.setStroke(Color.BLACK);
+            gc.strokeOval(xOrg - radius, yOrg - radius, radius * 2, radius * 2);
+            drawClockHand(gc, xOrg, yOrg, radius, 0, Color.YELLOW, 1, "North");
+            drawClockHand(gc, xOrg, yOrg, radius2, mouseController.getHeadingMin(), Color.BLUE, 1, "Min:" + mouseController.getHeadingMin());
+            drawClockHand(gc, xOrg, yOrg, radius2, mouseController.getHeadingMax(), Color.BLUE, 1, "Max:" + mouseController.getHeadingMax());
+            drawClockHand(gc, xOrg, yOrg, radius, mouseController.getHeadingLimitMin(), Color.RED, 1, "Min:" + mouseController.getHeadingLimitMin());
+            drawClockHand(gc, xOrg, yOrg, radius, mouseController.getHeadingLimitMax(), Color.RED, 1, "Max:" + mouseController.getHeadingLimitMax());
+        } else {
+            gc.setLineWidth(1);
+            gc.setStroke(Color.RED);
+            gc.strokeText("No readings have been received", xOrg - 120, 50);
+        }
+    }
 
-    private void drawButton(double x, double y, double size, boolean mousePressed, boolean pressed1, boolean pressed2, String marker) {
-        canvasGraphics.setStroke(Color.CYAN);
+    private void drawButton(GraphicsContext gc, double x, double y, double size, boolean mousePressed, boolean pressed1, boolean pressed2, String marker) {
+        gc.setStroke(Color.CYAN);
         if (pressed2) {
-            canvasGraphics.setFill(Color.RED);
+            gc.setFill(Color.RED);
             double pSize = size + 20;
-            canvasGraphics.fillOval(x - (pSize / 2), y - (pSize / 2), pSize, pSize);
+            gc.fillOval(x - (pSize / 2), y - (pSize / 2), pSize, pSize);
         }
         if (pressed1) {
-            canvasGraphics.setFill(Color.BLUE);
+            gc.setFill(Color.BLUE);
             double pSize = size + 10;
-            canvasGraphics.fillOval(x - (pSize / 2), y - (pSize / 2), pSize, pSize);
+            gc.fillOval(x - (pSize / 2), y - (pSize / 2), pSize, pSize);
         }
         if (mousePressed) {
-            canvasGraphics.setFill(Color.GREEN);
+            gc.setFill(Color.GREEN);
         } else {
-            canvasGraphics.setFill(Color.PINK);
+            gc.setFill(Color.PINK);
         }
-        canvasGraphics.fillOval(x - (size / 2), y - (size / 2), size, size);
-        canvasGraphics.strokeText(marker, x - (size / 8), y + (size / 8));
+        gc.fillOval(x - (size / 2), y - (size / 2), size, size);
+        gc.strokeText(marker, x - (size / 8), y + (size / 8));
     }
 
     /**
      * This is a horizontal line marking a vertical limit
      *
+     * @param gc The canvas to draw on
      * @param yOrg Zero on the canvas
      * @param scale Scale for display only
      * @param colour The line colour
      * @param line The line value
      * @param marker The text to annotate the line with
      */
-    private void drawVerticalLimitLine(double yOrg, double scale, Color colour, double line, String marker) {
-        canvasGraphics.setStroke(colour);
+    private void drawVerticalLimitLine(GraphicsContext gc, double yOrg, double scale, Color colour, double line, String marker) {
+        gc.setStroke(colour);
         double d = yOrg + (line * scale);
-        canvasGraphics.strokeLine(110, d, canvasWidth - 110, d);
-        canvasGraphics.strokeText(marker + (long) line, 10, d + 5);
+        gc.strokeLine(110, d, canvasWidth - 110, d);
+        gc.strokeText(marker + (long) line, 10, d + 5);
     }
 
     /**
      * Draw a line on the 'clock face'
      *
+     * @param gc The canvas to draw on
      * @param xOrg The centre of the clock X
      * @param yOrg The centre of the clock X
      * @param radius The effective length of the line (from the centre
@@ -523,16 +740,16 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
      * @param lineWidth The thickness of the line
      * @param marker The Text to draw at the end of the line.
      */
-    private void drawClockHand(double xOrg, double yOrg, double radius, long degrees, Color colour, double lineWidth, String marker) {
-        canvasGraphics.setLineWidth(lineWidth);
-        canvasGraphics.setStroke(colour);
+    private void drawClockHand(GraphicsContext gc, double xOrg, double yOrg, double radius, long degrees, Color colour, double lineWidth, String marker) {
+        gc.setLineWidth(lineWidth);
+        gc.setStroke(colour);
         double rr = (degrees + 90) * TO_RADIANS;
         double yy = radius * Math.sin(rr);
         double xx = radius * Math.cos(rr);
-        canvasGraphics.strokeLine(xOrg, yOrg, xOrg + xx, yOrg - yy);
+        gc.strokeLine(xOrg, yOrg, xOrg + xx, yOrg - yy);
         yy = (radius + 30) * Math.sin(rr);
         xx = (radius + 30) * Math.cos(rr);
-        canvasGraphics.strokeText(marker, (xOrg + xx) - 20, (yOrg - yy) + 10);
+        gc.strokeText(marker, (xOrg + xx) - 20, (yOrg - yy) + 10);
     }
 
     /**
@@ -548,6 +765,8 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
      * used to calculate the canvas size
      */
     private void initTheCanvas() {
+        canvasGraphics = mainCanvas.getGraphicsContext2D();
+        backgroundGraphics = backgroundCanvas.getGraphicsContext2D();
         /*
         Get statusAnchorPane and buttonFlowPane heights
          */
@@ -564,7 +783,8 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
                 try {
                     canvasWidth = mainBorderPane.getWidth();
                     mainCanvas.setWidth(canvasWidth);
-                    canvasGraphics = mainCanvas.getGraphicsContext2D();
+                    backgroundCanvas.setWidth(canvasWidth);
+                    redraw = true;
                 } catch (Exception ex) {
                     ex.printStackTrace();
                 }
@@ -580,7 +800,8 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
             try {
                 canvasHeight = mainBorderPane.getHeight() - hightAdjust;
                 mainCanvas.setHeight(canvasHeight);
-                canvasGraphics = mainCanvas.getGraphicsContext2D();
+                backgroundCanvas.setHeight(canvasHeight);
+                redraw = true;
             } catch (Exception ex) {
                 ex.printStackTrace();
             }
@@ -606,6 +827,38 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
         buttonConnect.setText(isConnectedToSensor() ? "Dis-Connect" : "Connect");
     }
 
+    /**
+     * Populate the Dwell drop down.
+     *
+     * When the selection changes the dwell clicker is updated and the value
+     * saved.
+     */
+    private void initDwell() {
+        choiceBoxDwell.setItems(FXCollections.observableArrayList(DwellClicker.DwellAction.values()));
+        choiceBoxDwell.getSelectionModel().select(Main.getRobotMouseThread().getDwellClicker().getAction());
+        choiceBoxDwell.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                Main.getRobotMouseThread().getDwellClicker().setAction(newVal);
+                ConfigData.set(ConfigData.DWELL_ACTION, newVal.name());
+            }
+        });
+    }
+
+    private void initPointerMode() {
+        choiceBoxPointer.setItems(FXCollections.observableArrayList(PointerMode.values()));
+        choiceBoxPointer.getSelectionModel().select(Main.getPointerMode());
+        choiceBoxPointer.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                /*
+                Saved first so the mode is kept if the controller is re-created
+                (calibrate).
+                 */
+                ConfigData.set(ConfigData.POINTER_MODE, newVal.name());
+                Main.getMouseController().setPointerMode(newVal);
+            }
+        });
+    }
+
     private void initButtonState() {
         setSensorConnectButtonState();
         setMouseConnectButtonState();
@@ -637,6 +890,7 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
             this.buttonConnect.setText("Dis-Connect");
             buttonCalibrateHeading.setDisable(false);
             buttonCalibrateVertical.setDisable(false);
+            buttonCalibrateScreen.setDisable(false);
             this.status2.setText("Connected to Sensor: " + name);
             buttonMouseMotion.setDisable(false);
         } else {
@@ -644,6 +898,7 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
             this.status2.setText("Select a Sensor port and press 'Connect'");
             buttonCalibrateHeading.setDisable(true);
             buttonCalibrateVertical.setDisable(true);
+            buttonCalibrateScreen.setDisable(true);
             buttonMouseMotion.setDisable(true);
         }
     }
@@ -652,19 +907,53 @@ public class FXMLDocumentController implements Initializable, SerialPortListener
         buttonMouseMotion.setText(isConnectedToMouse() ? "Stop" : "Start");
     }
 
+    /**
+     * Calibrate from the readings in the last calibrate.window ms.
+     *
+     * @return The calibration or null if there are no readings.
+     */
+    private Calibration calibrationWindow() {
+        if (!readings.hasLastReading()) {
+            return null;
+        }
+        long from = readings.getLastReading().getTimestamp() - ConfigData.getInt(ConfigData.CALIB_WINDOW, 500);
+        Calibration calibration = new Calibration(readings.capacity() + 1);
+        for (Reading r : readings.readings()) {
+            if (r.getTimestamp() >= from) {
+                calibration.add(r);
+            }
+        }
+        if (calibration.size() == 0) {
+            calibration.add(readings.getLastReading());
+        }
+        return calibration;
+    }
+
     private void calibrateVerticle() {
-        if (readings.hasLastReading()) {
-            long[] verticalData = ConfigData.getLongs(ConfigData.CALIB_VERTICAL_DATA, 3);
-            verticalData[0] = (long) readings.getLastReading().getY();
-            ConfigData.set(ConfigData.CALIB_VERTICAL_DATA, String.format("%d,%d,%d", verticalData[0], verticalData[1], verticalData[2]));
+        Calibration calibration = calibrationWindow();
+        if (calibration != null) {
+            long[] verticalData = Calibration.zoneData(calibration.getVerticalCentre(), calibration.getVerticalNoise(),
+                    ConfigData.getInt(ConfigData.CALIB_VERTICAL_MIN_NULL, 50),
+                    ConfigData.getLongs(ConfigData.CALIB_VERTICAL_DATA, 3));
+            long[] hysteresis = Calibration.hysteresis(calibration.getVerticalNoise());
+            Map<String, String> values = new LinkedHashMap<>();
+            values.put(ConfigData.CALIB_VERTICAL_DATA, String.format("%d,%d,%d", verticalData[0], verticalData[1], verticalData[2]));
+            values.put(ConfigData.CALIB_VERTICAL_HYSTERESIS, String.format("%d,%d", hysteresis[0], hysteresis[1]));
+            ConfigData.set(values);
         }
     }
 
     private void calibrateHeading() {
-        if (readings.hasLastReading()) {
-            long[] headingData = ConfigData.getLongs(ConfigData.CALIB_HEADING_DATA, 3);
-            headingData[0] = (long) readings.getLastReading().getHeading();
-            ConfigData.set(ConfigData.CALIB_HEADING_DATA, String.format("%d,%d,%d", headingData[0], headingData[1], headingData[2]));
+        Calibration calibration = calibrationWindow();
+        if (calibration != null) {
+            long[] headingData = Calibration.zoneData(calibration.getHeadingCentre(), calibration.getHeadingNoise(),
+                    ConfigData.getInt(ConfigData.CALIB_HEADING_MIN_NULL, 5),
+                    ConfigData.getLongs(ConfigData.CALIB_HEADING_DATA, 3));
+            long[] hysteresis = Calibration.hysteresis(calibration.getHeadingNoise());
+            Map<String, String> values = new LinkedHashMap<>();
+            values.put(ConfigData.CALIB_HEADING_DATA, String.format("%d,%d,%d", headingData[0], headingData[1], headingData[2]));
+            values.put(ConfigData.CALIB_HEADING_HYSTERESIS, String.format("%d,%d", hysteresis[0], hysteresis[1]));
+            ConfigData.set(values);
         }
     }
 
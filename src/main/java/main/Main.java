@@ -27,7 +27,16 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
+import mouse.DriftCompensator;
+import mouse.GestureAction;
+import mouse.GestureRecognizer;
 import mouse.MouseController;
+import mouse.PointerMode;
+import mouse.PoseMapping;
+import mouse.RelativePointer;
+import mouse.RollScroller;
+import robot.DwellClicker;
+import robot.MouseButton;
 import robot.RobotMouseEventListener;
 import robot.RobotMouseThread;
 import serial.Reading;
@@ -232,12 +241,147 @@ public class Main extends Application {
     }
 
     public static void initMouseController() {
-        mouseController = new MouseController(robotMouseThread,
+        MouseController controller = new MouseController(robotMouseThread,
                 ConfigData.getLongs(ConfigData.CALIB_HEADING_DATA, 3),
+                ConfigData.getLongs(ConfigData.CALIB_HEADING_HYSTERESIS, 2, new long[]{0, 0}),
                 ConfigData.getDouble(ConfigData.CALIB_HEADING_SPEED, 5.0),
                 ConfigData.getLongs(ConfigData.CALIB_VERTICAL_DATA, 3),
-                ConfigData.getDouble(ConfigData.CALIB_VERTICAL_SPEED, 0.5)
+                ConfigData.getLongs(ConfigData.CALIB_VERTICAL_HYSTERESIS, 2, new long[]{0, 0}),
+                ConfigData.getDouble(ConfigData.CALIB_VERTICAL_SPEED, 0.5),
+                ConfigData.getInt(ConfigData.CALIB_BUTTON_DEBOUNCE, 0)
         );
+        initGestures(controller);
+        controller.setScreen(getScreenRectangle(),
+                ConfigData.getDouble(ConfigData.POINTER_SMOOTHING, 0.3),
+                ConfigData.getDouble(ConfigData.POINTER_PRECISION, 0.25));
+        double[] mappingX = ConfigData.getDoubles(ConfigData.POINTER_MAPPING_X, PoseMapping.TERMS, null);
+        double[] mappingY = ConfigData.getDoubles(ConfigData.POINTER_MAPPING_Y, PoseMapping.TERMS, null);
+        if ((mappingX != null) && (mappingY != null)) {
+            controller.setPoseMapping(new PoseMapping(mappingX, mappingY));
+        }
+        double[] gain = ConfigData.getDoubles(ConfigData.POINTER_GAIN, 2, new double[]{20, 0.5});
+        long[] deadband = ConfigData.getLongs(ConfigData.POINTER_DEADBAND, 2, new long[]{0, 10});
+        controller.setRelativePointer(new RelativePointer(gain[0], gain[1],
+                ConfigData.getDouble(ConfigData.POINTER_EXPONENT, 1.2),
+                deadband[0], deadband[1]));
+        controller.setPointerMode(getPointerMode());
+        controller.setButtonMapping(
+                getMouseButton(ConfigData.BUTTON_SENSOR_1, MouseButton.RIGHT),
+                getMouseButton(ConfigData.BUTTON_SENSOR_2, MouseButton.LEFT),
+                getMouseButton(ConfigData.BUTTON_RECEIVER_1, null),
+                getMouseButton(ConfigData.BUTTON_RECEIVER_2, null));
+        if (ConfigData.getBoolean(ConfigData.SCROLL_ENABLED, false)) {
+            double[] nullZone = ConfigData.getDoubles(ConfigData.SCROLL_NULL, 2, new double[]{300, 50});
+            controller.setRollScroller(new RollScroller(nullZone[0], nullZone[1],
+                    ConfigData.getDouble(ConfigData.SCROLL_RATE, 0.02),
+                    ConfigData.getDouble(ConfigData.SCROLL_MAX_RATE, 20)));
+        }
+        if (ConfigData.getBoolean(ConfigData.DRIFT_ENABLED, false)) {
+            long[] limit = ConfigData.getLongs(ConfigData.DRIFT_LIMIT, 2, new long[]{5, 50});
+            long[] still = ConfigData.getLongs(ConfigData.DRIFT_STILL, 2, new long[]{2, 30});
+            controller.setDriftCompensator(new DriftCompensator(
+                    ConfigData.getDouble(ConfigData.DRIFT_RATE, 0.01),
+                    ConfigData.getInt(ConfigData.DRIFT_STEP_TIME, 2000),
+                    limit[0], limit[1], still[0], still[1]));
+        }
+        mouseController = controller;
+    }
+
+    /**
+     * Set up the gesture actions for the mouse controller.
+     * <p>
+     * Each action is defined as gesture.action.[gesture]=[action]. For
+     * example gesture.action.nod=CLICK. The TYPE action is followed by the
+     * text to type. For example gesture.action.tilt_left=TYPE:hello
+     * <p>
+     * Gestures are only recognised if at least one has an action.
+     *
+     * @param controller The mouse controller
+     */
+    private static void initGestures(MouseController controller) {
+        boolean used = false;
+        for (GestureRecognizer.Gesture gesture : GestureRecognizer.Gesture.values()) {
+            String name = ConfigData.GESTURE_ACTION + gesture.name().toLowerCase();
+            String value = ConfigData.getValue(name, GestureAction.NONE.name());
+            String text = null;
+            int colon = value.indexOf(':');
+            if (colon >= 0) {
+                text = value.substring(colon + 1);
+                value = value.substring(0, colon);
+            }
+            GestureAction action;
+            try {
+                action = GestureAction.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new ConfigException("Config data property [" + name + "] = [" + value + "] is invalid", ex);
+            }
+            controller.setGestureAction(gesture, action, text);
+            used = used || (action != GestureAction.NONE);
+        }
+        if (used) {
+            controller.setGestureRecognizer(new GestureRecognizer(
+                    ConfigData.getInt(ConfigData.GESTURE_WINDOW, 100),
+                    ConfigData.getInt(ConfigData.GESTURE_SWINGS, 2),
+                    ConfigData.getDouble(ConfigData.GESTURE_NOD_THRESHOLD, 150),
+                    ConfigData.getDouble(ConfigData.GESTURE_SHAKE_THRESHOLD, 10),
+                    ConfigData.getDouble(ConfigData.GESTURE_TILT_THRESHOLD, 300),
+                    ConfigData.getInt(ConfigData.GESTURE_TILT_TIME, 400)));
+        }
+    }
+
+    /**
+     * Configure the dwell clicker in the robot mouse thread.
+     */
+    public static void initDwellClicker() {
+        DwellClicker dwellClicker = robotMouseThread.getDwellClicker();
+        dwellClicker.setDwellTime(ConfigData.getInt(ConfigData.DWELL_TIME, 1000));
+        dwellClicker.setCooldown(ConfigData.getInt(ConfigData.DWELL_COOLDOWN, 1000));
+        dwellClicker.setRadius(ConfigData.getDouble(ConfigData.DWELL_RADIUS, 10.0));
+        dwellClicker.setAction(getDwellAction());
+    }
+
+    /**
+     * Get the dwell action from the configuration data.
+     *
+     * @return The action. OFF if not defined.
+     */
+    public static DwellClicker.DwellAction getDwellAction() {
+        String action = ConfigData.getValue(ConfigData.DWELL_ACTION, DwellClicker.DwellAction.OFF.name());
+        try {
+            return DwellClicker.DwellAction.valueOf(action.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigException("Config data property [" + ConfigData.DWELL_ACTION + "] = [" + action + "] is invalid", ex);
+        }
+    }
+
+    /**
+     * Get the pointer mode from the configuration data.
+     *
+     * @return The mode. JOYSTICK if not defined.
+     */
+    public static PointerMode getPointerMode() {
+        String mode = ConfigData.getValue(ConfigData.POINTER_MODE, PointerMode.JOYSTICK.name());
+        try {
+            return PointerMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigException("Config data property [" + ConfigData.POINTER_MODE + "] = [" + mode + "] is invalid", ex);
+        }
+    }
+
+    /**
+     * Get the mouse button for a sensor or receiver button from the config.
+     *
+     * @param name The property name
+     * @param defaultValue The button if the property is not set
+     * @return The button or null for NONE
+     */
+    private static MouseButton getMouseButton(String name, MouseButton defaultValue) {
+        String value = ConfigData.getValue(name, (defaultValue == null) ? "NONE" : defaultValue.name());
+        try {
+            return MouseButton.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigException("Config data property [" + name + "] = [" + value + "] is invalid", ex);
+        }
     }
 
     /**
@@ -305,7 +449,14 @@ public class Main extends Application {
                 }
 
             }
-        }, getScreenRectangle());
+        }, getScreenRectangle(),
+                ConfigData.getInt(ConfigData.ROBOT_TICK_RATE, RobotMouseThread.DEFAULT_TICK_RATE),
+                ConfigData.getBoolean(ConfigData.ROBOT_INTERPOLATE, true));
+        robotMouseThread.setPositionCheckRate(ConfigData.getInt(ConfigData.ROBOT_POSITION_CHECK_RATE, RobotMouseThread.DEFAULT_POSITION_CHECK_RATE));
+        robotMouseThread.setKeyInterval(ConfigData.getInt(ConfigData.TYPE_INTERVAL, RobotMouseThread.DEFAULT_KEY_INTERVAL));
+        long[] watchdog = ConfigData.getLongs(ConfigData.ROBOT_WATCHDOG, 2,
+                new long[]{RobotMouseThread.DEFAULT_WATCHDOG_STOP, RobotMouseThread.DEFAULT_WATCHDOG_RELEASE});
+        robotMouseThread.setWatchdog((int) watchdog[0], (int) watchdog[1]);
 
         robotMouseThread.start();
 
@@ -315,6 +466,7 @@ public class Main extends Application {
          */
         try {
             initMouseController();
+            initDwellClicker();
         } catch (ConfigException ce) {
             exitProgramWithHelp("Configuration data '" + args[0] + "' could not be loaded", ce);
         }
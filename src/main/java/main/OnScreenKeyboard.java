@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package main;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.util.Duration;
+import keyboard.WordPredictor;
+import robot.RobotMouseThread;
+import robot.TypingListener;
+
+/**
+ * An on-screen keyboard for typing with the head pointer (and dwell).
+ *
+ * Each key is a large button. The text is built up in the keyboard and the
+ * best words for the word being typed are shown above the keys. Selecting a
+ * word finishes it (and adds a space) in one action.
+ *
+ * The keyboard window gets the focus when a key is clicked so keys cannot
+ * be typed straight in to another application. 'Send' hides the keyboard so
+ * the focus goes back to the application, then types the text with the
+ * RobotMouseThread. The keyboard is shown again when the typing is done.
+ *
+ * All methods must be called on the JavaFX thread.
+ */
+public class OnScreenKeyboard {
+
+    private static final String[] ROWS = {"1234567890", "qwertyuiop", "asdfghjkl'", "zxcvbnm,.?"};
+    private static final double KEY_SIZE = 56;
+    /*
+    Time (ms) for the focus to go back to the application after the keyboard
+    is hidden.
+     */
+    private static final double SEND_DELAY = 300;
+
+    private final Stage stage;
+    private final WordPredictor predictor;
+    private final RobotMouseThread robot;
+    private final Label textLabel;
+    private final Button[] predictionButtons;
+    private final String[] predictions;
+    private final Button[] letterButtons;
+    private final StringBuilder text = new StringBuilder();
+    private boolean shift = false;
+
+    /**
+     * @param predictor Predicts the words
+     * @param robot Types the text
+     * @param predictionCount The number of predictions shown
+     */
+    public OnScreenKeyboard(WordPredictor predictor, RobotMouseThread robot, int predictionCount) {
+        this.predictor = predictor;
+        this.robot = robot;
+        this.predictions = new String[predictionCount];
+        Font font = new Font(KEY_SIZE / 2.5);
+
+        textLabel = new Label();
+        textLabel.setFont(font);
+        textLabel.setMinHeight(KEY_SIZE);
+
+        HBox predictionRow = new HBox(4);
+        predictionButtons = new Button[predictionCount];
+        for (int i = 0; i < predictionCount; i++) {
+            final int index = i;
+            Button b = createButton("", font, KEY_SIZE * 10 / predictionCount);
+            b.setOnAction(e -> complete(index));
+            predictionButtons[i] = b;
+            predictionRow.getChildren().add(b);
+        }
+
+        VBox keys = new VBox(4);
+        keys.getChildren().addAll(textLabel, predictionRow);
+        int letters = 0;
+        for (String row : ROWS) {
+            letters += row.length();
+        }
+        letterButtons = new Button[letters];
+        int index = 0;
+        for (String row : ROWS) {
+            HBox line = new HBox(4);
+            for (char c : row.toCharArray()) {
+                Button b = createButton(String.valueOf(c), font, KEY_SIZE);
+                b.setOnAction(e -> key(b.getText()));
+                letterButtons[index++] = b;
+                line.getChildren().add(b);
+            }
+            keys.getChildren().add(line);
+        }
+        HBox controls = new HBox(4);
+        Button shiftButton = createButton("Shift", font, KEY_SIZE * 1.5);
+        shiftButton.setOnAction(e -> setShift(!shift));
+        Button space = createButton("Space", font, KEY_SIZE * 3);
+        space.setOnAction(e -> key(" "));
+        Button back = createButton("Back", font, KEY_SIZE * 1.5);
+        back.setOnAction(e -> backspace());
+        Button send = createButton("Send", font, KEY_SIZE * 1.5);
+        send.setOnAction(e -> send());
+        Button close = createButton("Close", font, KEY_SIZE * 1.5);
+        controls.getChildren().addAll(shiftButton, space, back, send, close);
+        keys.getChildren().add(controls);
+        keys.setPadding(new Insets(5));
+
+        stage = new Stage(StageStyle.UTILITY);
+        stage.setTitle("Keyboard");
+        stage.setAlwaysOnTop(true);
+        stage.setScene(new Scene(keys));
+        close.setOnAction(e -> stage.close());
+        update();
+    }
+
+    private static Button createButton(String label, Font font, double width) {
+        Button b = new Button(label);
+        b.setFont(font);
+        b.setMinSize(width, KEY_SIZE);
+        b.setPrefSize(width, KEY_SIZE);
+        b.setFocusTraversable(false);
+        return b;
+    }
+
+    /**
+     * Show the keyboard.
+     */
+    public void show() {
+        stage.show();
+    }
+
+    private void key(String s) {
+        text.append(s);
+        if (shift) {
+            setShift(false);
+        }
+        update();
+    }
+
+    private void backspace() {
+        if (text.length() > 0) {
+            text.setLength(text.length() - 1);
+        }
+        update();
+    }
+
+    private void setShift(boolean on) {
+        shift = on;
+        for (Button b : letterButtons) {
+            b.setText(on ? b.getText().toUpperCase() : b.getText().toLowerCase());
+        }
+    }
+
+    /**
+     * Replace the word being typed with a prediction and add a space.
+     */
+    private void complete(int index) {
+        String word = predictions[index];
+        if (word == null) {
+            return;
+        }
+        int start = wordStart();
+        /*
+        Keep the case of the letters already typed (for example a capital
+        at the start).
+         */
+        String typed = text.substring(start);
+        text.setLength(start);
+        text.append(typed).append(word.substring(Math.min(typed.length(), word.length()))).append(' ');
+        update();
+    }
+
+    private int wordStart() {
+        int start = text.length();
+        while ((start > 0) && (Character.isLetterOrDigit(text.charAt(start - 1)) || (text.charAt(start - 1) == '\''))) {
+            start--;
+        }
+        return start;
+    }
+
+    private void update() {
+        textLabel.setText(text.toString() + "_");
+        int count = predictor.predict(text.subSequence(wordStart(), text.length()), predictions);
+        for (int i = 0; i < predictionButtons.length; i++) {
+            if (i < count) {
+                predictionButtons[i].setText(predictions[i]);
+                predictionButtons[i].setDisable(false);
+            } else {
+                predictions[i] = null;
+                predictionButtons[i].setText("");
+                predictionButtons[i].setDisable(true);
+            }
+        }
+    }
+
+    /**
+     * Hide the keyboard and type the text in to the application that had
+     * the focus. When it has all been typed the words are learned so they
+     * are predicted next time.
+     */
+    private void send() {
+        if (text.length() == 0) {
+            return;
+        }
+        String s = text.toString();
+        stage.hide();
+        PauseTransition pause = new PauseTransition(Duration.millis(SEND_DELAY));
+        pause.setOnFinished(e -> robot.type(s, new TypingListener() {
+            @Override
+            public void progress(int typed, int total) {
+            }
+
+            @Override
+            public void finished(int typed, int total, boolean cancelled) {
+                Platform.runLater(() -> {
+                    /*
+                    Keep the text if it was not all typed (for example the
+                    mouse is not connected) so it can be sent again.
+                     */
+                    if (!cancelled) {
+                        for (String word : s.split("\\s+")) {
+                            predictor.learn(word);
+                        }
+                        predictor.save();
+                        text.setLength(0);
+                    }
+                    update();
+                    stage.show();
+                });
+            }
+        }));
+        pause.play();
+    }
+}
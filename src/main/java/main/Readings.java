@@ -76,10 +76,19 @@ public class Readings {
 
     /**
      * Get the average time between readings.
-     * @return the latency of the sensor readings in milli seconds
+     * @return 0 if there are no readings, otherwise the latency of the sensor readings in milli seconds
      */
     public long getLatency() {
-        return (lastReading.getTimestamp() - firstReading.getTimestamp()) / readings.size();
+        /*
+        The readings can be cleared by another thread so take a copy first.
+         */
+        Reading first = firstReading;
+        Reading last = lastReading;
+        int size = readings.size();
+        if ((first == null) || (last == null) || (size == 0)) {
+            return 0;
+        }
+        return (last.getTimestamp() - first.getTimestamp()) / size;
     }
 
     /**
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package main;
+
+import java.awt.Rectangle;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.KeyCode;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import mouse.Calibration;
+
+/**
+ * Multi-point screen calibration.
+ *
+ * A window covering the screen shows 5 or 9 targets one at a time. The user
+ * looks at each target. After a settle time the head pose is taken from the
+ * recent readings (the sampler) and the next target is shown.
+ *
+ * When all targets are done the results are passed to the 'done' consumer.
+ * Pressing ESCAPE cancels the calibration.
+ *
+ * All methods must be called on the JavaFX thread.
+ */
+public class ScreenCalibration {
+
+    /*
+    Time to look at the target before the readings are used. The sampler uses
+    the readings from the end of this time.
+     */
+    private static final long SETTLE_TIME = 2000000000L;
+    private static final double TARGET_RADIUS = 20;
+    private static final Font FONT = new Font(20);
+
+    private final Stage stage;
+    private final GraphicsContext gc;
+    private final double[] targetX;
+    private final double[] targetY;
+    private final long[] heading;
+    private final long[] vertical;
+    private final Supplier<Calibration> sampler;
+    private final Consumer<ScreenCalibration> done;
+    private final AnimationTimer timer;
+    private int target = 0;
+    private long targetStart = 0;
+
+    /**
+     * @param screen The screen.
+     * @param points 5 (centre and corners) or 9 (3 by 3 grid) targets.
+     * @param sampler Supplies the pose from the recent readings. Returns null
+     * if there are no readings.
+     * @param done Called when all the targets are done.
+     */
+    public ScreenCalibration(Rectangle screen, int points, Supplier<Calibration> sampler, Consumer<ScreenCalibration> done) {
+        this.sampler = sampler;
+        this.done = done;
+        double[] fx;
+        double[] fy;
+        if (points == 5) {
+            fx = new double[]{0.5, 0.1, 0.9, 0.1, 0.9};
+            fy = new double[]{0.5, 0.1, 0.1, 0.9, 0.9};
+        } else {
+            fx = new double[]{0.5, 0.1, 0.5, 0.9, 0.1, 0.9, 0.1, 0.5, 0.9};
+            fy = new double[]{0.5, 0.1, 0.1, 0.1, 0.5, 0.5, 0.9, 0.9, 0.9};
+        }
+        targetX = new double[fx.length];
+        targetY = new double[fy.length];
+        for (int i = 0; i < fx.length; i++) {
+            targetX[i] = screen.getX() + (fx[i] * screen.getWidth());
+            targetY[i] = screen.getY() + (fy[i] * screen.getHeight());
+        }
+        heading = new long[fx.length];
+        vertical = new long[fx.length];
+
+        Canvas canvas = new Canvas(screen.getWidth(), screen.getHeight());
+        gc = canvas.getGraphicsContext2D();
+        stage = new Stage(StageStyle.UNDECORATED);
+        stage.setX(screen.getX());
+        stage.setY(screen.getY());
+        stage.setAlwaysOnTop(true);
+        Scene scene = new Scene(new Group(canvas), screen.getWidth(), screen.getHeight());
+        scene.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ESCAPE) {
+                close();
+            }
+        });
+        stage.setScene(scene);
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                tick(now);
+            }
+        };
+    }
+
+    /**
+     * Show the window and start with the first target.
+     */
+    public void start() {
+        stage.show();
+        timer.start();
+    }
+
+    private void close() {
+        timer.stop();
+        stage.close();
+    }
+
+    private void tick(long now) {
+        if (targetStart == 0) {
+            targetStart = now;
+        }
+        double progress = Math.min(1.0, (now - targetStart) / (double) SETTLE_TIME);
+        draw(progress);
+        if (progress < 1.0) {
+            return;
+        }
+        Calibration calibration = sampler.get();
+        if (calibration == null) {
+            /*
+            No readings yet. Wait for some.
+             */
+            return;
+        }
+        heading[target] = calibration.getHeadingCentre();
+        vertical[target] = calibration.getVerticalCentre();
+        target++;
+        targetStart = now;
+        if (target >= targetX.length) {
+            close();
+            done.accept(this);
+        }
+    }
+
+    /**
+     * Draw the target. The ring closes as the settle time runs out.
+     */
+    private void draw(double progress) {
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, gc.getCanvas().getWidth(), gc.getCanvas().getHeight());
+        gc.setFill(Color.WHITE);
+        gc.setFont(FONT);
+        gc.fillText("Look at the target (" + (target + 1) + " of " + targetX.length + "). Press ESCAPE to cancel.", 20, 30);
+        double x = targetX[target] - stage.getX();
+        double y = targetY[target] - stage.getY();
+        double r = TARGET_RADIUS * (3.0 - (2.0 * progress));
+        gc.setStroke(Color.YELLOW);
+        gc.setLineWidth(3);
+        gc.strokeOval(x - r, y - r, r * 2, r * 2);
+        gc.setFill(Color.RED);
+        gc.fillOval(x - 4, y - 4, 8, 8);
+    }
+
+    /**
+     * @return The screen x of each target.
+     */
+    public double[] getTargetX() {
+        return targetX.clone();
+    }
+
+    /**
+     * @return The screen y of each target.
+     */
+    public double[] getTargetY() {
+        return targetY.clone();
+    }
+
+    /**
+     * @return The raw heading looking at each target.
+     */
+    public long[] getHeading() {
+        return heading.clone();
+    }
+
+    /**
+     * @return The raw vertical looking at each target.
+     */
+    public long[] getVertical() {
+        return vertical.clone();
+    }
+}
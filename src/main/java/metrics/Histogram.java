@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of long values (usually nano seconds). Histograms of other
+ * values (for example pixels) are created with times set to false so they are
+ * reported as they are.
+ *
+ * Values are counted in power of 2 buckets so recording a value is a few
+ * atomic adds and creates no objects. It can be used in the robot thread for
+ * every loop. The count, total, min and max are exact. Percentiles are the
+ * top of the bucket the percentile falls in so are up to 2 times too big.
+ *
+ * Values can be recorded by any thread and read by any other (the GUI).
+ */
+public class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final boolean times;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    public Histogram(String name) {
+        this(name, true);
+    }
+
+    /**
+     * @param name The name
+     * @param times true if the values are nano seconds.
+     */
+    public Histogram(String name, boolean times) {
+        this.name = name;
+        this.times = times;
+    }
+
+    /**
+     * Record a value. Negative values are counted as 0.
+     *
+     * @param value The value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long m = min.get();
+        while ((value < m) && !min.compareAndSet(m, value)) {
+            m = min.get();
+        }
+        m = max.get();
+        while ((value > m) && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Bucket 0 is 0, bucket n is 2^(n-1) up to (2^n)-1.
+     */
+    private static int bucket(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Clear all values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isTimes() {
+        return times;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return The smallest value. 0 if there are no values.
+     */
+    public long getMin() {
+        return (count.get() == 0) ? 0 : min.get();
+    }
+
+    /**
+     * @return The largest value. 0 if there are no values.
+     */
+    public long getMax() {
+        return (count.get() == 0) ? 0 : max.get();
+    }
+
+    /**
+     * @return The mean value. 0 if there are no values.
+     */
+    public double getMean() {
+        long c = count.get();
+        return (c == 0) ? 0 : total.get() / (double) c;
+    }
+
+    /**
+     * Get a percentile.
+     *
+     * @param percent 0..100
+     * @return The top of the bucket the percentile is in (not more than max).
+     * 0 if there are no values.
+     */
+    public long getPercentile(double percent) {
+        long c = count.get();
+        if (c == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(c * (percent / 100.0));
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum = sum + buckets.get(i);
+            if ((sum >= target) && (sum > 0)) {
+                long top = (i == 0) ? 0 : (i == 63) ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(top, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return A one line summary with values in micro seconds.
+     */
+    public String summaryMicros() {
+        return String.format("%s: count %d mean %.1fus p50 %.1fus p99 %.1fus max %.1fus",
+                name, getCount(), getMean() / 1000.0, getPercentile(50) / 1000.0, getPercentile(99) / 1000.0, getMax() / 1000.0);
+    }
+
+    /**
+     * @return A one line summary. In micro seconds if the values are times.
+     */
+    public String summary() {
+        return times ? summaryMicros() : toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count %d mean %.1f p50 %d p99 %d max %d",
+                name, getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+}
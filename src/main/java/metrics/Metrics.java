@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A place to find the histograms and counters used to measure the
+ * application.
+ *
+ * Get the histogram or counter once (when a class is created) and keep it.
+ * Do not look them up for every value as that is slower.
+ */
+public class Metrics {
+
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Get a histogram. It is created if it does not exist.
+     *
+     * @param name The name
+     * @return The histogram
+     */
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Get a histogram of values that are not times (for example pixels). It
+     * is created if it does not exist.
+     *
+     * @param name The name
+     * @return The histogram
+     */
+    public static Histogram valueHistogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram(n, false));
+    }
+
+    /**
+     * Get a counter. It is created if it does not exist.
+     *
+     * @param name The name
+     * @return The counter
+     */
+    public static AtomicLong counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new AtomicLong());
+    }
+
+    /**
+     * Clear all histograms and counters.
+     */
+    public static void reset() {
+        for (Histogram h : HISTOGRAMS.values()) {
+            h.reset();
+        }
+        for (AtomicLong c : COUNTERS.values()) {
+            c.set(0);
+        }
+    }
+
+    /**
+     * @return All histograms and counters, one per line, sorted by name.
+     * Histograms of times are in micro seconds.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Histogram h : new TreeMap<>(HISTOGRAMS).values()) {
+            sb.append(h.summary()).append('\n');
+        }
+        for (Map.Entry<String, AtomicLong> c : new TreeMap<>(COUNTERS).entrySet()) {
+            sb.append(c.getKey()).append(": ").append(c.getValue().get()).append('\n');
+        }
+        return sb.toString();
+    }
+}
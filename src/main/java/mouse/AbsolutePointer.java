@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import java.awt.Rectangle;
+
+/**
+ * Map the head position directly to a position on the screen.
+ *
+ * The centre of the calibration is the centre of the screen and the edges of
+ * the active zone are the edges of the screen. The position is smoothed with
+ * an exponential filter to remove sensor noise.
+ *
+ * If a PoseMapping (from a multi-point screen calibration) is set it is used
+ * instead of the straight line mapping.
+ *
+ * In precision mode the movement is scaled down around the position where
+ * precision mode started so small targets are easier to hit.
+ *
+ * The work done for each reading is fixed and no objects are created. This
+ * class is NOT thread safe. It is used by the MouseController for each
+ * reading.
+ */
+public class AbsolutePointer {
+
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final double centreX;
+    private final double centreY;
+    private final double scaleX;
+    private final double scaleY;
+    private final double smoothing;
+    private final double precisionScale;
+
+    private PoseMapping mapping = null;
+    private boolean started = false;
+    private double x;
+    private double y;
+    /*
+    The last unscaled position. Used to start precision mode.
+     */
+    private double targetX;
+    private double targetY;
+
+    private boolean precision = false;
+    private double anchorX;
+    private double anchorY;
+    private double anchorTargetX;
+    private double anchorTargetY;
+
+    /**
+     * @param screen The screen.
+     * @param headingWidth Half the width (degrees) of the heading active zone
+     * @param verticalWidth Half the width of the vertical active zone
+     * @param smoothing How quickly the pointer follows the head (0..1). 1 is
+     * no smoothing.
+     * @param precisionScale The movement scale in precision mode.
+     */
+    public AbsolutePointer(Rectangle screen, long headingWidth, long verticalWidth, double smoothing, double precisionScale) {
+        this.minX = screen.getMinX();
+        this.maxX = screen.getMaxX() - 1;
+        this.minY = screen.getMinY();
+        this.maxY = screen.getMaxY() - 1;
+        this.centreX = screen.getCenterX();
+        this.centreY = screen.getCenterY();
+        this.scaleX = (screen.getWidth() / 2.0) / Math.max(1, headingWidth);
+        this.scaleY = (screen.getHeight() / 2.0) / Math.max(1, verticalWidth);
+        this.smoothing = Math.max(0.01, Math.min(1.0, smoothing));
+        this.precisionScale = precisionScale;
+    }
+
+    /**
+     * Start again. The next position is not smoothed.
+     */
+    public void reset() {
+        started = false;
+        precision = false;
+    }
+
+    /**
+     * Work out the new position.
+     *
+     * @param headingOffset The heading offset (degrees) from the centre.
+     * Positive moves left.
+     * @param verticalOffset The vertical offset from the centre. Positive
+     * moves down.
+     */
+    public void update(long headingOffset, long verticalOffset) {
+        if (mapping == null) {
+            targetX = centreX - (headingOffset * scaleX);
+            targetY = centreY + (verticalOffset * scaleY);
+        } else {
+            mapping.map(headingOffset, verticalOffset);
+            targetX = mapping.getX();
+            targetY = mapping.getY();
+        }
+        double tx = targetX;
+        double ty = targetY;
+        if (precision && !started) {
+            anchorX = targetX;
+            anchorY = targetY;
+            anchorTargetX = targetX;
+            anchorTargetY = targetY;
+        }
+        if (precision) {
+            tx = anchorX + ((targetX - anchorTargetX) * precisionScale);
+            ty = anchorY + ((targetY - anchorTargetY) * precisionScale);
+        }
+        tx = Math.max(minX, Math.min(maxX, tx));
+        ty = Math.max(minY, Math.min(maxY, ty));
+        if (started) {
+            x = x + (smoothing * (tx - x));
+            y = y + (smoothing * (ty - y));
+        } else {
+            x = tx;
+            y = ty;
+            started = true;
+        }
+    }
+
+    /**
+     * Use a fitted mapping instead of the straight line mapping.
+     *
+     * @param mapping The mapping. null for the straight line mapping.
+     */
+    public void setMapping(PoseMapping mapping) {
+        this.mapping = mapping;
+    }
+
+    /**
+     * Start or stop precision mode.
+     *
+     * @param on true to start.
+     */
+    public void setPrecision(boolean on) {
+        if (on && !precision) {
+            anchorX = x;
+            anchorY = y;
+            anchorTargetX = targetX;
+            anchorTargetY = targetY;
+        }
+        precision = on;
+    }
+
+    public boolean isPrecision() {
+        return precision;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import serial.Reading;
+
+/**
+ * Work out the calibration from a short window of readings instead of a
+ * single (noisy) reading.
+ *
+ * The heading and vertical values are kept in sorted order as they are added
+ * so the centre is the median. One or two wild readings do not move the
+ * median. The heading is stored as the shortest angle from the first heading
+ * so readings either side of 0/360 are handled.
+ *
+ * The noise is half the spread between the 10% and 90% values. It is used to
+ * set the width of the null zone and the hysteresis.
+ */
+public class Calibration {
+
+    /*
+    The null zone half width is this many times the noise.
+     */
+    public static final double NULL_NOISE_FACTOR = 4.0;
+
+    private final long[] heading;
+    private final long[] vertical;
+    private long firstHeading;
+    private int size = 0;
+
+    /**
+     * @param capacity The most readings that can be added
+     */
+    public Calibration(int capacity) {
+        heading = new long[capacity];
+        vertical = new long[capacity];
+    }
+
+    /**
+     * Add a reading.
+     *
+     * @param r The reading
+     * @return false if full and the reading was not added.
+     */
+    public boolean add(Reading r) {
+        if (size >= heading.length) {
+            return false;
+        }
+        if (size == 0) {
+            firstHeading = r.getHeading();
+        }
+        insert(heading, size, Degrees.shortest(firstHeading, r.getHeading()));
+        insert(vertical, size, Math.round(r.getY()));
+        size++;
+        return true;
+    }
+
+    /**
+     * Insert a value in to the sorted part of the array.
+     */
+    private static void insert(long[] values, int count, long value) {
+        int i = count;
+        while ((i > 0) && (values[i - 1] > value)) {
+            values[i] = values[i - 1];
+            i--;
+        }
+        values[i] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The median heading 0..359
+     */
+    public long getHeadingCentre() {
+        return Math.floorMod(firstHeading + median(heading), Degrees.DEG);
+    }
+
+    /**
+     * @return The median vertical value
+     */
+    public long getVerticalCentre() {
+        return median(vertical);
+    }
+
+    public double getHeadingNoise() {
+        return noise(heading);
+    }
+
+    public double getVerticalNoise() {
+        return noise(vertical);
+    }
+
+    private long median(long[] values) {
+        if (size == 0) {
+            throw new IllegalStateException("No readings to calibrate from");
+        }
+        return values[size / 2];
+    }
+
+    private double noise(long[] values) {
+        if (size == 0) {
+            throw new IllegalStateException("No readings to calibrate from");
+        }
+        return (values[(size * 9) / 10] - values[size / 10]) / 2.0;
+    }
+
+    /**
+     * Calculate the calibration data (centre, null width, active width).
+     *
+     * The null width is NULL_NOISE_FACTOR times the noise but not less than
+     * minNullWidth. The active zone stays the same width outside the null
+     * zone as it is in the current data.
+     *
+     * @param centre The centre
+     * @param noise The noise
+     * @param minNullWidth The smallest null width
+     * @param current The current calibration data
+     * @return The new calibration data.
+     */
+    public static long[] zoneData(long centre, double noise, long minNullWidth, long[] current) {
+        long nullWidth = Math.max(minNullWidth, (long) Math.ceil(noise * NULL_NOISE_FACTOR));
+        long activeWidth = Math.max(1, current[2] - current[1]);
+        return new long[]{centre, nullWidth, nullWidth + activeWidth};
+    }
+
+    /**
+     * Calculate the hysteresis (null, active). Both are the noise rounded up.
+     *
+     * @param noise The noise
+     * @return The hysteresis.
+     */
+    public static long[] hysteresis(double noise) {
+        long h = (long) Math.ceil(noise);
+        return new long[]{h, h};
+    }
+}
@@ -59,6 +59,30 @@ public class Degrees {
     public long diffClockwise(Degrees s) {
         return (360-diffAntiClockwise(s));
     }
+
+    /**
+     * The shortest angle from this to s. Handles the wrap at 0/360.
+     *
+     * @param s The other angle
+     * @return -179..180. Positive if s is anti-clockwise of this.
+     */
+    public long diffShortest(Degrees s) {
+        return shortest(this.getDegrees(), s.getDegrees());
+    }
+
+    /**
+     * The shortest angle from d1 to d2. Handles the wrap at 0/360.
+     *
+     * Does not create any objects so it can be used for every reading.
+     *
+     * @param d1 The first angle (degrees)
+     * @param d2 The second angle (degrees)
+     * @return -179..180. Positive if d2 is anti-clockwise of d1.
+     */
+    public static long shortest(long d1, long d2) {
+        long d = Math.floorMod(d2 - d1, DEG);
+        return (d > (DEG / 2)) ? d - DEG : d;
+    }
     
     private long antiClockwise(long d1, long d2) {
         return (d1 + d2) % DEG;
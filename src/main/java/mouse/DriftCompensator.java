@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+/**
+ * Estimate how far the resting pose has drifted from the calibrated centre.
+ *
+ * The magnetometer heading drifts during a session so the user has to look
+ * further and further to one side to keep the pointer still. While the
+ * pointer is idle in the null zone this keeps running (exponential) averages
+ * of the heading and vertical errors from the centre and how much they vary.
+ * When the head is at rest (small variation) and the average error is more
+ * than 1 the centre is moved part of the way towards it.
+ *
+ * The centre only moves once every 'stepTime' ms and never more than the
+ * limits from the calibrated centre.
+ *
+ * The memory used is fixed and no objects are created for each reading.
+ * This class is NOT thread safe. It is updated by the MouseController for
+ * each reading.
+ */
+public class DriftCompensator {
+
+    private final double rate;
+    private final long stepTime;
+    private final long headingLimit;
+    private final long verticalLimit;
+    private final double headingStill;
+    private final double verticalStill;
+    /*
+    The number of idle readings before the averages are used.
+    */
+    private final long settle;
+
+    private long idleReadings = 0;
+    private double headingMean;
+    private double headingVariance;
+    private double verticalMean;
+    private double verticalVariance;
+    private long lastStep;
+    private long headingAdjust = 0;
+    private long verticalAdjust = 0;
+    private long steps = 0;
+
+    /**
+     * @param rate How quickly the averages follow the readings (0..1).
+     * @param stepTime The minimum time (ms) between moves of the centre.
+     * @param headingLimit The most (degrees) the heading centre can move.
+     * @param verticalLimit The most the vertical centre can move.
+     * @param headingStill The largest heading standard deviation that is
+     * 'at rest'.
+     * @param verticalStill The largest vertical standard deviation that is
+     * 'at rest'.
+     */
+    public DriftCompensator(double rate, long stepTime, long headingLimit, long verticalLimit, double headingStill, double verticalStill) {
+        this.rate = rate;
+        this.stepTime = stepTime;
+        this.headingLimit = Math.abs(headingLimit);
+        this.verticalLimit = Math.abs(verticalLimit);
+        this.headingStill = headingStill;
+        this.verticalStill = verticalStill;
+        this.settle = Math.round(1.0 / rate);
+    }
+
+    /**
+     * Add a reading.
+     *
+     * @param headingError The heading minus the (adjusted) centre.
+     * @param verticalError The vertical minus the (adjusted) centre.
+     * @param idle true if the pointer is idle in the null zone.
+     * @param time The time (ms) of the reading
+     * @return true if the adjustment has changed.
+     */
+    public boolean update(long headingError, long verticalError, boolean idle, long time) {
+        if (!idle) {
+            idleReadings = 0;
+            return false;
+        }
+        if (idleReadings == 0) {
+            headingMean = headingError;
+            headingVariance = 0;
+            verticalMean = verticalError;
+            verticalVariance = 0;
+        } else {
+            double d = headingError - headingMean;
+            headingMean = headingMean + (rate * d);
+            headingVariance = (1 - rate) * (headingVariance + (rate * d * d));
+            d = verticalError - verticalMean;
+            verticalMean = verticalMean + (rate * d);
+            verticalVariance = (1 - rate) * (verticalVariance + (rate * d * d));
+        }
+        idleReadings++;
+        if ((idleReadings < settle) || ((time - lastStep) < stepTime)) {
+            return false;
+        }
+        boolean changed = false;
+        if (headingVariance <= (headingStill * headingStill)) {
+            long step = step(headingMean, headingAdjust, headingLimit);
+            headingAdjust = headingAdjust + step;
+            headingMean = headingMean - step;
+            changed = (step != 0);
+        }
+        if (verticalVariance <= (verticalStill * verticalStill)) {
+            long step = step(verticalMean, verticalAdjust, verticalLimit);
+            verticalAdjust = verticalAdjust + step;
+            verticalMean = verticalMean - step;
+            changed = changed || (step != 0);
+        }
+        if (changed) {
+            lastStep = time;
+            steps++;
+        }
+        return changed;
+    }
+
+    /**
+     * Move half way to the mean but at least 1 and not past the limit.
+     */
+    private static long step(double mean, long adjust, long limit) {
+        if (Math.abs(mean) < 1.0) {
+            return 0;
+        }
+        long step = (long) (mean / 2);
+        if (step == 0) {
+            step = (mean > 0) ? 1 : -1;
+        }
+        return Math.max(-limit, Math.min(limit, adjust + step)) - adjust;
+    }
+
+    /**
+     * @return How far (degrees) the heading centre has been moved.
+     */
+    public long getHeadingAdjust() {
+        return headingAdjust;
+    }
+
+    /**
+     * @return How far the vertical centre has been moved.
+     */
+    public long getVerticalAdjust() {
+        return verticalAdjust;
+    }
+
+    /**
+     * @return The number of times the centre has been moved.
+     */
+    public long getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+/**
+ * What to do when a gesture is recognised.
+ *
+ * <pre>
+ * NONE         - Do nothing.
+ * CLICK        - Click the left button.
+ * DOUBLE_CLICK - Double click the left button.
+ * SCROLL_UP    - Scroll the mouse wheel up.
+ * SCROLL_DOWN  - Scroll the mouse wheel down.
+ * TOGGLE_MOUSE - Start or stop the mouse moving.
+ * TYPE         - Type some text.
+ * PRECISION    - Start or stop precision mode (ABSOLUTE pointer mode only).
+ * </pre>
+ */
+public enum GestureAction {
+    NONE, CLICK, DOUBLE_CLICK, SCROLL_UP, SCROLL_DOWN, TOGGLE_MOUSE, TYPE, PRECISION;
+}
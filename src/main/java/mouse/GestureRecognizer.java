@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import serial.Reading;
+
+/**
+ * Recognise head gestures from the sensor readings.
+ *
+ * <pre>
+ * NOD        - The pitch (Y) swings up and down.
+ * SHAKE      - The heading swings left and right.
+ * TILT_LEFT  - The roll (X) is held to the left for the tilt time.
+ * TILT_RIGHT - The roll (X) is held to the right for the tilt time.
+ * </pre>
+ *
+ * Each reading is added to a fixed size window of the last N values. A swing
+ * is counted each time a value crosses from one side of the window average to
+ * the other by more than the threshold. A NOD or SHAKE is recognised when the
+ * number of swings in the window reaches the required count. After a NOD or
+ * SHAKE another is not recognised until the window has passed so one long
+ * gesture is not recognised many times.
+ *
+ * The average and the swing count are kept up to date as each value is added
+ * and removed from the window so the cost of each reading does not depend on
+ * the size of the window. The window is held in arrays created once so no
+ * objects are created for each reading.
+ */
+public class GestureRecognizer {
+
+    public static enum Gesture {
+        NOD, SHAKE, TILT_LEFT, TILT_RIGHT
+    }
+
+    /*
+    How quickly the roll baseline follows the roll when not tilted.
+     */
+    private static final double ROLL_BASELINE_RATE = 0.01;
+
+    private final SwingCounter pitchSwings;
+    private final SwingCounter headingSwings;
+    private final double tiltThreshold;
+    private final long tiltTime;
+    private final int window;
+    private int holdOff = 0;
+
+    private boolean started = false;
+    private long lastHeading;
+    private double heading;
+
+    private double rollBaseline;
+    private int tiltDirection = 0;
+    private long tiltStart;
+    private boolean tiltDone = false;
+
+    /**
+     * @param window The number of readings in the window.
+     * @param swings The number of swings for a NOD or SHAKE.
+     * @param nodThreshold How far (pitch) from the average is a swing.
+     * @param shakeThreshold How far (degrees) from the average is a swing.
+     * @param tiltThreshold How far (roll) from level is a tilt.
+     * @param tiltTime How long (ms) a tilt must be held.
+     */
+    public GestureRecognizer(int window, int swings, double nodThreshold, double shakeThreshold, double tiltThreshold, long tiltTime) {
+        this.pitchSwings = new SwingCounter(window, swings, nodThreshold);
+        this.headingSwings = new SwingCounter(window, swings, shakeThreshold);
+        this.tiltThreshold = tiltThreshold;
+        this.tiltTime = tiltTime;
+        this.window = window;
+    }
+
+    /**
+     * Add a reading.
+     *
+     * @param r The reading
+     * @return The gesture recognised or null if none.
+     */
+    public Gesture update(Reading r) {
+        if (!started) {
+            started = true;
+            lastHeading = r.getHeading();
+            heading = lastHeading;
+            rollBaseline = r.getX();
+        }
+        /*
+        The heading wraps at 0/360 so add up the changes to get a value that
+        does not jump.
+         */
+        heading = heading + Degrees.shortest(lastHeading, r.getHeading());
+        lastHeading = r.getHeading();
+
+        boolean nod = pitchSwings.add(r.getY());
+        boolean shake = headingSwings.add(heading);
+        Gesture tilt = updateTilt(r.getX(), r.getTimestamp());
+        if (holdOff > 0) {
+            holdOff--;
+            if (nod || shake) {
+                pitchSwings.reset();
+                headingSwings.reset();
+            }
+            return tilt;
+        }
+        if (nod || shake) {
+            /*
+            If both are swinging we cannot tell which it is so ignore it.
+             */
+            Gesture g = null;
+            if (!shake) {
+                g = Gesture.NOD;
+            } else if (!nod) {
+                g = Gesture.SHAKE;
+            }
+            pitchSwings.reset();
+            headingSwings.reset();
+            holdOff = window;
+            return g;
+        }
+        return tilt;
+    }
+
+    /**
+     * A tilt is recognised once when the roll has been past the threshold for
+     * the tilt time. The roll must come back before another tilt.
+     *
+     * The baseline (level) follows the roll slowly when it is not tilted.
+     */
+    private Gesture updateTilt(double roll, long time) {
+        double diff = roll - rollBaseline;
+        int direction = 0;
+        if (diff > tiltThreshold) {
+            direction = 1;
+        } else if (diff < -tiltThreshold) {
+            direction = -1;
+        }
+        if (direction == 0) {
+            rollBaseline = rollBaseline + ((roll - rollBaseline) * ROLL_BASELINE_RATE);
+            tiltDirection = 0;
+            return null;
+        }
+        if (direction != tiltDirection) {
+            tiltDirection = direction;
+            tiltStart = time;
+            tiltDone = false;
+            return null;
+        }
+        if ((!tiltDone) && ((time - tiltStart) >= tiltTime)) {
+            tiltDone = true;
+            return (direction > 0) ? Gesture.TILT_RIGHT : Gesture.TILT_LEFT;
+        }
+        return null;
+    }
+
+    /**
+     * Count the swings across the average of a window of values.
+     */
+    static class SwingCounter {
+
+        private final double[] values;
+        private final boolean[] swings;
+        private final int required;
+        private final double threshold;
+        private int pos = 0;
+        private long count = 0;
+        private double sum = 0;
+        private int swingCount = 0;
+        private int side = 0;
+        private long resetAt = 0;
+
+        /**
+         * @param window The number of values in the window
+         * @param required The number of swings required
+         * @param threshold How far from the average to count as a side
+         */
+        SwingCounter(int window, int required, double threshold) {
+            this.values = new double[window];
+            this.swings = new boolean[window];
+            this.required = required;
+            this.threshold = threshold;
+        }
+
+        /**
+         * Add a value, removing the oldest if the window is full.
+         *
+         * @param v The value
+         * @return true if the number of swings in the window is enough
+         */
+        boolean add(double v) {
+            if (count >= values.length) {
+                sum = sum - values[pos];
+                /*
+                Swings before the last reset have already been taken off.
+                 */
+                if (swings[pos] && ((count - values.length) >= resetAt)) {
+                    swingCount--;
+                }
+            }
+            values[pos] = v;
+            sum = sum + v;
+            double diff = v - (sum / Math.min(count + 1, values.length));
+            int s = side;
+            if (diff > threshold) {
+                s = 1;
+            } else if (diff < -threshold) {
+                s = -1;
+            }
+            swings[pos] = (side != 0) && (s != side);
+            if (swings[pos]) {
+                swingCount++;
+            }
+            side = s;
+            pos = (pos + 1) % values.length;
+            count++;
+            return swingCount >= required;
+        }
+
+        int getSwingCount() {
+            return swingCount;
+        }
+
+        /**
+         * Forget the swings in the window. The average is kept.
+         */
+        void reset() {
+            swingCount = 0;
+            side = 0;
+            resetAt = count;
+        }
+    }
+}
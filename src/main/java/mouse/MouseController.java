@@ -17,6 +17,9 @@
  */
 package mouse;
 
+import java.awt.Rectangle;
+import java.util.Arrays;
+import robot.MouseButton;
 import robot.RobotMouseThreadInterface;
 import serial.Reading;
 import serial.SerialPortListener;
@@ -32,8 +35,6 @@ public class MouseController implements SerialPortListener {
     private final double headingSpeed;
     private final long maxHeadingWidth1;
     private final long minHeadingWidth1;
-    private final long maxHeadingWidth2;
-    private final long minHeadingWidth2;
     private long mouseHeadingOffset;
 
     private final long verticalMin;
@@ -44,12 +45,69 @@ public class MouseController implements SerialPortListener {
     private final double verticalSpeed;
     private final long maxVerticalWidth1;
     private final long minVerticalWidth1;
-    private final long maxVerticalWidth2;
-    private final long minVerticalWidth2;
     private long mouseVerticalOffset;
 
+    private final long headingNullHysteresis;
+    private final long headingActiveHysteresis;
+    private final long verticalNullHysteresis;
+    private final long verticalActiveHysteresis;
+
     private MouseState mouseHeadingState;
     private MouseState mouseVerticalState;
+    /*
+    The last speed sent to the robotMouseThread. NaN means nothing sent yet.
+    Used so the same speed is not sent again and again.
+     */
+    private double lastSpeedX = Double.NaN;
+    private double lastSpeedY = Double.NaN;
+
+    /*
+    The buttons on the sensor and receiver in the order B1S, B2S, B1R, B2R
+    and the mouse button each one presses (null if not used).
+     */
+    private final SensorButton[] sensorButtons = new SensorButton[4];
+    private final MouseButton[] buttonMapping = {MouseButton.RIGHT, MouseButton.LEFT, null, null};
+
+    private long suppressedSpeedCommands = 0;
+    private long suppressedButtonCommands = 0;
+    /*
+    Optional. If null gestures are not recognised.
+     */
+    private GestureRecognizer gestureRecognizer = null;
+    private final GestureAction[] gestureActions = new GestureAction[GestureRecognizer.Gesture.values().length];
+    private final String[] gestureText = new String[GestureRecognizer.Gesture.values().length];
+    private static final int GESTURE_SCROLL_NOTCHES = 3;
+    /*
+    Optional. If null the centre is not adjusted for drift.
+     */
+    private DriftCompensator driftCompensator = null;
+    /*
+    How far the centre has been moved for drift. The heading adjustment is in
+    the high 32 bits and the vertical adjustment in the low 32 bits so both are
+    read and written together. The GUI reads this from another thread.
+     */
+    private volatile long centreAdjustment = 0;
+    /*
+    The pointer mode can be changed by the GUI at any time. activeMode is the
+    mode used for the last reading so a change can be seen in reading().
+     */
+    private volatile PointerMode pointerMode = PointerMode.JOYSTICK;
+    private PointerMode activeMode = PointerMode.JOYSTICK;
+    /*
+    Optional. If null ABSOLUTE mode does not move the mouse.
+     */
+    private AbsolutePointer absolutePointer = null;
+    private long lastAbsX = Long.MIN_VALUE;
+    private long lastAbsY = Long.MIN_VALUE;
+    /*
+    Optional. If null RELATIVE mode does not move the mouse.
+     */
+    private RelativePointer relativePointer = null;
+    /*
+    Optional. If null the roll does not scroll.
+     */
+    private RollScroller rollScroller = null;
+    private double lastScrollRate = Double.NaN;
 
     /**
      * Create a mouse controller.
@@ -68,6 +126,34 @@ public class MouseController implements SerialPortListener {
      * @param verticalSpeed The speed of the Mouse Top to Bottom
      */
     public MouseController(RobotMouseThreadInterface robotMouseThread, long[] headingData, double headingSpeed, long[] verticalData, double verticalSpeed) {
+        this(robotMouseThread, headingData, new long[]{0, 0}, headingSpeed, verticalData, new long[]{0, 0}, verticalSpeed, 0);
+    }
+
+    /**
+     * Create a mouse controller with hysteresis and button debounce.
+     *
+     * Hysteresis stops the mouse flapping between zones when a reading is
+     * near a boundary. The boundary of the zone the mouse is in is moved out
+     * by the hysteresis value and the boundary of the other zones is moved in.
+     * So a reading must move past the boundary by the hysteresis value before
+     * the zone changes.
+     *
+     * @param robotMouseThread A robot mouse thread to move the mouse and press
+     * buttons.
+     * @param headingData A list of values that define the heading boundaries
+     * (lanes).
+     * @param headingHysteresis The hysteresis for the null and active heading
+     * boundaries.
+     * @param headingSpeed The speed of the mouse Left to Right
+     * @param verticalData A list of values that define the up/down boundaries
+     * (lanes).
+     * @param verticalHysteresis The hysteresis for the null and active
+     * vertical boundaries.
+     * @param verticalSpeed The speed of the Mouse Top to Bottom
+     * @param buttonDebounce The time (ms) a sensor button must be stable for
+     * before it can change again.
+     */
+    public MouseController(RobotMouseThreadInterface robotMouseThread, long[] headingData, long[] headingHysteresis, double headingSpeed, long[] verticalData, long[] verticalHysteresis, double verticalSpeed, long buttonDebounce) {
         this.mouseHeadingState = MouseState.DISCONNECTED;
         this.mouseVerticalState = MouseState.DISCONNECTED;
         /*
@@ -77,8 +163,6 @@ public class MouseController implements SerialPortListener {
         this.headingOffset = new Degrees(headingData[0]);
         this.minHeadingWidth1 = headingData[1];
         this.maxHeadingWidth1 = headingData[2];
-        this.minHeadingWidth2 = minHeadingWidth1 * 2;
-        this.maxHeadingWidth2 = maxHeadingWidth1 * 2;
         this.headingMin = headingOffset.sub(minHeadingWidth1);
         this.headingMax = headingOffset.add(minHeadingWidth1);
         this.headingLimitMin = headingOffset.sub(maxHeadingWidth1);
@@ -90,12 +174,22 @@ public class MouseController implements SerialPortListener {
         this.verticalOffset = verticalData[0];
         this.minVerticalWidth1 = verticalData[1];
         this.maxVerticalWidth1 = verticalData[2];
-        this.minVerticalWidth2 = minVerticalWidth1 * 2;
-        this.maxVerticalWidth2 = maxVerticalWidth1 * 2;
         this.verticalMin = verticalOffset - minVerticalWidth1;
         this.verticalMax = verticalOffset + minVerticalWidth1;
         this.verticalLimitMin = verticalOffset - maxVerticalWidth1;
         this.verticalLimitMax = verticalOffset + maxVerticalWidth1;
+        /*
+        Hysteresis cannot be wider than the zone it applies to.
+         */
+        this.headingNullHysteresis = Math.min(Math.abs(headingHysteresis[0]), minHeadingWidth1);
+        this.headingActiveHysteresis = Math.min(Math.abs(headingHysteresis[1]), maxHeadingWidth1);
+        this.verticalNullHysteresis = Math.min(Math.abs(verticalHysteresis[0]), minVerticalWidth1);
+        this.verticalActiveHysteresis = Math.min(Math.abs(verticalHysteresis[1]), maxVerticalWidth1);
+
+        for (int i = 0; i < sensorButtons.length; i++) {
+            this.sensorButtons[i] = new SensorButton(buttonDebounce);
+        }
+        Arrays.fill(gestureActions, GestureAction.NONE);
 
         this.robotMouseThread = robotMouseThread;
 
@@ -112,6 +206,13 @@ public class MouseController implements SerialPortListener {
         mouseVerticalState = MouseState.NULL_ZONE;
         mouseHeadingOffset = 0;
         mouseVerticalOffset = 0;
+        lastSpeedX = Double.NaN;
+        lastSpeedY = Double.NaN;
+        resetAbsolute();
+        resetScroll();
+        for (SensorButton button : sensorButtons) {
+            button.reset();
+        }
         robotMouseThread.connect();
     }
 
@@ -139,54 +240,454 @@ public class MouseController implements SerialPortListener {
     @Override
     public void reading(Reading r) {
         if (r != null) {
-            processHeadingData(r.getHeading());
-            processVerticalData(Math.round(r.getY()));
+            if (robotMouseThread.dataReceived()) {
+                resend();
+            }
+            if (pointerMode != activeMode) {
+                changeMode(pointerMode);
+            }
+            long adjustment = centreAdjustment;
+            processHeadingData(r.getHeading(), headingOffset.getDegrees() + headingAdjustment(adjustment));
+            processVerticalData(Math.round(r.getY()), verticalOffset + verticalAdjustment(adjustment));
+            if ((activeMode == PointerMode.ABSOLUTE) && (absolutePointer != null)) {
+                processAbsolute();
+            } else if ((activeMode == PointerMode.RELATIVE) && (relativePointer != null)) {
+                processRelative(r.getHeading(), Math.round(r.getY()));
+            }
+            if (rollScroller != null) {
+                processScroll(r.getX());
+            }
             processSensorButtons(r);
+            if (driftCompensator != null) {
+                processDrift(r.getTimestamp());
+            }
+            /*
+            Gestures are done last so they do not delay the mouse movement.
+             */
+            if (gestureRecognizer != null) {
+                GestureRecognizer.Gesture gesture = gestureRecognizer.update(r);
+                if (gesture != null) {
+                    processGesture(gesture);
+                }
+            }
         }
     }
 
     /**
-     * If connected press or release the left or right buttons
+     * The readings stopped and the watchdog in the robotMouseThread stopped
+     * the mouse (and may have released the buttons). Forget what was sent so
+     * the speeds and buttons from this reading are sent again.
+     */
+    private void resend() {
+        lastSpeedX = Double.NaN;
+        lastSpeedY = Double.NaN;
+        lastScrollRate = Double.NaN;
+        lastAbsX = Long.MIN_VALUE;
+        lastAbsY = Long.MIN_VALUE;
+        for (SensorButton button : sensorButtons) {
+            button.reset();
+        }
+    }
+
+    /**
+     * Change the pointer mode. Called from reading() so it is in the same
+     * thread as the readings.
      *
-     * @param r the reading with the button values
+     * Leaving JOYSTICK mode stops the mouse. Starting ABSOLUTE mode starts
+     * with no smoothing. Starting RELATIVE mode starts from the next reading.
+     *
+     * @param mode The new mode.
      */
-    private void processSensorButtons(Reading r) {
+    private void changeMode(PointerMode mode) {
+        if ((activeMode == PointerMode.JOYSTICK) && robotMouseThread.isConnected()) {
+            sendSpeedX(0);
+            sendSpeedY(0);
+        }
+        resetAbsolute();
+        activeMode = mode;
+    }
+
+    private void resetAbsolute() {
+        if (absolutePointer != null) {
+            absolutePointer.reset();
+        }
+        lastAbsX = Long.MIN_VALUE;
+        lastAbsY = Long.MIN_VALUE;
+        if (relativePointer != null) {
+            relativePointer.reset();
+        }
+    }
+
+    /**
+     * Move the mouse by the change in heading and vertical.
+     *
+     * The raw values are used so the centre (and drift) does not matter.
+     *
+     * @param heading The raw heading
+     * @param y The raw vertical
+     */
+    private void processRelative(long heading, long y) {
+        if (relativePointer.update(heading, y)) {
+            if (robotMouseThread.isConnected()) {
+                robotMouseThread.moveMouseRel(relativePointer.getDx(), relativePointer.getDy());
+            }
+        } else {
+            suppressedSpeedCommands++;
+        }
+    }
+
+    /**
+     * Scroll at the rate given by the roll. The rate is only sent if it has
+     * changed.
+     *
+     * @param roll The roll
+     */
+    private void processScroll(double roll) {
+        rollScroller.update(roll);
         if (robotMouseThread.isConnected()) {
-            /*
-            B2S is Button 2 on the Sensor.
-             */
-            if (r.isB2S()) {
-                robotMouseThread.leftButtonPress();
+            double rate = rollScroller.getScrollRate();
+            if (rate == lastScrollRate) {
+                suppressedSpeedCommands++;
             } else {
-                robotMouseThread.leftButtonRelease();
+                lastScrollRate = rate;
+                robotMouseThread.setScrollRate(rate);
             }
-            /*
-            B1S is Button 1 on the Sensor.
-             */
-            if (r.isB1S()) {
-                robotMouseThread.rightButtonPress();
+        }
+    }
+
+    private void resetScroll() {
+        if (rollScroller != null) {
+            rollScroller.reset();
+        }
+        lastScrollRate = Double.NaN;
+    }
+
+    /**
+     * Scroll with the roll (tilting the head to the side) in all pointer
+     * modes.
+     *
+     * @param rollScroller The scroller. null to stop scrolling with the roll.
+     */
+    public void setRollScroller(RollScroller rollScroller) {
+        this.rollScroller = rollScroller;
+    }
+
+    /**
+     * Set up RELATIVE mode.
+     *
+     * @param relativePointer The pointer. null and RELATIVE mode does not move
+     * the mouse.
+     */
+    public void setRelativePointer(RelativePointer relativePointer) {
+        this.relativePointer = relativePointer;
+    }
+
+    /**
+     * Move the mouse to the position mapped from the heading and vertical
+     * offsets. The move is only sent if the pixel position has changed.
+     */
+    private void processAbsolute() {
+        absolutePointer.update(mouseHeadingOffset, mouseVerticalOffset);
+        if (robotMouseThread.isConnected()) {
+            long x = Math.round(absolutePointer.getX());
+            long y = Math.round(absolutePointer.getY());
+            if ((x == lastAbsX) && (y == lastAbsY)) {
+                suppressedSpeedCommands++;
             } else {
-                robotMouseThread.rightButtonRelease();
+                lastAbsX = x;
+                lastAbsY = y;
+                robotMouseThread.moveMouseAbs(x, y);
             }
         }
     }
 
+    /**
+     * Set the pointer mode. Can be called from any thread at any time. The
+     * change happens on the next reading.
+     *
+     * @param pointerMode The mode.
+     */
+    public void setPointerMode(PointerMode pointerMode) {
+        this.pointerMode = pointerMode;
+    }
+
+    public PointerMode getPointerMode() {
+        return pointerMode;
+    }
+
+    /**
+     * Set up ABSOLUTE mode for a screen.
+     *
+     * The active zone (heading and vertical) is mapped to the whole screen.
+     *
+     * @param screen The screen
+     * @param smoothing How quickly the pointer follows the head (0..1).
+     * @param precisionScale The movement scale in precision mode.
+     */
+    public void setScreen(Rectangle screen, double smoothing, double precisionScale) {
+        this.absolutePointer = new AbsolutePointer(screen, maxHeadingWidth1, maxVerticalWidth1, smoothing, precisionScale);
+    }
+
+    /**
+     * Use a mapping from a multi-point screen calibration in ABSOLUTE mode.
+     * Call after setScreen().
+     *
+     * @param mapping The mapping. null for the straight line mapping.
+     */
+    public void setPoseMapping(PoseMapping mapping) {
+        if (absolutePointer != null) {
+            absolutePointer.setMapping(mapping);
+        }
+    }
+
+    /**
+     * The heading offset used for the zones and pointer modes. This is the
+     * centre (adjusted for drift) minus the heading.
+     *
+     * @param heading A raw heading
+     * @return The offset
+     */
+    public long toHeadingOffset(long heading) {
+        return Degrees.shortest(heading, headingOffset.getDegrees() + getHeadingAdjustment());
+    }
+
+    /**
+     * The vertical offset used for the zones and pointer modes. This is the
+     * vertical minus the centre (adjusted for drift).
+     *
+     * @param y A raw vertical value
+     * @return The offset
+     */
+    public long toVerticalOffset(long y) {
+        return y - (verticalOffset + getVerticalAdjustment());
+    }
+
+    /**
+     * Start or stop precision mode in ABSOLUTE mode.
+     *
+     * @param on true to start
+     */
+    public void setPrecision(boolean on) {
+        if (absolutePointer != null) {
+            absolutePointer.setPrecision(on);
+        }
+    }
+
+    /**
+     * Pass the offsets to the drift compensator and publish any change to the
+     * centre.
+     *
+     * The pointer is idle when it is connected in JOYSTICK mode and both
+     * heading and vertical are in the null zone. In the other modes the head
+     * is aiming the pointer in the null zone so it is not at rest.
+     *
+     * @param timestamp The time of the reading
+     */
+    private void processDrift(long timestamp) {
+        boolean idle = isJoystick()
+                && (mouseHeadingState == MouseState.NULL_ZONE)
+                && (mouseVerticalState == MouseState.NULL_ZONE);
+        /*
+        mouseHeadingOffset is the centre minus the heading so negate it.
+         */
+        if (driftCompensator.update(-mouseHeadingOffset, mouseVerticalOffset, idle, timestamp)) {
+            setCentreAdjustment(driftCompensator.getHeadingAdjust(), driftCompensator.getVerticalAdjust());
+        }
+    }
+
+    /**
+     * Move the centre (offset) of the heading and vertical zones.
+     *
+     * The centre cannot be moved further than the width of the null zone so
+     * the original rest position is always in or next to the null zone.
+     *
+     * @param heading Degrees to move the heading centre
+     * @param vertical Amount to move the vertical centre
+     */
+    public void setCentreAdjustment(long heading, long vertical) {
+        heading = Math.max(-minHeadingWidth1, Math.min(minHeadingWidth1, heading));
+        vertical = Math.max(-minVerticalWidth1, Math.min(minVerticalWidth1, vertical));
+        centreAdjustment = (heading << 32) | (vertical & 0xFFFFFFFFL);
+    }
+
+    private static long headingAdjustment(long adjustment) {
+        return adjustment >> 32;
+    }
+
+    private static long verticalAdjustment(long adjustment) {
+        return (int) adjustment;
+    }
+
+    /**
+     * Adjust the centre for drift using this compensator.
+     *
+     * @param driftCompensator The compensator. null to stop adjusting.
+     */
+    public void setDriftCompensator(DriftCompensator driftCompensator) {
+        this.driftCompensator = driftCompensator;
+    }
+
+    /**
+     * Do the action for a gesture.
+     *
+     * TOGGLE_MOUSE works when the mouse is not connected so the mouse can be
+     * started with a gesture. Other actions only happen when connected.
+     *
+     * @param gesture The gesture that was recognised.
+     */
+    private void processGesture(GestureRecognizer.Gesture gesture) {
+        GestureAction action = gestureActions[gesture.ordinal()];
+        if (action == GestureAction.TOGGLE_MOUSE) {
+            if (robotMouseThread.isConnected()) {
+                disConnectTheMouse();
+            } else {
+                connectTheMouse();
+            }
+            return;
+        }
+        if (!robotMouseThread.isConnected()) {
+            return;
+        }
+        switch (action) {
+            case CLICK:
+                robotMouseThread.leftButtonClick(1);
+                break;
+            case DOUBLE_CLICK:
+                robotMouseThread.leftButtonClick(2);
+                break;
+            case SCROLL_UP:
+                robotMouseThread.scroll(-GESTURE_SCROLL_NOTCHES);
+                break;
+            case SCROLL_DOWN:
+                robotMouseThread.scroll(GESTURE_SCROLL_NOTCHES);
+                break;
+            case TYPE:
+                if (gestureText[gesture.ordinal()] != null) {
+                    robotMouseThread.type(gestureText[gesture.ordinal()]);
+                }
+                break;
+            case PRECISION:
+                if (absolutePointer != null) {
+                    absolutePointer.setPrecision(!absolutePointer.isPrecision());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Recognise gestures using this recogniser.
+     *
+     * @param gestureRecognizer The recogniser. null to stop recognising
+     * gestures.
+     */
+    public void setGestureRecognizer(GestureRecognizer gestureRecognizer) {
+        this.gestureRecognizer = gestureRecognizer;
+    }
+
+    /**
+     * Set what happens when a gesture is recognised.
+     *
+     * @param gesture The gesture
+     * @param action The action
+     * @param text The text to type for a TYPE action. Otherwise ignored.
+     */
+    public void setGestureAction(GestureRecognizer.Gesture gesture, GestureAction action, String text) {
+        gestureActions[gesture.ordinal()] = action;
+        gestureText[gesture.ordinal()] = text;
+    }
+
+    /**
+     * Set the mouse button pressed by each button on the sensor and
+     * receiver. null for a button that is not used. Two buttons can press the
+     * same mouse button. It is down while either is down.
+     *
+     * The default is B1S is RIGHT and B2S is LEFT.
+     *
+     * @param b1S Button 1 on the Sensor
+     * @param b2S Button 2 on the Sensor
+     * @param b1R Button 1 on the Receiver
+     * @param b2R Button 2 on the Receiver
+     */
+    public void setButtonMapping(MouseButton b1S, MouseButton b2S, MouseButton b1R, MouseButton b2R) {
+        buttonMapping[0] = b1S;
+        buttonMapping[1] = b2S;
+        buttonMapping[2] = b1R;
+        buttonMapping[3] = b2R;
+    }
+
+    /**
+     * If connected press or release the mapped mouse buttons
+     *
+     * The buttons are only pressed or released when the (debounced) state
+     * changes.
+     *
+     * @param r the reading with the button values
+     */
+    private void processSensorButtons(Reading r) {
+        if (robotMouseThread.isConnected()) {
+            int down = 0;
+            int changed = 0;
+            for (int i = 0; i < sensorButtons.length; i++) {
+                MouseButton button = buttonMapping[i];
+                if (button != null) {
+                    if (sensorButtons[i].update(isPressed(r, i), r.getTimestamp())) {
+                        changed |= button.getBit();
+                    } else {
+                        suppressedButtonCommands++;
+                    }
+                    if (sensorButtons[i].isPressed()) {
+                        down |= button.getBit();
+                    }
+                }
+            }
+            if (changed != 0) {
+                for (MouseButton button : MouseButton.buttons()) {
+                    if ((changed & button.getBit()) != 0) {
+                        if ((down & button.getBit()) != 0) {
+                            robotMouseThread.buttonPress(button);
+                        } else {
+                            robotMouseThread.buttonRelease(button);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param r The reading
+     * @param index The button (B1S, B2S, B1R, B2R)
+     * @return true if the button is pressed in the reading.
+     */
+    private static boolean isPressed(Reading r, int index) {
+        switch (index) {
+            case 0:
+                return r.isB1S();
+            case 1:
+                return r.isB2S();
+            case 2:
+                return r.isB1R();
+            default:
+                return r.isB2R();
+        }
+    }
+
     /**
      * Calculate the offset from the null boundary as the speed of the mouse.
      *
      * @param y the raw pitch value (up/down) from the sensor.
+     * @param centre the centre adjusted for drift.
      */
-    private void processVerticalData(long y) {
-        long diffLimitMin = y - verticalLimitMin;
-        long diffMin = y - verticalMin;
-        if ((diffLimitMin > 0) && (diffLimitMin < maxVerticalWidth2)) {
-            if ((diffMin > 0) && (diffMin < minVerticalWidth2)) {
-                inNullVerticalZone(diffMin - minVerticalWidth1);
+    private void processVerticalData(long y, long centre) {
+        long offset = Math.abs(y - centre);
+        if (offset < activeEdge(mouseVerticalState, maxVerticalWidth1, verticalActiveHysteresis)) {
+            if (offset < nullEdge(mouseVerticalState, minVerticalWidth1, verticalNullHysteresis)) {
+                inNullVerticalZone(y - centre);
             } else {
-                inActiveVerticalZone(diffLimitMin - maxVerticalWidth1);
+                inActiveVerticalZone(y - centre);
             }
         } else {
-            outsideVerticalZone(diffLimitMin - maxVerticalWidth1);
+            outsideVerticalZone(y - centre);
         }
     }
 
@@ -196,19 +697,93 @@ public class MouseController implements SerialPortListener {
      * Uses the Degree class to calculate the offset from the boundary.
      *
      * @param heading the raw heading value (degrees) from the sensor.
+     * @param centre the centre (degrees) adjusted for drift.
      */
-    private void processHeadingData(long heading) {
-        Degrees d = new Degrees(heading);
-        long diffLimitMax = d.diffAntiClockwise(headingLimitMax);
-        long diffMax = d.diffAntiClockwise(headingMax);
-        if (diffLimitMax <= maxHeadingWidth2) {
-            if (diffMax <= minHeadingWidth2) {
-                inNullHeadingZone(diffMax - minHeadingWidth1);
+    private void processHeadingData(long heading, long centre) {
+        long diff = Degrees.shortest(heading, centre);
+        long offset = Math.abs(diff);
+        if (offset <= activeEdge(mouseHeadingState, maxHeadingWidth1, headingActiveHysteresis)) {
+            if (offset <= nullEdge(mouseHeadingState, minHeadingWidth1, headingNullHysteresis)) {
+                inNullHeadingZone(diff);
             } else {
-                inActiveHeadingZone(diffLimitMax - maxHeadingWidth1);
+                inActiveHeadingZone(diff);
             }
         } else {
-            outsideHeadingZone(diffLimitMax - maxHeadingWidth1);
+            outsideHeadingZone(diff);
+        }
+    }
+
+    /**
+     * The edge of the null zone adjusted for hysteresis.
+     *
+     * If we are in the null zone it is wider so we stay in it. If we are
+     * outside it it is narrower so we stay out of it.
+     *
+     * @param state The current state
+     * @param width Half the width of the null zone
+     * @param hysteresis The hysteresis value
+     * @return The adjusted half width of the null zone
+     */
+    private static long nullEdge(MouseState state, long width, long hysteresis) {
+        switch (state) {
+            case NULL_ZONE:
+                return width + hysteresis;
+            case ACTIVE:
+            case INACTIVE:
+                return width - hysteresis;
+            default:
+                return width;
+        }
+    }
+
+    /**
+     * The edge of the active zone adjusted for hysteresis.
+     *
+     * If we are inside it (active or null zone) it is wider so we stay in it.
+     * If we are outside it it is narrower so we stay out of it.
+     *
+     * @param state The current state
+     * @param width Half the width of the active zone
+     * @param hysteresis The hysteresis value
+     * @return The adjusted half width of the active zone
+     */
+    private static long activeEdge(MouseState state, long width, long hysteresis) {
+        switch (state) {
+            case NULL_ZONE:
+            case ACTIVE:
+                return width + hysteresis;
+            case INACTIVE:
+                return width - hysteresis;
+            default:
+                return width;
+        }
+    }
+
+    /**
+     * Send the X speed to the robotMouseThread if it has changed.
+     *
+     * @param x The speed
+     */
+    private void sendSpeedX(double x) {
+        if (x == lastSpeedX) {
+            suppressedSpeedCommands++;
+        } else {
+            lastSpeedX = x;
+            robotMouseThread.setSpeedX(x);
+        }
+    }
+
+    /**
+     * Send the Y speed to the robotMouseThread if it has changed.
+     *
+     * @param y The speed
+     */
+    private void sendSpeedY(double y) {
+        if (y == lastSpeedY) {
+            suppressedSpeedCommands++;
+        } else {
+            lastSpeedY = y;
+            robotMouseThread.setSpeedY(y);
         }
     }
 
@@ -293,7 +868,7 @@ public class MouseController implements SerialPortListener {
      * @return true if the left button is pressed.
      */
     public boolean isLeftButtonPressed() {
-        return robotMouseThread.isLeftButtonPressed();
+        return robotMouseThread.isButtonPressed(MouseButton.LEFT);
     }
 
     /**
@@ -304,39 +879,56 @@ public class MouseController implements SerialPortListener {
      * @return true if the right button is pressed.
      */
     public boolean isRightButtonPressed() {
-        return robotMouseThread.isRightButtonPressed();
+        return robotMouseThread.isButtonPressed(MouseButton.RIGHT);
     }
 
+    /*
+    The boundaries below include any adjustment for drift.
+     */
     public long getVerticalMin() {
-        return verticalMin;
+        return verticalMin + getVerticalAdjustment();
     }
 
     public long getVerticalMax() {
-        return verticalMax;
+        return verticalMax + getVerticalAdjustment();
     }
 
     public long getVerticalLimitMin() {
-        return verticalLimitMin;
+        return verticalLimitMin + getVerticalAdjustment();
     }
 
     public long getVerticalLimitMax() {
-        return verticalLimitMax;
+        return verticalLimitMax + getVerticalAdjustment();
     }
 
     public long getHeadingMin() {
-        return headingMin.getDegrees();
+        return Math.floorMod(headingMin.getDegrees() + getHeadingAdjustment(), Degrees.DEG);
     }
 
     public long getHeadingMax() {
-        return headingMax.getDegrees();
+        return Math.floorMod(headingMax.getDegrees() + getHeadingAdjustment(), Degrees.DEG);
     }
 
     public long getHeadingLimitMin() {
-        return headingLimitMin.getDegrees();
+        return Math.floorMod(headingLimitMin.getDegrees() + getHeadingAdjustment(), Degrees.DEG);
     }
 
     public long getHeadingLimitMax() {
-        return headingLimitMax.getDegrees();
+        return Math.floorMod(headingLimitMax.getDegrees() + getHeadingAdjustment(), Degrees.DEG);
+    }
+
+    /**
+     * @return Degrees the heading centre has been moved for drift.
+     */
+    public long getHeadingAdjustment() {
+        return headingAdjustment(centreAdjustment);
+    }
+
+    /**
+     * @return Amount the vertical centre has been moved for drift.
+     */
+    public long getVerticalAdjustment() {
+        return verticalAdjustment(centreAdjustment);
     }
 
     public MouseState getMouseHeadingState() {
@@ -355,6 +947,30 @@ public class MouseController implements SerialPortListener {
         return mouseVerticalOffset;
     }
 
+    /**
+     * @return The number of speed commands not sent because the speed had not
+     * changed.
+     */
+    public long getSuppressedSpeedCommands() {
+        return suppressedSpeedCommands;
+    }
+
+    /**
+     * @return The number of button commands not sent because the button had
+     * not changed or changed too soon (debounce).
+     */
+    public long getSuppressedButtonCommands() {
+        return suppressedButtonCommands;
+    }
+
+    /**
+     * @return true if connected and the heading and vertical set the speed of
+     * the mouse.
+     */
+    private boolean isJoystick() {
+        return (activeMode == PointerMode.JOYSTICK) && robotMouseThread.isConnected();
+    }
+
     /**
      * Called when we have a heading inside the active boundary.
      *
@@ -366,8 +982,8 @@ public class MouseController implements SerialPortListener {
     private void inActiveHeadingZone(long heading) {
         mouseHeadingOffset = heading;
         mouseHeadingState = MouseState.ACTIVE;
-        if (robotMouseThread.isConnected()) {
-            robotMouseThread.setSpeedX(-(heading * headingSpeed));
+        if (isJoystick()) {
+            sendSpeedX(-(heading * headingSpeed));
         }
     }
 
@@ -382,8 +998,8 @@ public class MouseController implements SerialPortListener {
     private void inNullHeadingZone(long heading) {
         mouseHeadingOffset = heading;
         mouseHeadingState = MouseState.NULL_ZONE;
-        if (robotMouseThread.isConnected()) {
-            robotMouseThread.setSpeedX(0);
+        if (isJoystick()) {
+            sendSpeedX(0);
         }
     }
 
@@ -398,8 +1014,8 @@ public class MouseController implements SerialPortListener {
     private void inNullVerticalZone(long l) {
         mouseVerticalOffset = l;
         mouseVerticalState = MouseState.NULL_ZONE;
-        if (robotMouseThread.isConnected()) {
-            robotMouseThread.setSpeedY(0);
+        if (isJoystick()) {
+            sendSpeedY(0);
         }
     }
 
@@ -414,8 +1030,8 @@ public class MouseController implements SerialPortListener {
     private void inActiveVerticalZone(long l) {
         mouseVerticalOffset = l;
         mouseVerticalState = MouseState.ACTIVE;
-        if (robotMouseThread.isConnected()) {
-            robotMouseThread.setSpeedY(l * verticalSpeed);
+        if (isJoystick()) {
+            sendSpeedY(l * verticalSpeed);
         }
     }
 
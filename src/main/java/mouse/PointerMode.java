@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+/**
+ * How head movement moves the mouse pointer.
+ *
+ * <pre>
+ * JOYSTICK - Moving the head out of the null zone sets the speed of the
+ *            pointer. The further out the faster it moves.
+ * ABSOLUTE - The head position is the pointer position. The active zone
+ *            covers the whole screen.
+ * RELATIVE - The change in head position moves the pointer (air mouse).
+ * </pre>
+ */
+public enum PointerMode {
+    JOYSTICK, ABSOLUTE, RELATIVE;
+}
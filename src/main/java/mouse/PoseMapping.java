@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+/**
+ * Map a head pose (heading and vertical offsets from the centre) to a screen
+ * position using a 2D polynomial.
+ *
+ * Turning the head does not move the point looked at evenly across a flat
+ * screen so a straight line mapping is not good enough near the edges. Each
+ * screen coordinate is:
+ * <pre>
+ *   c0 + c1*h + c2*v + c3*h*v + c4*h*h + c5*v*v
+ * </pre>
+ * The coefficients are fitted by least squares to calibration points where
+ * the user looked at a target on the screen. With fewer than 6 points the
+ * h*h and v*v terms (and then the h*v term) are left out.
+ *
+ * Mapping a pose is a handful of multiply-adds and creates no objects. This
+ * class is NOT thread safe.
+ */
+public class PoseMapping {
+
+    public static final int TERMS = 6;
+
+    private final double[] cx;
+    private final double[] cy;
+    private double x;
+    private double y;
+
+    /**
+     * @param cx The TERMS coefficients for x
+     * @param cy The TERMS coefficients for y
+     */
+    public PoseMapping(double[] cx, double[] cy) {
+        if ((cx.length != TERMS) || (cy.length != TERMS)) {
+            throw new IllegalArgumentException("A pose mapping needs " + TERMS + " coefficients for x and y");
+        }
+        this.cx = cx.clone();
+        this.cy = cy.clone();
+    }
+
+    /**
+     * Fit a mapping to calibration points.
+     *
+     * @param heading The heading offset for each point.
+     * @param vertical The vertical offset for each point.
+     * @param screenX The screen x for each point.
+     * @param screenY The screen y for each point.
+     * @return The mapping
+     * @throws IllegalArgumentException if there are fewer than 3 points or
+     * they do not define a mapping (for example all in a line).
+     */
+    public static PoseMapping fit(long[] heading, long[] vertical, double[] screenX, double[] screenY) {
+        int n = heading.length;
+        int terms;
+        if (n >= 6) {
+            terms = 6;
+        } else if (n >= 4) {
+            terms = 4;
+        } else if (n == 3) {
+            terms = 3;
+        } else {
+            throw new IllegalArgumentException("At least 3 calibration points are needed");
+        }
+        /*
+        Build the normal equations (At.A)c = At.b for both x and y.
+         */
+        double[][] ata = new double[terms][terms];
+        double[] atx = new double[terms];
+        double[] aty = new double[terms];
+        double[] row = new double[TERMS];
+        for (int p = 0; p < n; p++) {
+            terms(heading[p], vertical[p], row);
+            for (int i = 0; i < terms; i++) {
+                for (int j = 0; j < terms; j++) {
+                    ata[i][j] += row[i] * row[j];
+                }
+                atx[i] += row[i] * screenX[p];
+                aty[i] += row[i] * screenY[p];
+            }
+        }
+        double[] cx = new double[TERMS];
+        double[] cy = new double[TERMS];
+        solve(ata, atx, aty, cx, cy);
+        return new PoseMapping(cx, cy);
+    }
+
+    private static void terms(double h, double v, double[] row) {
+        row[0] = 1;
+        row[1] = h;
+        row[2] = v;
+        row[3] = h * v;
+        row[4] = h * h;
+        row[5] = v * v;
+    }
+
+    /**
+     * Solve a.cx = bx and a.cy = by by Gaussian elimination with partial
+     * pivoting. a, bx and by are changed.
+     */
+    private static void solve(double[][] a, double[] bx, double[] by, double[] cx, double[] cy) {
+        int t = bx.length;
+        double scale = 0;
+        for (int i = 0; i < t; i++) {
+            scale = Math.max(scale, Math.abs(a[i][i]));
+        }
+        for (int col = 0; col < t; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < t; r++) {
+                if (Math.abs(a[r][col]) > Math.abs(a[pivot][col])) {
+                    pivot = r;
+                }
+            }
+            if (Math.abs(a[pivot][col]) <= (scale * 1e-12)) {
+                throw new IllegalArgumentException("The calibration points do not define a mapping");
+            }
+            swap(a, col, pivot);
+            swap(bx, col, pivot);
+            swap(by, col, pivot);
+            for (int r = col + 1; r < t; r++) {
+                double f = a[r][col] / a[col][col];
+                for (int c = col; c < t; c++) {
+                    a[r][c] -= f * a[col][c];
+                }
+                bx[r] -= f * bx[col];
+                by[r] -= f * by[col];
+            }
+        }
+        for (int r = t - 1; r >= 0; r--) {
+            double sx = bx[r];
+            double sy = by[r];
+            for (int c = r + 1; c < t; c++) {
+                sx -= a[r][c] * cx[c];
+                sy -= a[r][c] * cy[c];
+            }
+            cx[r] = sx / a[r][r];
+            cy[r] = sy / a[r][r];
+        }
+    }
+
+    private static void swap(double[][] a, int i, int j) {
+        double[] t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /**
+     * Map a pose to the screen. Use getX() and getY() for the result.
+     *
+     * @param h The heading offset
+     * @param v The vertical offset
+     */
+    public void map(double h, double v) {
+        double hv = h * v;
+        double hh = h * h;
+        double vv = v * v;
+        x = cx[0] + (cx[1] * h) + (cx[2] * v) + (cx[3] * hv) + (cx[4] * hh) + (cx[5] * vv);
+        y = cy[0] + (cy[1] * h) + (cy[2] * v) + (cy[3] * hv) + (cy[4] * hh) + (cy[5] * vv);
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double[] getCoefficientsX() {
+        return cx.clone();
+    }
+
+    public double[] getCoefficientsY() {
+        return cy.clone();
+    }
+}
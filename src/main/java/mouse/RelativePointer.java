@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+/**
+ * Move the pointer by the change in head position (like a gyro 'air mouse').
+ *
+ * The head does not have to be held away from the centre to keep the pointer
+ * moving. Turning the head moves the pointer and holding it still (anywhere)
+ * stops it.
+ *
+ * The change is measured from a reference position. The reference only moves
+ * when the change is more than the deadband so sensor noise is ignored but
+ * slow movements still add up. The heading change is the shortest angle so
+ * crossing 0/360 works.
+ *
+ * The gain curve is: pixels = gain * change^exponent. An exponent above 1
+ * makes fast movements go further (acceleration).
+ *
+ * The work done for each reading is fixed and no objects are created. This
+ * class is NOT thread safe. It is used by the MouseController for each
+ * reading.
+ */
+public class RelativePointer {
+
+    private final double headingGain;
+    private final double verticalGain;
+    private final double exponent;
+    private final long headingDeadband;
+    private final long verticalDeadband;
+
+    private boolean started = false;
+    private long headingRef;
+    private long verticalRef;
+    private double dx;
+    private double dy;
+
+    /**
+     * @param headingGain Pixels for each degree of heading change.
+     * @param verticalGain Pixels for each unit of vertical change.
+     * @param exponent The gain curve exponent. 1 is linear.
+     * @param headingDeadband Heading changes (degrees) up to this are noise.
+     * @param verticalDeadband Vertical changes up to this are noise.
+     */
+    public RelativePointer(double headingGain, double verticalGain, double exponent, long headingDeadband, long verticalDeadband) {
+        this.headingGain = headingGain;
+        this.verticalGain = verticalGain;
+        this.exponent = exponent;
+        this.headingDeadband = Math.abs(headingDeadband);
+        this.verticalDeadband = Math.abs(verticalDeadband);
+    }
+
+    /**
+     * Start again. The next reading is the reference and does not move.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    /**
+     * Work out the movement since the reference position.
+     *
+     * @param heading The heading (degrees). Increasing moves right.
+     * @param vertical The vertical. Increasing moves down.
+     * @return true if the pointer should move.
+     */
+    public boolean update(long heading, long vertical) {
+        dx = 0;
+        dy = 0;
+        if (!started) {
+            headingRef = heading;
+            verticalRef = vertical;
+            started = true;
+            return false;
+        }
+        long d = Degrees.shortest(headingRef, heading);
+        if (Math.abs(d) > headingDeadband) {
+            dx = curve(d, headingGain);
+            headingRef = heading;
+        }
+        d = vertical - verticalRef;
+        if (Math.abs(d) > verticalDeadband) {
+            dy = curve(d, verticalGain);
+            verticalRef = vertical;
+        }
+        return (dx != 0) || (dy != 0);
+    }
+
+    private double curve(long d, double gain) {
+        double m = (exponent == 1.0) ? Math.abs(d) : Math.pow(Math.abs(d), exponent);
+        return (d < 0) ? -(m * gain) : m * gain;
+    }
+
+    public double getDx() {
+        return dx;
+    }
+
+    public double getDy() {
+        return dy;
+    }
+}
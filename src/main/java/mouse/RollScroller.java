@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+/**
+ * Turn the roll (tilting the head to the side) into a scroll rate.
+ *
+ * The level roll is taken from the first reading after a reset (when the
+ * mouse is connected). Roll inside the null zone does not scroll. Past the
+ * null zone the rate is the roll past the edge of the null zone times the
+ * rate, up to the maximum rate. Tilting right (positive roll) scrolls down.
+ * Use a negative rate to scroll the other way.
+ *
+ * The null zone has hysteresis like the heading and vertical zones so the
+ * scrolling does not start and stop when the roll is near the edge.
+ *
+ * Only the rate is worked out here. The RobotMouseThread turns the rate into
+ * wheel notches so the scrolling does not depend on how often readings
+ * arrive.
+ */
+public class RollScroller {
+
+    private final double nullWidth;
+    private final double hysteresis;
+    private final double rate;
+    private final double maxRate;
+
+    private boolean started = false;
+    private double level;
+    private MouseState state = MouseState.NULL_ZONE;
+    private double scrollRate = 0;
+
+    /**
+     * @param nullWidth Half the width of the null zone (roll).
+     * @param hysteresis How far the roll must go past the edge of the null
+     * zone to start or stop scrolling. Cannot be wider than the null zone.
+     * @param rate Notches a second for each unit of roll past the edge of the
+     * null zone.
+     * @param maxRate The most notches a second.
+     */
+    public RollScroller(double nullWidth, double hysteresis, double rate, double maxRate) {
+        this.nullWidth = Math.abs(nullWidth);
+        this.hysteresis = Math.min(Math.abs(hysteresis), this.nullWidth);
+        this.rate = rate;
+        this.maxRate = Math.abs(maxRate);
+    }
+
+    /**
+     * Add a reading.
+     *
+     * @param roll The roll (Reading.getX())
+     * @return true if the scroll rate has changed.
+     */
+    public boolean update(double roll) {
+        if (!started) {
+            started = true;
+            level = roll;
+        }
+        double diff = roll - level;
+        double offset = Math.abs(diff);
+        double edge = (state == MouseState.NULL_ZONE) ? nullWidth + hysteresis : nullWidth - hysteresis;
+        double next = 0;
+        if (offset < edge) {
+            state = MouseState.NULL_ZONE;
+        } else {
+            state = MouseState.ACTIVE;
+            next = Math.min(Math.max(0, offset - nullWidth) * Math.abs(rate), maxRate);
+            if ((diff < 0) != (rate < 0)) {
+                next = -next;
+            }
+        }
+        if (next == scrollRate) {
+            return false;
+        }
+        scrollRate = next;
+        return true;
+    }
+
+    /**
+     * Forget the level and stop scrolling. The next reading is level.
+     */
+    public void reset() {
+        started = false;
+        state = MouseState.NULL_ZONE;
+        scrollRate = 0;
+    }
+
+    /**
+     * @return Notches a second. Negative scrolls up.
+     */
+    public double getScrollRate() {
+        return scrollRate;
+    }
+
+    /**
+     * @return NULL_ZONE or ACTIVE (scrolling).
+     */
+    public MouseState getState() {
+        return state;
+    }
+}
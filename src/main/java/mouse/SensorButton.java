@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+/**
+ * Debounce a button on the sensor.
+ *
+ * The sensor sends the state of each button with every reading so the same
+ * state arrives many times a second. A contact that bounces can also flip the
+ * state for a reading or two.
+ *
+ * The first change is accepted at once (so a click is not delayed) then any
+ * further change is ignored until debounceTime has passed. As the state is
+ * sent with every reading a change that is ignored will be picked up by a
+ * later reading if it is still there.
+ */
+class SensorButton {
+
+    private final long debounceTime;
+    private boolean known = false;
+    private boolean pressed = false;
+    private long changedAt;
+
+    /**
+     * @param debounceTime The time (ms) after a change during which further
+     * changes are ignored.
+     */
+    SensorButton(long debounceTime) {
+        this.debounceTime = debounceTime;
+    }
+
+    /**
+     * Pass the button state from a reading.
+     *
+     * @param pressed The state of the button in the reading
+     * @param timestamp The time (ms) of the reading
+     * @return true if the state has changed and needs to be sent to the mouse.
+     * false if it is the same or has changed too soon (bounce).
+     */
+    boolean update(boolean pressed, long timestamp) {
+        if (known) {
+            if (pressed == this.pressed) {
+                return false;
+            }
+            if ((timestamp - changedAt) < debounceTime) {
+                return false;
+            }
+        }
+        this.known = true;
+        this.pressed = pressed;
+        this.changedAt = timestamp;
+        return true;
+    }
+
+    /**
+     * Forget the state so the next update is always sent to the mouse.
+     */
+    void reset() {
+        known = false;
+    }
+
+    boolean isPressed() {
+        return pressed;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.AWTException;
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.Robot;
+
+/**
+ * The normal PointerBackend. It uses java.awt.Robot so it needs a display.
+ */
+public class AwtRobotBackend implements PointerBackend {
+
+    private final Robot robot;
+
+    /**
+     * @throws RobotMouseException if the Robot cannot be created (for
+     * example there is no display).
+     */
+    public AwtRobotBackend() {
+        try {
+            this.robot = new Robot();
+            this.robot.setAutoDelay(0);
+            this.robot.setAutoWaitForIdle(false);
+        } catch (AWTException awt) {
+            throw new RobotMouseException("Mouse Robot creation failed:", awt);
+        }
+    }
+
+    @Override
+    public void move(int x, int y) {
+        robot.mouseMove(x, y);
+    }
+
+    @Override
+    public void press(int buttons) {
+        robot.mousePress(buttons);
+    }
+
+    @Override
+    public void release(int buttons) {
+        robot.mouseRelease(buttons);
+    }
+
+    @Override
+    public void wheel(int notches) {
+        robot.mouseWheel(notches);
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+        robot.keyPress(keyCode);
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+        robot.keyRelease(keyCode);
+    }
+
+    @Override
+    public Point getLocation() {
+        return MouseInfo.getPointerInfo().getLocation();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue of commands for the RobotMouseThread.
+ *
+ * Any thread can add commands (many producers). Only the RobotMouseThread
+ * takes them off (one consumer) so they are done in the order they were
+ * added.
+ *
+ * The queue does not lock. Each slot has a sequence number. A producer
+ * claims a slot by moving the tail on with compareAndSet, writes the command
+ * and then sets the sequence number to say the slot is full. The consumer
+ * waits for that sequence number before it reads the slot. No objects are
+ * created when commands are added or taken off.
+ */
+public class CommandQueue {
+
+    /**
+     * The commands.
+     */
+    public static enum Command {
+        PRESS, RELEASE, CONNECT, DISCONNECT, CLICK, SCROLL, TYPE
+    }
+
+    private static final Command[] COMMANDS = Command.values();
+
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final int[] commands;
+    private final int[] args;
+    private final long[] times;
+    private final AtomicLong tail = new AtomicLong();
+    /*
+    Only changed by the consumer. Volatile so size() works in other threads.
+     */
+    private volatile long head = 0;
+
+    /**
+     * @param capacity The most commands the queue can hold. Rounded up to a
+     * power of 2.
+     */
+    public CommandQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.sequence = new AtomicLongArray(size);
+        this.commands = new int[size];
+        this.args = new int[size];
+        this.times = new long[size];
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /**
+     * Add a command. Can be called from any thread.
+     *
+     * @param command The command
+     * @param arg The value for the command (button mask, count, key code)
+     * @param time The time (System.nanoTime()) the command was added
+     * @return false if the queue is full and the command was not added.
+     */
+    public boolean offer(Command command, int arg, long time) {
+        while (true) {
+            long t = tail.get();
+            int slot = (int) t & mask;
+            long diff = sequence.get(slot) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    commands[slot] = command.ordinal();
+                    args[slot] = arg;
+                    times[slot] = time;
+                    /*
+                    Publish the slot. The consumer reads the sequence first so
+                    it sees the values written above.
+                     */
+                    sequence.set(slot, t + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Look at the next command without taking it off. Only called by the
+     * consumer. Use getCommand(), getArg() and getTime() for the values.
+     *
+     * @return false if the queue is empty.
+     */
+    public boolean peek() {
+        return sequence.get((int) head & mask) == head + 1;
+    }
+
+    /**
+     * Take the command found by peek() off the queue so the slot can be used
+     * again. Only called by the consumer after peek() returned true.
+     */
+    public void remove() {
+        sequence.set((int) head & mask, head + mask + 1);
+        head++;
+    }
+
+    public Command getCommand() {
+        return COMMANDS[commands[(int) head & mask]];
+    }
+
+    public int getArg() {
+        return args[(int) head & mask];
+    }
+
+    public long getTime() {
+        return times[(int) head & mask];
+    }
+
+    /**
+     * @return true if there are no commands. Can be called from any thread
+     * but the answer may be out of date straight away.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return The number of commands waiting. Can be called from any thread
+     * but the answer may be out of date straight away.
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * @return The most commands the queue can hold.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
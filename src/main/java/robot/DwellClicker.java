@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+/**
+ * Click the mouse when the pointer is held still (dwell).
+ *
+ * Some users cannot press the buttons on the sensor reliably. When the
+ * pointer is held still for the dwell time the selected action is done.
+ *
+ * The MouseController only sets the speed to ZERO when the heading and the
+ * vertical are in the NULL_ZONE so 'still' means the pointer is being held in
+ * the null zone. Small changes in position (for example the pointer being
+ * put back by the position check) are allowed as long as the pointer stays
+ * within the radius of where the dwell started. If the pointer is moved the
+ * dwell starts again when it is still.
+ *
+ * After an action the pointer must move outside the radius before another
+ * dwell can start. This stops the same place being clicked again and again.
+ *
+ * Actions:
+ * <pre>
+ * OFF         - Do nothing.
+ * LEFT_CLICK  - Press and release the left button.
+ * RIGHT_CLICK - Press and release the right button.
+ * DRAG        - The first dwell presses the left button, the next releases it.
+ * </pre>
+ *
+ * The buttons are pressed and released using the button methods of the
+ * RobotMouseThreadInterface so the usual button state machine is used.
+ *
+ * update is called for every loop of the RobotMouseThread. It does a fixed
+ * amount of work. All timing is done with timers on the TimerWheel so there
+ * is no polling. This class is NOT thread safe except for the setters.
+ */
+public class DwellClicker {
+
+    public static enum DwellAction {
+        OFF, LEFT_CLICK, RIGHT_CLICK, DRAG
+    }
+
+    /**
+     * The State of the dwell.
+     *
+     * IDLE - Waiting for the pointer to be still.
+     * DWELLING - Pointer is still. Waiting for the dwell time.
+     * COOLDOWN - An action has been done. Waiting for the cool down time.
+     */
+    public static enum DwellState {
+        IDLE, DWELLING, COOLDOWN
+    }
+
+    private static final long MS = 1000000L;
+    /*
+    How long the button is held down for a click.
+     */
+    private static final long CLICK_TIME = 50 * MS;
+
+    private final RobotMouseThreadInterface mouse;
+    private final TimerWheel timerWheel;
+
+    private volatile DwellAction action = DwellAction.OFF;
+    private volatile long dwellTime = 1000 * MS;
+    private volatile long cooldown = 1000 * MS;
+    private volatile double radius = 10.0;
+
+    private DwellState state = DwellState.IDLE;
+    private boolean due = false;
+    private boolean mustMove = false;
+    private boolean dragging = false;
+    private double anchorX;
+    private double anchorY;
+    private long actions = 0;
+
+    private final TimerWheel.Timer dwellTimer = new TimerWheel.Timer() {
+        @Override
+        protected void expired(long now) {
+            due = true;
+        }
+    };
+
+    private final TimerWheel.Timer cooldownTimer = new TimerWheel.Timer() {
+        @Override
+        protected void expired(long now) {
+            state = DwellState.IDLE;
+        }
+    };
+
+    private final TimerWheel.Timer leftReleaseTimer = new TimerWheel.Timer() {
+        @Override
+        protected void expired(long now) {
+            mouse.buttonRelease(MouseButton.LEFT);
+        }
+    };
+
+    private final TimerWheel.Timer rightReleaseTimer = new TimerWheel.Timer() {
+        @Override
+        protected void expired(long now) {
+            mouse.buttonRelease(MouseButton.RIGHT);
+        }
+    };
+
+    /**
+     * @param mouse Used to press and release the buttons.
+     * @param timerWheel The timer wheel. Times are in nano seconds.
+     */
+    public DwellClicker(RobotMouseThreadInterface mouse, TimerWheel timerWheel) {
+        this.mouse = mouse;
+        this.timerWheel = timerWheel;
+    }
+
+    /**
+     * Called for every loop of the RobotMouseThread after the timer wheel has
+     * been advanced.
+     *
+     * @param now The time now (nano seconds)
+     * @param x The position of the pointer
+     * @param y The position of the pointer
+     * @param still true if the pointer is not being moved.
+     */
+    public void update(long now, double x, double y, boolean still) {
+        if ((action == DwellAction.OFF) || (!mouse.isConnected())) {
+            reset();
+            return;
+        }
+        switch (state) {
+            case IDLE:
+                if (mustMove) {
+                    if (!outside(x, y)) {
+                        return;
+                    }
+                    mustMove = false;
+                }
+                if (still) {
+                    anchorX = x;
+                    anchorY = y;
+                    due = false;
+                    state = DwellState.DWELLING;
+                    timerWheel.schedule(dwellTimer, now + dwellTime);
+                }
+                break;
+            case DWELLING:
+                /*
+                Any movement starts the dwell again so the action is only
+                done after the whole dwell time still.
+                 */
+                if (!still || outside(x, y)) {
+                    timerWheel.cancel(dwellTimer);
+                    due = false;
+                    state = DwellState.IDLE;
+                } else if (due) {
+                    doAction(now);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Stop any dwell. If dragging then the left button is released.
+     */
+    public void reset() {
+        timerWheel.cancel(dwellTimer);
+        timerWheel.cancel(cooldownTimer);
+        if (dragging) {
+            mouse.buttonRelease(MouseButton.LEFT);
+            dragging = false;
+        }
+        state = DwellState.IDLE;
+        due = false;
+        mustMove = false;
+    }
+
+    private void doAction(long now) {
+        switch (action) {
+            case LEFT_CLICK:
+                mouse.buttonPress(MouseButton.LEFT);
+                timerWheel.schedule(leftReleaseTimer, now + CLICK_TIME);
+                break;
+            case RIGHT_CLICK:
+                mouse.buttonPress(MouseButton.RIGHT);
+                timerWheel.schedule(rightReleaseTimer, now + CLICK_TIME);
+                break;
+            case DRAG:
+                if (dragging) {
+                    mouse.buttonRelease(MouseButton.LEFT);
+                } else {
+                    mouse.buttonPress(MouseButton.LEFT);
+                }
+                dragging = !dragging;
+                break;
+        }
+        actions++;
+        due = false;
+        mustMove = true;
+        state = DwellState.COOLDOWN;
+        timerWheel.schedule(cooldownTimer, now + cooldown);
+    }
+
+    private boolean outside(double x, double y) {
+        double dx = x - anchorX;
+        double dy = y - anchorY;
+        return ((dx * dx) + (dy * dy)) > (radius * radius);
+    }
+
+    public DwellAction getAction() {
+        return action;
+    }
+
+    public void setAction(DwellAction action) {
+        this.action = action;
+    }
+
+    /**
+     * @param ms How long (ms) the pointer must be still before the action.
+     */
+    public void setDwellTime(long ms) {
+        this.dwellTime = ms * MS;
+    }
+
+    /**
+     * @param ms How long (ms) after an action before another dwell can start.
+     */
+    public void setCooldown(long ms) {
+        this.cooldown = ms * MS;
+    }
+
+    /**
+     * @param radius How far (pixels) the pointer can move and still be still.
+     */
+    public void setRadius(double radius) {
+        this.radius = radius;
+    }
+
+    public DwellState getState() {
+        return state;
+    }
+
+    public boolean isDragging() {
+        return dragging;
+    }
+
+    /**
+     * @return The number of dwell actions done.
+     */
+    public long getActions() {
+        return actions;
+    }
+}
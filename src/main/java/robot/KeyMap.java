@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.event.KeyEvent;
+
+/**
+ * Map characters to the keys that type them on a US keyboard.
+ *
+ * The key code (KeyEvent.VK_...) is returned with SHIFT added if the shift
+ * key must be held down. Characters that cannot be typed return NONE.
+ */
+public class KeyMap {
+
+    /**
+     * Added to the key code if shift must be held down.
+     */
+    public static final int SHIFT = 1 << 16;
+    /**
+     * Returned for characters that cannot be typed.
+     */
+    public static final int NONE = -1;
+
+    private static final int[] ASCII = new int[128];
+
+    static {
+        for (int i = 0; i < ASCII.length; i++) {
+            ASCII[i] = NONE;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII[c] = KeyEvent.VK_A + (c - 'a');
+            ASCII[Character.toUpperCase(c)] = SHIFT | (KeyEvent.VK_A + (c - 'a'));
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            ASCII[c] = KeyEvent.VK_0 + (c - '0');
+        }
+        map(' ', KeyEvent.VK_SPACE);
+        map('\n', KeyEvent.VK_ENTER);
+        map('\t', KeyEvent.VK_TAB);
+        map('\b', KeyEvent.VK_BACK_SPACE);
+        /*
+        Each key with the character it types and with shift.
+         */
+        map('`', '~', KeyEvent.VK_BACK_QUOTE);
+        map('1', '!', KeyEvent.VK_1);
+        map('2', '@', KeyEvent.VK_2);
+        map('3', '#', KeyEvent.VK_3);
+        map('4', '$', KeyEvent.VK_4);
+        map('5', '%', KeyEvent.VK_5);
+        map('6', '^', KeyEvent.VK_6);
+        map('7', '&', KeyEvent.VK_7);
+        map('8', '*', KeyEvent.VK_8);
+        map('9', '(', KeyEvent.VK_9);
+        map('0', ')', KeyEvent.VK_0);
+        map('-', '_', KeyEvent.VK_MINUS);
+        map('=', '+', KeyEvent.VK_EQUALS);
+        map('[', '{', KeyEvent.VK_OPEN_BRACKET);
+        map(']', '}', KeyEvent.VK_CLOSE_BRACKET);
+        map('\\', '|', KeyEvent.VK_BACK_SLASH);
+        map(';', ':', KeyEvent.VK_SEMICOLON);
+        map('\'', '"', KeyEvent.VK_QUOTE);
+        map(',', '<', KeyEvent.VK_COMMA);
+        map('.', '>', KeyEvent.VK_PERIOD);
+        map('/', '?', KeyEvent.VK_SLASH);
+    }
+
+    private KeyMap() {
+    }
+
+    private static void map(char c, int keyCode) {
+        ASCII[c] = keyCode;
+    }
+
+    private static void map(char c, char shifted, int keyCode) {
+        ASCII[c] = keyCode;
+        ASCII[shifted] = SHIFT | keyCode;
+    }
+
+    /**
+     * @param c A character
+     * @return The key code, with SHIFT added if shift is needed, or NONE.
+     */
+    public static int keyFor(char c) {
+        if (c < ASCII.length) {
+            return ASCII[c];
+        }
+        return NONE;
+    }
+
+    /**
+     * @param key A value from keyFor()
+     * @return The key code without SHIFT
+     */
+    public static int keyCode(int key) {
+        return key & ~SHIFT;
+    }
+
+    /**
+     * @param key A value from keyFor()
+     * @return true if shift must be held down
+     */
+    public static boolean isShift(int key) {
+        return (key != NONE) && ((key & SHIFT) != 0);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.event.InputEvent;
+
+/**
+ * The mouse buttons the robot can press.
+ *
+ * Each button has a bit so a set of buttons fits in an int. The order of the
+ * values is the order of the bits and must not change.
+ *
+ * BACK and FORWARD are the extra buttons (4 and 5). They only work if the
+ * system has them.
+ */
+public enum MouseButton {
+    LEFT(1), RIGHT(3), MIDDLE(2), BACK(4), FORWARD(5);
+
+    /*
+    values() makes a copy each time so keep one.
+     */
+    private static final MouseButton[] BUTTONS = values();
+
+    private final int mask;
+
+    private MouseButton(int number) {
+        this.mask = InputEvent.getMaskForButton(number);
+    }
+
+    /**
+     * @return The bit for this button in a set of buttons.
+     */
+    public int getBit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @return The InputEvent mask used by the robot (for example
+     * InputEvent.BUTTON1_DOWN_MASK for LEFT).
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * @return All the buttons. Do not change the array.
+     */
+    public static MouseButton[] buttons() {
+        return BUTTONS;
+    }
+
+    /**
+     * Get a button from its name. Used for the config.
+     *
+     * @param name The name (any case). NONE or empty for no button.
+     * @return The button or null for NONE.
+     * @throws IllegalArgumentException if the name is not a button.
+     */
+    public static MouseButton parse(String name) {
+        String s = name.trim().toUpperCase();
+        if (s.isEmpty() || s.equals("NONE")) {
+            return null;
+        }
+        return valueOf(s);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.Point;
+
+/**
+ * The output used by the RobotMouseThread to move the pointer, press the
+ * buttons and type keys.
+ *
+ * The normal backend is AwtRobotBackend which uses java.awt.Robot. The
+ * RecordingBackend keeps the events in memory so the RobotMouseThread can
+ * be tested and measured without a display.
+ *
+ * All the methods are called by the RobotMouseThread. getLocation() may
+ * also be called by the thread that moves the mouse in ABSOLUTE or RELATIVE
+ * pointer modes.
+ */
+public interface PointerBackend {
+
+    /**
+     * Move the pointer.
+     *
+     * @param x The x position. Zero is the LHS of the screen
+     * @param y The y position. Zero is the TOP of the screen
+     */
+    void move(int x, int y);
+
+    /**
+     * Press mouse buttons.
+     *
+     * @param buttons The InputEvent button masks (for example
+     * InputEvent.BUTTON1_DOWN_MASK)
+     */
+    void press(int buttons);
+
+    /**
+     * Release mouse buttons.
+     *
+     * @param buttons The InputEvent button masks
+     */
+    void release(int buttons);
+
+    /**
+     * Scroll the mouse wheel.
+     *
+     * @param notches negative values scroll up, positive values scroll down.
+     */
+    void wheel(int notches);
+
+    /**
+     * Press a key.
+     *
+     * @param keyCode The KeyEvent key code (for example KeyEvent.VK_A)
+     */
+    void keyPress(int keyCode);
+
+    /**
+     * Release a key.
+     *
+     * @param keyCode The KeyEvent key code
+     */
+    void keyRelease(int keyCode);
+
+    /**
+     * This can be slow and may create objects so do not call it for every
+     * move.
+     *
+     * @return Where the pointer is now.
+     */
+    Point getLocation();
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+/**
+ * Check that the mouse pointer is where the robot put it. If it is not the
+ * user (or something else) has moved the mouse.
+ *
+ * Getting the pointer position (MouseInfo) is slow and creates objects so
+ * it is not done for every move. isDue() says when the next check should be
+ * done. An interval of 0 checks every move.
+ *
+ * The pointer must be out of position for more than 'repeats' checks in a
+ * row before it is reported.
+ *
+ * This class is NOT thread safe. It is used by the thread that moves the
+ * mouse.
+ */
+public class PositionChecker {
+
+    private final double tolerance;
+    private final int repeats;
+    private long interval;
+    private long nextCheck = 0;
+    private int counts = 0;
+
+    /**
+     * @param tolerance How far (pixels) the pointer can be from where it
+     * should be.
+     * @param repeats How many checks in a row can be out of position before
+     * it is reported.
+     * @param interval The time (nano seconds) between checks.
+     */
+    public PositionChecker(double tolerance, int repeats, long interval) {
+        this.tolerance = tolerance;
+        this.repeats = repeats;
+        this.interval = interval;
+    }
+
+    /**
+     * @param interval The time (nano seconds) between checks. 0 to check
+     * every move.
+     */
+    public void setInterval(long interval) {
+        this.interval = interval;
+        this.nextCheck = 0;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @param now The time now
+     * @return true if a check should be done now.
+     */
+    public boolean isDue(long now) {
+        return (interval <= 0) || (nextCheck == 0) || (now - nextCheck >= 0);
+    }
+
+    /**
+     * Check the pointer position.
+     *
+     * @param now The time now
+     * @param expectedX Where the robot put the pointer
+     * @param expectedY Where the robot put the pointer
+     * @param actualX Where the pointer is
+     * @param actualY Where the pointer is
+     * @return true if the pointer has been out of position too many times in
+     * a row. The count starts again.
+     */
+    public boolean check(long now, double expectedX, double expectedY, double actualX, double actualY) {
+        nextCheck = now + interval;
+        if (RobotMouseThread.roughlyNotEqual(actualX, expectedX, tolerance) || RobotMouseThread.roughlyNotEqual(actualY, expectedY, tolerance)) {
+            counts++;
+            if (counts > repeats) {
+                counts = 0;
+                return true;
+            }
+        } else {
+            counts = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Start counting again. Used when the mouse is stopped.
+     */
+    public void reset() {
+        counts = 0;
+        nextCheck = 0;
+    }
+
+    /**
+     * @return The number of checks in a row that have been out of position.
+     */
+    public int getCounts() {
+        return counts;
+    }
+
+    /**
+     * @return How many checks in a row are reported.
+     */
+    public int getRepeats() {
+        return repeats;
+    }
+}
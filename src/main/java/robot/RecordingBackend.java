@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ * A PointerBackend that does not need a display. Each output event is kept
+ * in memory with the time (System.nanoTime()) it happened so tests and
+ * benchmarks can check what the RobotMouseThread did and when.
+ *
+ * The events are kept in arrays that grow when full so recording does not
+ * create an object per event.
+ *
+ * The pointer location is where it was last moved to. setLocation() moves
+ * it as if the user had moved the mouse.
+ *
+ * The methods are synchronized so the test thread can read the events while
+ * the RobotMouseThread records them.
+ */
+public class RecordingBackend implements PointerBackend {
+
+    /**
+     * The types of event.
+     */
+    public static enum Event {
+        MOVE, PRESS, RELEASE, WHEEL, KEY_PRESS, KEY_RELEASE
+    }
+
+    private static final Event[] EVENTS = Event.values();
+
+    private int[] events;
+    private int[] valuesA;
+    private int[] valuesB;
+    private long[] times;
+    private int size = 0;
+    private int x;
+    private int y;
+
+    /**
+     * @param x The pointer x position at the start
+     * @param y The pointer y position at the start
+     */
+    public RecordingBackend(int x, int y) {
+        this.x = x;
+        this.y = y;
+        events = new int[1024];
+        valuesA = new int[1024];
+        valuesB = new int[1024];
+        times = new long[1024];
+    }
+
+    private void record(Event event, int a, int b) {
+        if (size == events.length) {
+            int length = size * 2;
+            events = Arrays.copyOf(events, length);
+            valuesA = Arrays.copyOf(valuesA, length);
+            valuesB = Arrays.copyOf(valuesB, length);
+            times = Arrays.copyOf(times, length);
+        }
+        events[size] = event.ordinal();
+        valuesA[size] = a;
+        valuesB[size] = b;
+        times[size] = System.nanoTime();
+        size++;
+    }
+
+    @Override
+    public synchronized void move(int x, int y) {
+        this.x = x;
+        this.y = y;
+        record(Event.MOVE, x, y);
+    }
+
+    @Override
+    public synchronized void press(int buttons) {
+        record(Event.PRESS, buttons, 0);
+    }
+
+    @Override
+    public synchronized void release(int buttons) {
+        record(Event.RELEASE, buttons, 0);
+    }
+
+    @Override
+    public synchronized void wheel(int notches) {
+        record(Event.WHEEL, notches, 0);
+    }
+
+    @Override
+    public synchronized void keyPress(int keyCode) {
+        record(Event.KEY_PRESS, keyCode, 0);
+    }
+
+    @Override
+    public synchronized void keyRelease(int keyCode) {
+        record(Event.KEY_RELEASE, keyCode, 0);
+    }
+
+    @Override
+    public synchronized Point getLocation() {
+        return new Point(x, y);
+    }
+
+    /**
+     * Move the pointer without recording an event. As if the user moved the
+     * mouse.
+     *
+     * @param x The x position
+     * @param y The y position
+     */
+    public synchronized void setLocation(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * @return The number of events recorded.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param event The type of event
+     * @return The number of events of the type.
+     */
+    public synchronized int count(Event event) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (events[i] == event.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized Event getEvent(int index) {
+        return EVENTS[events[index]];
+    }
+
+    /**
+     * @param index The event index
+     * @return The x position (MOVE), button mask, notches or key code.
+     */
+    public synchronized int getA(int index) {
+        return valuesA[index];
+    }
+
+    /**
+     * @param index The event index
+     * @return The y position (MOVE), otherwise 0.
+     */
+    public synchronized int getB(int index) {
+        return valuesB[index];
+    }
+
+    public synchronized long getTime(int index) {
+        return times[index];
+    }
+
+    /**
+     * Forget all the events.
+     */
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return The events, one per line, with the time in ms from the first.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(String.format("%.3f %s(%d,%d)%n", (times[i] - times[0]) / 1000000.0, EVENTS[events[i]], valuesA[i], valuesB[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -19,6 +19,10 @@ package robot;
 
 public class RobotMouseException extends RuntimeException {
 
+    public RobotMouseException(String message) {
+        super(message);
+    }
+
     public RobotMouseException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -18,7 +18,19 @@
 package robot;
 
 import java.awt.*;
-import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import metrics.Histogram;
+import metrics.Metrics;
 
 /**
  * Move the mouse in the background using the robot package.
@@ -26,7 +38,9 @@ import java.awt.event.InputEvent;
  * All mouse moves and button presses occur in the thread (run method).
  *
  * There were issues when the mouse button methods were called in another thread
- * so all calls to the robot API were moved to the thread (run method).
+ * so all calls to the robot API were moved to the thread (run method). Other
+ * threads only publish what they want (speeds, move targets, buttons and
+ * commands) and the thread does it.
  *
  * I think this is an issue with the way the robot API works.
  *
@@ -50,95 +64,443 @@ public class RobotMouseThread extends Thread implements RobotMouseThreadInterfac
 
     private final static double MOUSE_NOT_IN_POSITION_TOLLERANCE = 20.0;
     private final static int MOUSE_NOT_IN_POSITION_REPEATS = 2;
+    /*
+    Checks a second that the mouse is where the robot put it if not given.
+    */
+    public final static int DEFAULT_POSITION_CHECK_RATE = 10;
+    /*
+    The timer wheel has 10ms slots (in nano seconds) and covers 2.56 seconds.
+    Longer timers go round the wheel more than once.
+    */
+    private final static long TIMER_RESOLUTION = 10000000L;
+    /*
+    Ticks (moves) per second if not given.
+    */
+    public final static int DEFAULT_TICK_RATE = 120;
+    /*
+    Speed changes are ramped over the time between speed commands but not
+    more than this (nano seconds). Longer gaps are radio gaps.
+    */
+    private final static long MAX_RAMP_TIME = 50000000L;
+    /*
+    The longest time (nano seconds) scrolled for in one tick. The thread may
+    have been parked.
+     */
+    private final static long MAX_SCROLL_TIME = 100000000L;
+    /*
+    The watchdog times (ms) for setWatchdog if not given. After the first
+    the mouse is stopped and after the second the buttons are released.
+     */
+    public final static int DEFAULT_WATCHDOG_STOP = 250;
+    public final static int DEFAULT_WATCHDOG_RELEASE = 2000;
+    /*
+    The watchdog states.
+     */
+    private final static int DATA_FRESH = 0;
+    private final static int DATA_STOPPED = 1;
+    private final static int DATA_RELEASED = 2;
+    private final static int TIMER_SLOTS = 256;
+    /*
+    The most commands (button, click, scroll, key) that can be waiting.
+    */
+    private final static int COMMAND_CAPACITY = 1024;
+    /*
+    The time between typed characters (ms) if not given, so applications
+    keep up.
+    */
+    public final static int DEFAULT_KEY_INTERVAL = 40;
+    /*
+    The longest time (nano seconds) disConnect() waits for the thread.
+    */
+    private final static long DISCONNECT_TIMEOUT = 1000000000L;
+    /*
+    The requested buttons are the low 32 bits of the button states and the
+    buttons the robot has pressed are the high 32 bits.
+     */
+    private final static long REQUESTED_BITS = 0xFFFFFFFFL;
+    /*
+    The move target when there is no move waiting.
+     */
+    private final static long NO_MOVE = packSpeed(Double.NaN, Double.NaN);
 
-    private final Robot robotMouse;
+    private final PointerBackend robotMouse;
     private final RobotMouseEventListener listener;
     private final Rectangle screenBounds;
+    private final TimerWheel timerWheel;
+    private final DwellClicker dwellClicker;
+    private final TickScheduler tickScheduler;
+    private final VelocityInterpolator interpolator;
+    /*
+    The last speed given to the interpolator. Only used in the thread.
+     */
+    private double targetX = 0;
+    private double targetY = 0;
+    private final Histogram tickJitter = Metrics.histogram("robot.tick.jitter");
+    private final AtomicLong missedTicks = Metrics.counter("robot.tick.missed");
+    private final AtomicLong idleParks = Metrics.counter("robot.idle.parks");
+    /*
+    The loop telemetry. The period is the time between ticks (not counting
+    time parked), the work is the time from the start of a tick to the wait
+    for the next and the pixels are how far the pointer moved in a tick.
+     */
+    private final Histogram loopPeriod = Metrics.histogram("robot.loop.period");
+    private final Histogram loopWork = Metrics.histogram("robot.loop.work");
+    private final Histogram movePixels = Metrics.valueHistogram("robot.move.pixels");
+    private final AtomicLong loopTicks = Metrics.counter("robot.loop.ticks");
+    private final Histogram commandLatency = Metrics.histogram("robot.command.latency");
+    private final AtomicLong rejectedCommands = Metrics.counter("robot.command.rejected");
+    private final Histogram pressLatency = Metrics.histogram("robot.press.latency");
+    private final Histogram disconnectStall = Metrics.histogram("robot.disconnect.stall");
+    private final AtomicLong disconnectTimeouts = Metrics.counter("robot.disconnect.timeouts");
+    /*
+    Completed in order by the thread as it does each DISCONNECT command.
+     */
+    private final Queue<CompletableFuture<Void>> disconnects = new ConcurrentLinkedQueue<>();
+    /*
+    Commands from other threads. Done in order in the thread (run method).
+     */
+    private final CommandQueue commands = new CommandQueue(COMMAND_CAPACITY);
+    /*
+    Set when a command is sent so the thread does it straight away and not
+    at the next tick. Cleared by the thread before it takes the commands.
+     */
+    private volatile boolean commandSent = false;
+    private final BooleanSupplier hasCommands = () -> commandSent;
 
-    private boolean canRun = true;
-    private int outOfPositionCounts = 0;
+    private volatile boolean canRun = true;
+    /*
+    The position check, where the robot last put the pointer and the mouse
+    position are only used in the thread. positionCheckInterval can be set
+    by any thread and is given to the checker by the thread.
+     */
+    private final PositionChecker positionChecker = new PositionChecker(MOUSE_NOT_IN_POSITION_TOLLERANCE,
+            MOUSE_NOT_IN_POSITION_REPEATS, 1000000000L / DEFAULT_POSITION_CHECK_RATE);
+    private volatile long positionCheckInterval = 1000000000L / DEFAULT_POSITION_CHECK_RATE;
+    private final Histogram moveCost = Metrics.histogram("robot.move.cost");
+    /*
+    Where the robot last put the pointer. The robot is only called when this
+    changes.
+     */
+    private int robotX = Integer.MIN_VALUE;
+    private int robotY = Integer.MIN_VALUE;
     /*
     Doubles used to keep track of mouse position.
     Actual mouse pos is integer but this means we would loose precision if we 
         read the mouse position then move 1/2 a pixel.
      */
-    private double speedX;
-    private double speedY;
     private double mouseX;
     private double mouseY;
-    private boolean hasSpeed = false;
-    private boolean connected = false;
-    private ButtonState buttonLeftState;
-    private ButtonState buttonRightState;
+    /*
+    The speed (x and y) packed as two floats in one long so the thread always
+    sees an x and y that were set together.
+     */
+    private final AtomicLong speed = new AtomicLong(packSpeed(0, 0));
+    /*
+    The last position given to moveMouseAbs packed like the speed. The
+    thread takes it (leaving NO_MOVE) and moves there on the next tick.
+     */
+    private final AtomicLong moveTarget = new AtomicLong(NO_MOVE);
+    /*
+    The moves given to moveMouseRel added up and packed like the speed. The
+    thread takes them (leaving 0) and moves by them on the next tick.
+     */
+    private final AtomicLong moveDelta = new AtomicLong(packSpeed(0, 0));
+    /*
+    The connected state seen by other threads. It changes straight away.
+    The thread has its own flag (active) that changes when it gets the
+    CONNECT and DISCONNECT commands.
+     */
+    private volatile boolean connected = false;
+    /*
+    The button states seen by other threads. A bit for each MouseButton. A
+    press or release changes the requested bit (low 32 bits) straight away.
+    The thread sets the pressed bit (high 32 bits) when it has done it. Both
+    are in one long so the state of a button is always read in one go.
+     */
+    private final AtomicLong buttons = new AtomicLong(0);
+    /*
+    Only used in the thread (run method).
+    wantedButtons are the buttons that should be down (MouseButton bits).
+    pressedButtons are the buttons the robot has pressed.
+     */
+    private boolean active = false;
+    private int wantedButtons = 0;
+    private int pressedButtons = 0;
+    /*
+    The buttons changed by the commands taken since the buttons were last
+    updated and when the first press of them was sent. Only used in the
+    thread.
+     */
+    private int changedButtons = 0;
+    private long pressSent = Long.MIN_VALUE;
+    private long nextKeyTime = 0;
+    /*
+    Text waiting to be typed. The thread takes one job at a time and types
+    it one character each keyInterval.
+     */
+    private final Queue<TypingJob> typingJobs = new ConcurrentLinkedQueue<>();
+    private volatile TypingJob typing = null;
+    private volatile long keyInterval = DEFAULT_KEY_INTERVAL * 1000000L;
+    /*
+    Wheel notches a second. The thread adds up the notches for the time
+    since the last tick and scrolls the whole ones so the scroll rate does
+    not depend on the tick rate.
+     */
+    private volatile double scrollRate = 0;
+    private double scrollNotches = 0;
+    private long lastScrollTime = Long.MIN_VALUE;
+    /*
+    The watchdog. lastData is the time (System.nanoTime) of the last reading.
+    The timer is on the timer wheel so checking costs nothing for each
+    reading. When it is due it looks at lastData and is scheduled again if
+    there has been a reading. It is only armed while the mouse is moving or
+    scrolling or a button is held so it does not wake an idle thread. 0
+    times turn it (or the release) off. It is off until setWatchdog is
+    called.
+     */
+    private volatile long lastData = System.nanoTime();
+    private final AtomicInteger dataState = new AtomicInteger(DATA_FRESH);
+    private volatile long watchdogStop = 0;
+    private volatile long watchdogRelease = 0;
+    private final AtomicLong watchdogStops = Metrics.counter("robot.watchdog.stops");
+    private final AtomicLong watchdogReleases = Metrics.counter("robot.watchdog.releases");
+    private final TimerWheel.Timer watchdogTimer = new TimerWheel.Timer() {
+        @Override
+        protected void expired(long now) {
+            checkData(now);
+        }
+    };
 
     /**
      * @param listener Listen to events caused by the robot mouse movement.
      * @param screenBounds The limits we can move the mouse
      */
     public RobotMouseThread(RobotMouseEventListener listener, Rectangle screenBounds) {
-        try {
-            this.robotMouse = new Robot();
-            this.robotMouse.setAutoDelay(0);
-            this.robotMouse.setAutoWaitForIdle(false);
-        } catch (AWTException awt) {
-            throw new RobotMouseException("Mouse Robot creation failed:", awt);
-        }
+        this(listener, screenBounds, DEFAULT_TICK_RATE, true);
+    }
+
+    /**
+     * @param listener Listen to events caused by the robot mouse movement.
+     * @param screenBounds The limits we can move the mouse
+     * @param tickRate The number of times a second the mouse is moved (for
+     * example 60, 120 or 240).
+     * @param interpolate true to smooth speed changes between speed commands.
+     */
+    public RobotMouseThread(RobotMouseEventListener listener, Rectangle screenBounds, int tickRate, boolean interpolate) {
+        this(new AwtRobotBackend(), listener, screenBounds, tickRate, interpolate);
+    }
+
+    /**
+     * @param backend Moves the pointer, presses the buttons and types keys.
+     * @param listener Listen to events caused by the robot mouse movement.
+     * @param screenBounds The limits we can move the mouse
+     * @param tickRate The number of times a second the mouse is moved (for
+     * example 60, 120 or 240).
+     * @param interpolate true to smooth speed changes between speed commands.
+     */
+    public RobotMouseThread(PointerBackend backend, RobotMouseEventListener listener, Rectangle screenBounds, int tickRate, boolean interpolate) {
+        this.robotMouse = new TimedBackend(backend);
         this.listener = listener;
         this.screenBounds = screenBounds;
+        this.timerWheel = new TimerWheel(TIMER_RESOLUTION, TIMER_SLOTS, System.nanoTime());
+        this.dwellClicker = new DwellClicker(this, timerWheel);
+        this.tickScheduler = new TickScheduler(tickRate, tickJitter, missedTicks);
+        this.interpolator = new VelocityInterpolator(interpolate, tickScheduler.getPeriod(), MAX_RAMP_TIME);
         /*
-        Assume the buttons are UP when we start!
+        Assume the buttons are UP when we start! The mouse position is read
+        by the thread when it is connected.
         */
-        this.stopMouse();
-        buttonLeftState = ButtonState.IS_UP;
-        buttonRightState = ButtonState.IS_UP;
      }
 
     /**
-     * Stop the mouse. This also releases the button state 
-     * 
-     * Note this only happens as long as the we are still connected and the thread is running.
+     * Stop the mouse and clear the button requests. The thread releases the
+     * buttons when it disconnects or stops, after its last move.
      */
     public final void stopMouse() {
         setSpeedX(0.0);
         setSpeedY(0.0);
-        Point p = MouseInfo.getPointerInfo().getLocation();
+        scrollRate = 0;
+        moveTarget.set(NO_MOVE);
+        moveDelta.set(packSpeed(0, 0));
+        long prev;
+        do {
+            prev = buttons.get();
+        } while (!buttons.compareAndSet(prev, prev & ~REQUESTED_BITS));
+    }
+
+    /**
+     * Start from where the pointer is now. Only called in the thread when it
+     * is connected.
+     */
+    private void resetPosition() {
+        Point p = robotMouse.getLocation();
         mouseX = p.x;
         mouseY = p.y;
-        outOfPositionCounts = 0;
-        buttonLeftState = ButtonState.REQUEST_UP;
-        buttonRightState = ButtonState.REQUEST_UP;
+        positionChecker.reset();
+        robotX = Integer.MIN_VALUE;
+        robotY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Add a command to the queue and wake the thread to do it.
+     *
+     * @param command The command
+     * @param arg The value for the command
+     */
+    private void send(CommandQueue.Command command, int arg) {
+        if (!commands.offer(command, arg, System.nanoTime())) {
+            rejectedCommands.incrementAndGet();
+        }
+        commandSent = true;
+        wake();
+    }
+
+    /**
+     * Wake the thread if it is parked because it had nothing to do.
+     *
+     * Must be called after anything that gives the thread work. If the
+     * thread is not parked it will not park the next time it tries, so a
+     * wake is never lost.
+     */
+    private void wake() {
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * The thread has nothing to do if the mouse is not moving and no
+     * commands are waiting. The mouse only moves when connected.
+     *
+     * Timers (dwell) may still be waiting. The thread wakes for them.
+     *
+     * @return true if the thread can park.
+     */
+    private boolean isIdle(long now) {
+        if (!commands.isEmpty() || (typing != null) || !typingJobs.isEmpty()) {
+            return false;
+        }
+        if (!active) {
+            return true;
+        }
+        return !hasSpeed(speed.get()) && !interpolator.isMoving(now) && (scrollRate == 0)
+                && (moveTarget.get() == NO_MOVE) && (moveDelta.get() == packSpeed(0, 0));
+    }
+
+    private static long packSpeed(double x, double y) {
+        return ((long) Float.floatToRawIntBits((float) x) << 32) | (Float.floatToRawIntBits((float) y) & 0xFFFFFFFFL);
+    }
+
+    private static double speedX(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
     }
 
+    private static double speedY(long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+
+    private static boolean hasSpeed(long packed) {
+        return (Math.abs(speedX(packed)) > 0.0001) || (Math.abs(speedY(packed)) > 0.0001);
+    }
+
+    /**
+     * Move the mouse to a point on the screen on the next tick. Can be called
+     * from any thread. If it is called again before the tick only the last
+     * point is used.
+     *
+     * @param x The x value. Zero is the LHS of the screen
+     * @param y The y value. Zero is the TOP of the screen
+     */
     @Override
     public final void moveMouseAbs(double x, double y) {
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            return;
+        }
+        moveTarget.set(packSpeed(x, y));
+        wake();
+    }
+
+    /**
+     * Move the pointer for this tick. Only called in the thread.
+     *
+     * The target from moveMouseAbs is used if there is one. The moves from
+     * moveMouseRel and the interpolator are added to it.
+     *
+     * @param now The time now
+     * @param dx The x move from the interpolator
+     * @param dy The y move from the interpolator
+     */
+    private void movePointer(long now, double dx, double dy) {
+        long target = moveTarget.getAndSet(NO_MOVE);
+        long delta = moveDelta.getAndSet(packSpeed(0, 0));
+        dx = dx + speedX(delta);
+        dy = dy + speedY(delta);
+        if (!active || ((target == NO_MOVE) && (dx == 0) && (dy == 0))) {
+            return;
+        }
+        double x = mouseX;
+        double y = mouseY;
+        if (target != NO_MOVE) {
+            x = speedX(target);
+            y = speedY(target);
+        }
+        int fromX = robotX;
+        int fromY = robotY;
+        moveTo(now, x + dx, y + dy);
+        if ((fromX != Integer.MIN_VALUE) && (robotX != Integer.MIN_VALUE)) {
+            movePixels.record(Math.round(Math.hypot(robotX - fromX, robotY - fromY)));
+        }
+    }
+
+    /**
+     * Move the pointer to a point on the screen. Only called in the thread.
+     *
+     * @param now The time now
+     * @param x The x value. Zero is the LHS of the screen
+     * @param y The y value. Zero is the TOP of the screen
+     */
+    private void moveTo(long now, double x, double y) {
+        long start = System.nanoTime();
+        long interval = positionCheckInterval;
+        if (interval != positionChecker.getInterval()) {
+            positionChecker.setInterval(interval);
+        }
         if (x < screenBounds.getMinX()) {
             x = screenBounds.getMinX();
         } else if (x > screenBounds.getMaxX()) {
             x = screenBounds.getMaxX();
         }
-        if (y < screenBounds.getMinX()) {
-            y = screenBounds.getMinX();
+        if (y < screenBounds.getMinY()) {
+            y = screenBounds.getMinY();
         } else if (y > screenBounds.getMaxY()) {
             y = screenBounds.getMaxY();
         }
 
-        Point p = MouseInfo.getPointerInfo().getLocation();
-        if (roughlyNotEqual(p.getX(), x, MOUSE_NOT_IN_POSITION_TOLLERANCE) || roughlyNotEqual(p.getY(), y, MOUSE_NOT_IN_POSITION_TOLLERANCE)) {
-            outOfPositionCounts++;
-            if (outOfPositionCounts > MOUSE_NOT_IN_POSITION_REPEATS) {
-                outOfPositionCounts = 0;
-                if (listener != null) {
-                    listener.mouseNotInPosition(new Point((int) x, (int) y), p, outOfPositionCounts);
-                }
-            }
-        } else {
-            outOfPositionCounts = 0;
-        }
         mouseX = x;
         mouseY = y;
         if (connected) {
-            robotMouse.mouseMove((int) x, (int) y);
+            /*
+            Check the pointer is where the robot last put it. This is slow so
+            it is not done every move.
+             */
+            if ((robotX != Integer.MIN_VALUE) && positionChecker.isDue(now)) {
+                Point p = robotMouse.getLocation();
+                if (positionChecker.check(now, robotX, robotY, p.getX(), p.getY())) {
+                    if (listener != null) {
+                        listener.mouseNotInPosition(new Point((int) x, (int) y), p, positionChecker.getRepeats() + 1);
+                    }
+                }
+            }
+            /*
+            The listener may have disconnected the mouse.
+             */
+            int ix = (int) x;
+            int iy = (int) y;
+            if (active && connected && ((ix != robotX) || (iy != robotY))) {
+                robotMouse.move(ix, iy);
+                robotX = ix;
+                robotY = iy;
+            }
         }
+        moveCost.record(System.nanoTime() - start);
     }
 
     public static boolean roughlyNotEqual(double a, double b, double tollerance) {
@@ -146,32 +508,67 @@ public class RobotMouseThread extends Thread implements RobotMouseThreadInterfac
         return (diff > Math.abs(tollerance + 0.000001d));
     }
 
+    /**
+     * Move the mouse from where it is on the next tick. Can be called from
+     * any thread. The moves are added up until the tick so none are lost.
+     *
+     * @param dx The x change. Negative moves left.
+     * @param dy The y change. Negative moves up.
+     */
+    @Override
     public final void moveMouseRel(double dx, double dy) {
-        moveMouseAbs(mouseX + dx, mouseY + dy);
+        if (Double.isNaN(dx) || Double.isNaN(dy) || ((dx == 0) && (dy == 0))) {
+            return;
+        }
+        long prev;
+        long next;
+        do {
+            prev = moveDelta.get();
+            next = packSpeed(speedX(prev) + dx, speedY(prev) + dy);
+        } while (!moveDelta.compareAndSet(prev, next));
+        wake();
     }
 
     public void delay(int ms) {
-        robotMouse.delay(ms);
+        try {
+            sleep(ms);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     public void setSpeedY(double y) {
-        this.hasSpeed = ((Math.abs(this.speedX) > 0.0001) || (Math.abs(y) > 0.0001));
-        this.speedY = y;
+        long prev;
+        long next;
+        do {
+            prev = speed.get();
+            next = packSpeed(speedX(prev), y);
+        } while (!speed.compareAndSet(prev, next));
+        if (hasSpeed(next)) {
+            wake();
+        }
     }
 
     @Override
     public void setSpeedX(double x) {
-        this.hasSpeed = ((Math.abs(x) > 0.0001) || (Math.abs(this.speedY) > 0.0001));
-        this.speedX = x;
+        long prev;
+        long next;
+        do {
+            prev = speed.get();
+            next = packSpeed(x, speedY(prev));
+        } while (!speed.compareAndSet(prev, next));
+        if (hasSpeed(next)) {
+            wake();
+        }
     }
 
     public double getSpeedY() {
-        return speedY;
+        return speedY(speed.get());
     }
 
     public double getSpeedX() {
-        return speedX;
+        return speedX(speed.get());
     }
 
     @Override
@@ -181,45 +578,266 @@ public class RobotMouseThread extends Thread implements RobotMouseThreadInterfac
 
     @Override
     public void disConnect() {
+        long start = System.nanoTime();
+        CompletableFuture<Void> done = disConnectAsync();
+        /*
+        Wait for the thread to release the buttons. This is normally less
+        than a tick. Do not wait forever and lock up the program if the
+        thread is stuck. 1 second should be loads of time.
+         */
+        try {
+            done.get(DISCONNECT_TIMEOUT, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            disconnectTimeouts.incrementAndGet();
+        }
+        disconnectStall.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Disconnect without waiting. The mouse stops straight away and the
+     * buttons are released by the thread.
+     *
+     * @return Completed by the thread when the buttons have been released.
+     */
+    public CompletableFuture<Void> disConnectAsync() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        this.connected = false;
         stopMouse();
+        if (Thread.currentThread() == this) {
+            /*
+            Called in the thread (for example by the listener when the mouse
+            is out of position) so do it now. The thread cannot wait for
+            itself.
+             */
+            disconnects.add(done);
+            send(CommandQueue.Command.DISCONNECT, 0);
+            runCommands(System.nanoTime());
+        } else if (isAlive()) {
+            disconnects.add(done);
+            send(CommandQueue.Command.DISCONNECT, 0);
+        } else {
+            /*
+            The thread is not running so the robot has not pressed anything.
+            Nothing is sent. A CONNECT already sent is ignored when the thread
+            sees it is not connected.
+             */
+            done.complete(null);
+        }
         if (listener != null) {
             listener.disConnectedMouse();
         }
-        /*
-        Before we can disconnect we need to wait for the buttons to come up!
-        stopMouse() releases each button but the thread needs to run to actually
-        release them so we cannot disconnect untill both are UP.
-        
-        Count the number of loops so we dont wait forever and lock up the program.
-        1 second should be loads of time.
-         */
-        int count = 0;
-        while ((!buttonLeftState.equals(ButtonState.IS_UP)) || (!buttonRightState.equals(ButtonState.IS_UP))) {
-            try {
-                sleep(10);
-            } catch (InterruptedException ex) {
-                ex.printStackTrace(); // This is OK as it is VERY unlikely to be inturrnpted!
+        return done;
+    }
+
+    @Override
+    public boolean dataReceived() {
+        lastData = System.nanoTime();
+        if ((dataState.get() != DATA_FRESH) && (dataState.getAndSet(DATA_FRESH) != DATA_FRESH)) {
+            wake();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Set the watchdog times. If there are no readings (dataReceived) for
+     * the stop time the mouse is stopped. If there are none for the release
+     * time the buttons are released too. It all starts again on the next
+     * reading.
+     *
+     * @param stopMs The stop time. 0 turns the watchdog off.
+     * @param releaseMs The release time. 0 never releases the buttons.
+     */
+    public void setWatchdog(int stopMs, int releaseMs) {
+        watchdogStop = Math.max(0, stopMs) * 1000000L;
+        watchdogRelease = Math.max(0, releaseMs) * 1000000L;
+        wake();
+    }
+
+    /**
+     * @return true if the watchdog has stopped the mouse because the
+     * readings stopped.
+     */
+    public boolean isDataStopped() {
+        return dataState.get() != DATA_FRESH;
+    }
+
+    /**
+     * Only called in the thread.
+     *
+     * @return true if the mouse is moving or scrolling or a button is held,
+     * so the watchdog has something to stop.
+     */
+    private boolean isWatched(long now) {
+        return hasSpeed(speed.get()) || interpolator.isMoving(now) || (scrollRate != 0) || (pressedButtons != 0);
+    }
+
+    /**
+     * Called by the watchdog timer in the thread. Stop the mouse or release
+     * the buttons if the readings have stopped for long enough. Otherwise
+     * wait for the next time they could have.
+     *
+     * @param now The time now
+     */
+    private void checkData(long now) {
+        long stop = watchdogStop;
+        if (!active || (stop == 0)) {
+            return;
+        }
+        long last = lastData;
+        long age = now - last;
+        if (dataState.get() == DATA_FRESH) {
+            if (age < stop) {
+                if (isWatched(now)) {
+                    timerWheel.schedule(watchdogTimer, last + stop);
+                }
+                return;
             }
-            count++;
-            if (count > 100) {
-                break;
+            if (dataState.compareAndSet(DATA_FRESH, DATA_STOPPED)) {
+                watchdogStops.incrementAndGet();
+                speed.set(packSpeed(0, 0));
+                scrollRate = 0;
             }
         }
-        this.connected = false;
+        long release = watchdogRelease;
+        if ((release > 0) && (dataState.get() == DATA_STOPPED)) {
+            if (age < release) {
+                if (pressedButtons != 0) {
+                    timerWheel.schedule(watchdogTimer, last + release);
+                }
+            } else if (dataState.compareAndSet(DATA_STOPPED, DATA_RELEASED)) {
+                watchdogReleases.incrementAndGet();
+                for (MouseButton button : MouseButton.buttons()) {
+                    request(button, false);
+                }
+                dwellClicker.reset();
+            }
+        }
+    }
 
+    /**
+     * The dwell clicker is updated in the thread (run method).
+     *
+     * @return The dwell clicker so it can be configured.
+     */
+    public DwellClicker getDwellClicker() {
+        return dwellClicker;
+    }
+
+    /**
+     * @return How late (nano seconds) each tick of the thread started.
+     */
+    public Histogram getTickJitter() {
+        return tickJitter;
+    }
+
+    /**
+     * @return The time (nano seconds) between ticks. Time parked with
+     * nothing to do is not counted.
+     */
+    public Histogram getLoopPeriod() {
+        return loopPeriod;
+    }
+
+    /**
+     * @return The time (nano seconds) each tick took to do its work.
+     */
+    public Histogram getLoopWork() {
+        return loopWork;
+    }
+
+    /**
+     * @return The pixels the pointer moved in each tick it moved.
+     */
+    public Histogram getMovePixels() {
+        return movePixels;
+    }
+
+    /**
+     * @return The ticks per second from the mean time between ticks. 0 if
+     * there have not been two ticks in a row.
+     */
+    public double getAchievedRate() {
+        double mean = loopPeriod.getMean();
+        return (mean == 0) ? 0 : 1000000000.0 / mean;
+    }
+
+    /**
+     * @return The number of ticks where the work was not done in time.
+     */
+    public long getMissedTicks() {
+        return missedTicks.get();
+    }
+
+    /**
+     * Set how often the thread checks that the mouse pointer is where the
+     * robot put it. If it is not, the listener is told (mouseNotInPosition).
+     *
+     * @param rate Checks per second. 0 checks every move.
+     */
+    public void setPositionCheckRate(int rate) {
+        positionCheckInterval = (rate <= 0) ? 0 : 1000000000L / rate;
+    }
+
+    /**
+     * @return How long (nano seconds) each move of the mouse takes including
+     * the position check.
+     */
+    public Histogram getMoveCost() {
+        return moveCost;
+    }
+
+    /**
+     * @return How long (nano seconds) callers of disConnect() waited.
+     */
+    public Histogram getDisconnectStall() {
+        return disconnectStall;
+    }
+
+    /**
+     * @return How long (nano seconds) from a button press (or click) being
+     * sent to the robot pressing the button.
+     */
+    public Histogram getPressLatency() {
+        return pressLatency;
+    }
+
+    /**
+     * @return How long (nano seconds) commands waited in the queue before
+     * the thread did them.
+     */
+    public Histogram getCommandLatency() {
+        return commandLatency;
+    }
+
+    /**
+     * @param button The button
+     * @return The state of the button from the requested and pressed bits.
+     */
+    public ButtonState getButtonState(MouseButton button) {
+        long states = buttons.get();
+        boolean requested = (states & button.getBit()) != 0;
+        boolean pressed = ((states >>> 32) & button.getBit()) != 0;
+        if (requested) {
+            return pressed ? ButtonState.IS_DOWN : ButtonState.REQUEST_DOWN;
+        }
+        return pressed ? ButtonState.REQUEST_UP : ButtonState.IS_UP;
     }
 
     public ButtonState getButtonLeftState() {
-        return buttonLeftState;
+        return getButtonState(MouseButton.LEFT);
     }
 
     public ButtonState getButtonRightState() {
-        return buttonRightState;
+        return getButtonState(MouseButton.RIGHT);
     }
 
     @Override
     public void connect() {
         this.connected = true;
+        send(CommandQueue.Command.CONNECT, 0);
         if (listener != null) {
             listener.connectedMouse();
         }
@@ -231,182 +849,518 @@ public class RobotMouseThread extends Thread implements RobotMouseThreadInterfac
     public void close() {
         stopMouse();
         canRun = false;
+        wake();
     }
 
     @Override
+    public boolean isButtonPressed(MouseButton button) {
+        return getButtonState(button).equals(ButtonState.IS_DOWN);
+    }
+
     public boolean isLeftButtonPressed() {
-        return buttonLeftState.equals(ButtonState.IS_DOWN);
+        return isButtonPressed(MouseButton.LEFT);
     }
 
-    @Override
     public boolean isRightButtonPressed() {
-        return buttonRightState.equals(ButtonState.IS_DOWN);
+        return isButtonPressed(MouseButton.RIGHT);
     }
 
     /**
-     * Press the LEFT mouse button
+     * Request a button change. The requested bit is changed straight away so
+     * other threads see the request. The command is always sent so a press
+     * quickly followed by a release is not lost.
+     */
+    private void request(MouseButton button, boolean down) {
+        int bit = button.getBit();
+        long prev;
+        long next;
+        do {
+            prev = buttons.get();
+            if (((prev & bit) != 0) == down) {
+                return;
+            }
+            next = down ? (prev | bit) : (prev & ~((long) bit));
+        } while (!buttons.compareAndSet(prev, next));
+        send(down ? CommandQueue.Command.PRESS : CommandQueue.Command.RELEASE, bit);
+    }
+
+    /**
+     * Press a mouse button
      *
      * Note the actual call to the robot mouse api is done in the main thread
      * (run method)
      *
-     * ButtonState ensures that the call to the robot only occurs when the state
-     * changes.
+     * The requested bit ensures that the call to the robot only occurs when
+     * the state changes.
+     *
+     * @param button The button
      */
     @Override
-    public void leftButtonPress() {
-        switch (buttonLeftState) {
-            case IS_UP:
-            case REQUEST_UP:
-                buttonLeftState = ButtonState.REQUEST_DOWN;
-        }
+    public void buttonPress(MouseButton button) {
+        request(button, true);
     }
 
     /**
-     * Release the LEFT mouse button
+     * Release a mouse button
      *
      * Note the actual call to the robot mouse api is done in the main thread
      * (run method)
      *
-     * ButtonState ensures that the call to the robot only occurs when the state
-     * changes.
+     * The requested bit ensures that the call to the robot only occurs when
+     * the state changes.
+     *
+     * @param button The button
      */
     @Override
+    public void buttonRelease(MouseButton button) {
+        request(button, false);
+    }
+
+    public void leftButtonPress() {
+        buttonPress(MouseButton.LEFT);
+    }
+
     public void leftButtonRelease() {
-        switch (buttonLeftState) {
-            case IS_DOWN:
-            case REQUEST_DOWN:
-                buttonLeftState = ButtonState.REQUEST_UP;
-        }
+        buttonRelease(MouseButton.LEFT);
+    }
+
+    public void rightButtonPress() {
+        buttonPress(MouseButton.RIGHT);
+    }
+
+    public void rightButtonRelease() {
+        buttonRelease(MouseButton.RIGHT);
     }
 
     /**
-     * Press the RIGHT mouse button
+     * Click the LEFT mouse button
      *
      * Note the actual call to the robot mouse api is done in the main thread
      * (run method)
      *
-     * ButtonState ensures that the call to the robot only occurs when the state
-     * changes.
+     * @param count The number of clicks. 2 is a double click.
      */
     @Override
-    public void rightButtonPress() {
-        switch (buttonRightState) {
-            case IS_UP:
-            case REQUEST_UP:
-                buttonRightState = ButtonState.REQUEST_DOWN;
-        }
+    public void leftButtonClick(int count) {
+        send(CommandQueue.Command.CLICK, count);
     }
 
     /**
-     * Release the RIGHT mouse button
+     * Scroll the mouse wheel
      *
      * Note the actual call to the robot mouse api is done in the main thread
      * (run method)
      *
-     * ButtonState ensures that the call to the robot only occurs when the state
-     * changes.
+     * @param notches negative values scroll up, positive values scroll down.
      */
     @Override
-    public void rightButtonRelease() {
-        switch (buttonRightState) {
-            case IS_DOWN:
-            case REQUEST_DOWN:
-                buttonRightState = ButtonState.REQUEST_UP;
+    public void scroll(int notches) {
+        send(CommandQueue.Command.SCROLL, notches);
+    }
+
+    /**
+     * Scroll the mouse wheel at a rate
+     *
+     * Note the actual call to the robot mouse api is done in the main thread
+     * (run method) each tick.
+     *
+     * @param notchesPerSecond negative values scroll up, positive values
+     * scroll down. 0 stops scrolling.
+     */
+    @Override
+    public void setScrollRate(double notchesPerSecond) {
+        scrollRate = notchesPerSecond;
+        if (notchesPerSecond != 0) {
+            wake();
         }
     }
 
+    public double getScrollRate() {
+        return scrollRate;
+    }
+
     /**
-     * Type a character
+     * Type a key straight away. Use type(String) for text.
+     *
+     * Note the actual call to the robot api is done in the main thread
+     * (run method).
      *
-     * @param i the int value if the key to be typed
+     * @param i the key code (KeyEvent.VK_...) of the key to be typed
      */
     public void type(int i) {
-        if (connected) {
-            robotMouse.delay(40);
-            robotMouse.keyPress(i);
-            robotMouse.keyRelease(i);
-        }
+        send(CommandQueue.Command.TYPE, i);
     }
 
+    @Override
     public void type(String s) {
-        byte[] bytes = s.getBytes();
-        for (byte b : bytes) {
-            int code = b;
-            // keycode only handles [A-Z] (which is ASCII decimal [65-90])
-            if (code > 96 && code < 123) {
-                code = code - 32;
-            }
-            type(code);
+        type(s, null);
+    }
+
+    /**
+     * Type some text. Returns straight away. The text is typed by the thread
+     * one character each key interval after any text already waiting. The
+     * mouse keeps moving and clicking while it types.
+     *
+     * If the mouse is not connected (or is disconnected) the typing is
+     * cancelled.
+     *
+     * @param s The text
+     * @param listener Told how the typing is going. Can be null.
+     * @return The job. Use it to cancel the typing or see how it is going.
+     */
+    public TypingJob type(String s, TypingListener listener) {
+        TypingJob job = new TypingJob(s, listener);
+        typingJobs.add(job);
+        commandSent = true;
+        wake();
+        return job;
+    }
+
+    /**
+     * Cancel the text being typed and any text waiting to be typed.
+     */
+    public void cancelTyping() {
+        for (TypingJob job : typingJobs) {
+            job.cancel();
         }
+        TypingJob job = typing;
+        if (job != null) {
+            job.cancel();
+        }
+        wake();
+    }
+
+    /**
+     * @param ms The time between typed characters.
+     */
+    public void setKeyInterval(int ms) {
+        keyInterval = Math.max(0, ms) * 1000000L;
     }
 
     /**
-     * Sleep until we have a speed
+     * Move the mouse and press or release the buttons once every tick.
      */
     @Override
     public void run() {
-        long timeNow = System.currentTimeMillis();
-        long lastTimeMoved = timeNow;
-        double time;
+        long start = System.nanoTime();
+        tickScheduler.start(start);
+        interpolator.reset(start);
+        boolean tick = true;
+        long lastTick = Long.MIN_VALUE;
         try {
             while (canRun) {
-                if (hasSpeed) {
-                    timeNow = System.currentTimeMillis();
-                    time = (timeNow - lastTimeMoved) / (1000.0);
-                    moveMouseRel(speedX * time, speedY * time);
-                    lastTimeMoved = timeNow;
-                } else {
-                    lastTimeMoved = System.currentTimeMillis();
-                }
+                long now = System.nanoTime();
+                /*
+                Do the commands (buttons, clicks, scrolls and keys) in the
+                order they were sent. This is before the move so a press is
+                not held up by the move.
+                 */
+                runCommands(now);
+                typeNext(now);
                 /*
-            Press or release the LEFT button once when the it's state changes
-            State 1: IS_UP - The steady released state. No action required here.
-            State 2: DOWN - set by calling leftPress() above
-            State 3: IS_DOWN - Set after robot.mousePress is called.
-            ...
-            State 1: IS_DOWN - The steady pressed state. No action required here.
-            State 2: UP - set by calling leftRelease() above
-            State 3: IS_UP - Set after robot.mouseRelease is called.
-            ...
+                If woken early for a command only do the commands. The move
+                and timers wait for the tick.
                  */
-                if (connected) {
-                    switch (buttonLeftState) {
-                        case REQUEST_UP:
-                            robotMouse.mouseRelease(InputEvent.BUTTON1_DOWN_MASK);
-                            buttonLeftState = ButtonState.IS_UP;
-                            break;
-                        case REQUEST_DOWN:
-                            robotMouse.mousePress(InputEvent.BUTTON1_DOWN_MASK);
-                            buttonLeftState = ButtonState.IS_DOWN;
-                            break;
+                if (tick) {
+                    loopTicks.incrementAndGet();
+                    if (lastTick != Long.MIN_VALUE) {
+                        loopPeriod.record(now - lastTick);
+                    }
+                    lastTick = now;
+                    /*
+                    Move for the time since the last tick (and by any moves
+                    from other threads) then give any new speed to the
+                    interpolator so it ramps from now.
+                     */
+                    interpolator.advance(now);
+                    movePointer(now, interpolator.getDx(), interpolator.getDy());
+                    long v = speed.get();
+                    double sx = speedX(v);
+                    double sy = speedY(v);
+                    if ((sx != targetX) || (sy != targetY)) {
+                        targetX = sx;
+                        targetY = sy;
+                        interpolator.setTarget(sx, sy, now);
                     }
+                    boolean moving = hasSpeed(v) || interpolator.isMoving(now);
+                    scrollWheel(now);
                     /*
-            Press or release the RIGHT button once when the it's state changes
-            Same logic as LEFT button
+                    Run any timers that are due then check for a dwell. Then
+                    do any commands they sent so a dwell click happens in
+                    this loop.
                      */
-                    switch (buttonRightState) {
-                        case REQUEST_UP:
-                            robotMouse.mouseRelease(InputEvent.BUTTON3_DOWN_MASK);
-                            buttonRightState = ButtonState.IS_UP;
-                            break;
-                        case REQUEST_DOWN:
-                            robotMouse.mousePress(InputEvent.BUTTON3_DOWN_MASK);
-                            buttonRightState = ButtonState.IS_DOWN;
-                            break;
+                    if (active && (watchdogStop != 0) && !watchdogTimer.isScheduled() && !isDataStopped()
+                            && isWatched(now)) {
+                        timerWheel.schedule(watchdogTimer, lastData + watchdogStop);
                     }
+                    timerWheel.advance(now);
+                    dwellClicker.update(now, mouseX, mouseY, !moving);
+                    runCommands(now);
+                    loopWork.record(System.nanoTime() - now);
                 }
                 if (canRun) {
-                    robotMouse.delay(30);
+                    if (isIdle(System.nanoTime())) {
+                        /*
+                        Nothing to do so park until woken or the next timer
+                        (dwell) is due.
+                         */
+                        idleParks.incrementAndGet();
+                        tickScheduler.idle(timerWheel.nextDeadline());
+                        tick = true;
+                        lastTick = Long.MIN_VALUE;
+                    } else {
+                        tick = tickScheduler.await(hasCommands) != TickScheduler.WOKEN;
+                    }
                 }
             }
         } finally {
             /*
-            Always release the mouse buttons!
+            Always release the mouse buttons! LEFT and RIGHT are released
+            even if the robot did not press them.
              */
-            robotMouse.mouseRelease(InputEvent.BUTTON3_DOWN_MASK);
-            buttonRightState = ButtonState.IS_UP;
-            robotMouse.mouseRelease(InputEvent.BUTTON1_DOWN_MASK);
-            buttonLeftState = ButtonState.IS_UP;
+            int release = pressedButtons | MouseButton.LEFT.getBit() | MouseButton.RIGHT.getBit();
+            for (MouseButton button : MouseButton.buttons()) {
+                if ((release & button.getBit()) != 0) {
+                    robotMouse.release(button.getMask());
+                }
+            }
+            pressedButtons = 0;
+            buttons.set(0);
+            finishTyping();
+            CompletableFuture<Void> done;
+            while ((done = disconnects.poll()) != null) {
+                done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Take the commands off the queue and do them. Only called in the thread.
+     *
+     * @param now The time now
+     */
+    private void runCommands(long now) {
+        commandSent = false;
+        while (commands.peek()) {
+            CommandQueue.Command command = commands.getCommand();
+            int arg = commands.getArg();
+            long sent = commands.getTime();
+            commandLatency.record(System.nanoTime() - sent);
+            commands.remove();
+            switch (command) {
+                case PRESS:
+                case RELEASE:
+                    /*
+                    A button changed again (a press then a release) is
+                    updated first so neither is lost.
+                     */
+                    if ((changedButtons & arg) != 0) {
+                        flushButtons();
+                    }
+                    if (command == CommandQueue.Command.PRESS) {
+                        wantedButtons |= arg;
+                        if (pressSent == Long.MIN_VALUE) {
+                            pressSent = sent;
+                        }
+                    } else {
+                        wantedButtons &= ~arg;
+                    }
+                    changedButtons |= arg;
+                    break;
+                case CONNECT:
+                    if (!connected) {
+                        /*
+                        Disconnected again before the thread got here.
+                         */
+                        break;
+                    }
+                    active = true;
+                    resetPosition();
+                    lastData = System.nanoTime();
+                    dataState.set(DATA_FRESH);
+                    break;
+                case DISCONNECT:
+                    /*
+                    Release the buttons before we stop using the robot. No
+                    move is done after this as the thread is not active and
+                    the interpolator has stopped.
+                     */
+                    wantedButtons = 0;
+                    flushButtons();
+                    active = false;
+                    interpolator.reset(now);
+                    targetX = 0;
+                    targetY = 0;
+                    finishTyping();
+                    CompletableFuture<Void> done = disconnects.poll();
+                    if (done != null) {
+                        done.complete(null);
+                    }
+                    break;
+                case CLICK:
+                    /*
+                    Clicks are only done if the LEFT button is up. Button
+                    changes sent before the click are done first.
+                     */
+                    flushButtons();
+                    if (active && ((pressedButtons & MouseButton.LEFT.getBit()) == 0)) {
+                        pressLatency.record(System.nanoTime() - sent);
+                        for (int i = 0; i < arg; i++) {
+                            robotMouse.press(MouseButton.LEFT.getMask());
+                            robotMouse.release(MouseButton.LEFT.getMask());
+                        }
+                    }
+                    break;
+                case SCROLL:
+                    flushButtons();
+                    if (active && (arg != 0)) {
+                        robotMouse.wheel(arg);
+                    }
+                    break;
+                case TYPE:
+                    flushButtons();
+                    if (active) {
+                        robotMouse.keyPress(arg);
+                        robotMouse.keyRelease(arg);
+                    }
+                    break;
+            }
+        }
+        /*
+        The buttons changed by the commands are pressed and released in one
+        pass after all the commands have been taken.
+         */
+        flushButtons();
+    }
+
+    /**
+     * Update the buttons and record how long the first press took. Only
+     * called in the thread.
+     */
+    private void flushButtons() {
+        updateButtons();
+        if ((pressSent != Long.MIN_VALUE) && (pressedButtons != 0)) {
+            pressLatency.record(System.nanoTime() - pressSent);
+        }
+        changedButtons = 0;
+        pressSent = Long.MIN_VALUE;
+    }
+
+    /**
+     * Scroll the whole notches added up since the last tick. Only called in
+     * the thread.
+     *
+     * The part of a notch left over is kept for the next tick. It is dropped
+     * when the scrolling stops or changes direction. Scrolling starts from the
+     * first tick that has a rate.
+     *
+     * @param now The time now
+     */
+    private void scrollWheel(long now) {
+        double rate = active ? scrollRate : 0;
+        if (rate == 0) {
+            scrollNotches = 0;
+            lastScrollTime = Long.MIN_VALUE;
+            return;
+        }
+        if ((rate < 0) != (scrollNotches < 0)) {
+            scrollNotches = 0;
+        }
+        long time = (lastScrollTime == Long.MIN_VALUE) ? 0 : Math.min(now - lastScrollTime, MAX_SCROLL_TIME);
+        lastScrollTime = now;
+        scrollNotches = scrollNotches + ((rate * time) / 1000000000.0);
+        int notches = (int) scrollNotches;
+        if (notches != 0) {
+            scrollNotches = scrollNotches - notches;
+            robotMouse.wheel(notches);
+        }
+    }
+
+    /**
+     * Type the next character of the text if it is due. Only called in the
+     * thread.
+     *
+     * @param now The time now
+     */
+    private void typeNext(long now) {
+        TypingJob job = typing;
+        if (job == null) {
+            job = typingJobs.poll();
+            if (job == null) {
+                return;
+            }
+            typing = job;
+        }
+        if (!active || !job.hasNext()) {
+            typing = null;
+            job.finish(!active);
+            return;
+        }
+        if (now - nextKeyTime < 0) {
+            return;
+        }
+        int key = job.next();
+        if (key != KeyMap.NONE) {
+            int code = KeyMap.keyCode(key);
+            if (KeyMap.isShift(key)) {
+                robotMouse.keyPress(KeyEvent.VK_SHIFT);
+            }
+            robotMouse.keyPress(code);
+            robotMouse.keyRelease(code);
+            if (KeyMap.isShift(key)) {
+                robotMouse.keyRelease(KeyEvent.VK_SHIFT);
+            }
+        }
+        nextKeyTime = now + keyInterval;
+        if (!job.hasNext()) {
+            typing = null;
+            job.finish(false);
+        }
+    }
+
+    /**
+     * Cancel the text being typed and any waiting. Only called in the thread.
+     */
+    private void finishTyping() {
+        TypingJob job = typing;
+        typing = null;
+        if (job != null) {
+            job.finish(true);
+        }
+        while ((job = typingJobs.poll()) != null) {
+            job.finish(true);
+        }
+    }
+
+    /**
+     * Press or release all the buttons that have changed in one pass. The
+     * buttons are only pressed when connected. Buttons wanted while not
+     * connected are pressed when connected.
+     *
+     * Then set the pressed bits seen by other threads. The requested bits
+     * are not changed.
+     */
+    private void updateButtons() {
+        int wanted = active ? wantedButtons : 0;
+        int changed = wanted ^ pressedButtons;
+        if (changed == 0) {
+            return;
+        }
+        for (MouseButton button : MouseButton.buttons()) {
+            if ((changed & button.getBit()) != 0) {
+                if ((wanted & button.getBit()) != 0) {
+                    robotMouse.press(button.getMask());
+                } else {
+                    robotMouse.release(button.getMask());
+                }
+            }
         }
+        pressedButtons = wanted;
+        long prev;
+        long next;
+        do {
+            prev = buttons.get();
+            next = (prev & REQUESTED_BITS) | ((long) pressedButtons << 32);
+        } while (!buttons.compareAndSet(prev, next));
     }
 }
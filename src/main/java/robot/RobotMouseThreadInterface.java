@@ -56,34 +56,67 @@ public interface RobotMouseThreadInterface {
     boolean isConnected();
 
     /**
-     * Press the LEFT mouse button
+     * Called for each reading from the sensor. This feeds the watchdog that
+     * stops the mouse if the readings stop.
+     *
+     * @return true if the readings had stopped and the watchdog stopped the
+     * mouse. The speeds and buttons must be sent again.
      */
-    void leftButtonPress();
+    boolean dataReceived();
 
     /**
-     * Release the LEFT mouse button
+     * Press a mouse button
+     *
+     * @param button The button
      */
-    void leftButtonRelease();
+    void buttonPress(MouseButton button);
 
     /**
-     * Press the RIGHT mouse button
+     * Release a mouse button
+     *
+     * @param button The button
      */
-    void rightButtonPress();
+    void buttonRelease(MouseButton button);
 
     /**
-     * Release the RIGHT mouse button
-    */
-    void rightButtonRelease();
+     * return the state of a mouse button
+     *
+     * @param button The button
+     * @return true if the button is pressed.
+     */
+    boolean isButtonPressed(MouseButton button);
+
+    /**
+     * Click the LEFT mouse button.
+     *
+     * Does nothing if the button is already pressed.
+     *
+     * @param count The number of clicks. 2 is a double click.
+     */
+    void leftButtonClick(int count);
+
+    /**
+     * Scroll the mouse wheel.
+     *
+     * @param notches negative values scroll up, positive values scroll down.
+     */
+    void scroll(int notches);
 
     /**
-     * return the state of the left mouse button
-    */
-    boolean isLeftButtonPressed();
+     * Keep scrolling the mouse wheel at a rate until the rate is changed.
+     * Parts of a notch are kept so slow rates still scroll.
+     *
+     * @param notchesPerSecond negative values scroll up, positive values
+     * scroll down. 0 stops scrolling.
+     */
+    void setScrollRate(double notchesPerSecond);
 
     /**
-     * return the state of the right mouse button
-    */
-    boolean isRightButtonPressed();
+     * Type some text.
+     *
+     * @param s The text
+     */
+    void type(String s);
 
     /**
      * Set the speed of the mouse in the X direction. 
@@ -109,5 +142,14 @@ public interface RobotMouseThreadInterface {
      * @param y The y value. Zero is the TOP of the screen
      */
     void moveMouseAbs(double x, double y);
+
+    /**
+     * Move the mouse from where it is now. Fractions of a pixel are kept so
+     * small moves add up.
+     *
+     * @param dx The x change. Negative moves left.
+     * @param dy The y change. Negative moves up.
+     */
+    void moveMouseRel(double dx, double dy);
     
 }
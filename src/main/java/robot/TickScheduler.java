@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.LockSupport;
+import metrics.Histogram;
+
+/**
+ * Wait for regular ticks at a fixed rate (for example 120 per second).
+ *
+ * Deadlines are in System.nanoTime() and each deadline is the previous
+ * deadline plus the period, NOT the time we woke up plus the period. So
+ * time lost waking up late is not added to every tick (drift correction).
+ *
+ * If the work for a tick finishes after the next deadline the deadline is
+ * missed. If it is less than a period late the next tick happens straight
+ * away to catch up. If it is more than a period late the ticks start again
+ * from now so there is no burst of ticks.
+ *
+ * The jitter is how late (nano seconds) each tick actually started.
+ *
+ * When there is no work the thread can be parked with idle() until it is
+ * woken (LockSupport.unpark) or a deadline passes. Ticks start again after
+ * an idle so the idle time is not counted as missed ticks.
+ *
+ * Urgent work (button presses) can cut a wait short with
+ * await(BooleanSupplier). The tick is still due at the same deadline.
+ *
+ * This class is NOT thread safe. It is used by one thread.
+ */
+public class TickScheduler {
+
+    /**
+     * Returned by await(BooleanSupplier) when it returns early for urgent
+     * work and not for a tick.
+     */
+    public static final long WOKEN = Long.MIN_VALUE;
+    private static final BooleanSupplier NEVER = () -> false;
+
+    private final long period;
+    private final Histogram jitter;
+    private final AtomicLong missed;
+    private long deadline;
+
+    /**
+     * @param rate Ticks per second.
+     * @param jitter Records how late each tick is.
+     * @param missed Counts missed deadlines.
+     */
+    public TickScheduler(int rate, Histogram jitter, AtomicLong missed) {
+        if (rate <= 0) {
+            throw new RobotMouseException("Tick rate must be more than 0. It is " + rate);
+        }
+        this.period = 1000000000L / rate;
+        this.jitter = jitter;
+        this.missed = missed;
+    }
+
+    /**
+     * Start the ticks. The first tick is one period after now.
+     *
+     * @param now The time now (System.nanoTime())
+     */
+    public void start(long now) {
+        deadline = now + period;
+    }
+
+    /**
+     * Wait for the next tick.
+     *
+     * @return The time (System.nanoTime()) of the tick.
+     */
+    public long await() {
+        return await(NEVER);
+    }
+
+    /**
+     * Wait for the next tick but return early if the thread is woken
+     * (LockSupport.unpark) and there is urgent work. The deadline is not
+     * changed so the next call waits for the same tick.
+     *
+     * @param urgent Checked each time the thread wakes. Must not create
+     * objects as it is called often.
+     * @return The time (System.nanoTime()) of the tick or WOKEN if it
+     * returned early.
+     */
+    public long await(BooleanSupplier urgent) {
+        long now = System.nanoTime();
+        long late = now - deadline;
+        if (late > 0) {
+            missed.incrementAndGet();
+            if (late >= period) {
+                deadline = now + period;
+            } else {
+                deadline = deadline + period;
+            }
+            return now;
+        }
+        /*
+        parkNanos can return early so keep parking until the deadline.
+         */
+        while (late < 0) {
+            if (urgent.getAsBoolean()) {
+                return WOKEN;
+            }
+            LockSupport.parkNanos(-late);
+            now = System.nanoTime();
+            late = now - deadline;
+        }
+        jitter.record(late);
+        deadline = deadline + period;
+        return now;
+    }
+
+    /**
+     * Park the thread until it is woken (LockSupport.unpark) or the wake up
+     * time. The ticks start again from when it wakes.
+     *
+     * The thread may also wake for no reason so the caller must check if
+     * there is work to do and call idle() again if not.
+     *
+     * @param wakeAt The time (System.nanoTime()) to wake up. Long.MAX_VALUE
+     * to wait until woken.
+     * @return The time (System.nanoTime()) the thread woke up.
+     */
+    public long idle(long wakeAt) {
+        if (wakeAt == Long.MAX_VALUE) {
+            LockSupport.park(this);
+        } else {
+            long wait = wakeAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+        long now = System.nanoTime();
+        start(now);
+        return now;
+    }
+
+    /**
+     * @return The time between ticks in nano seconds.
+     */
+    public long getPeriod() {
+        return period;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.Point;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * A PointerBackend that times each call to another backend.
+ *
+ * The time inside each kind of call is recorded in its own histogram
+ * (robot.call.move, robot.call.press and so on) so the cost of the Robot on
+ * different desktops can be seen and the tick rate tuned. Timing a call is two
+ * System.nanoTime() calls and creates no objects.
+ */
+public class TimedBackend implements PointerBackend {
+
+    private final PointerBackend backend;
+    private final Histogram moveTime = Metrics.histogram("robot.call.move");
+    private final Histogram pressTime = Metrics.histogram("robot.call.press");
+    private final Histogram releaseTime = Metrics.histogram("robot.call.release");
+    private final Histogram wheelTime = Metrics.histogram("robot.call.wheel");
+    private final Histogram keyTime = Metrics.histogram("robot.call.key");
+    private final Histogram locationTime = Metrics.histogram("robot.call.location");
+
+    /**
+     * @param backend The backend that does the work.
+     */
+    public TimedBackend(PointerBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void move(int x, int y) {
+        long start = System.nanoTime();
+        backend.move(x, y);
+        moveTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void press(int buttons) {
+        long start = System.nanoTime();
+        backend.press(buttons);
+        pressTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void release(int buttons) {
+        long start = System.nanoTime();
+        backend.release(buttons);
+        releaseTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void wheel(int notches) {
+        long start = System.nanoTime();
+        backend.wheel(notches);
+        wheelTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+        long start = System.nanoTime();
+        backend.keyPress(keyCode);
+        keyTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+        long start = System.nanoTime();
+        backend.keyRelease(keyCode);
+        keyTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public Point getLocation() {
+        long start = System.nanoTime();
+        Point p = backend.getLocation();
+        locationTime.record(System.nanoTime() - start);
+        return p;
+    }
+}
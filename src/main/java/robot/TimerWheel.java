@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+/**
+ * A hashed timer wheel.
+ *
+ * Timers are put in a slot of the wheel based on their deadline. Each time
+ * the wheel is advanced only the slots that have passed are looked at so the
+ * cost does not depend on how many timers there are.
+ *
+ * Schedule and cancel are constant time. Timers are linked in to the slots
+ * so no objects are created when timers are scheduled.
+ *
+ * The wheel is NOT thread safe. It is owned by the RobotMouseThread and is
+ * advanced in its run method. All timers run in that thread.
+ */
+public class TimerWheel {
+
+    /**
+     * A timer that can be scheduled on the wheel.
+     *
+     * The same timer can be scheduled again after it has expired. Scheduling
+     * a timer that is already scheduled moves it.
+     */
+    public abstract static class Timer {
+
+        private long deadline;
+        private long scheduledIn;
+        private int slot = -1;
+        private Timer next;
+        private Timer prev;
+
+        /**
+         * Called by the wheel when the deadline has passed.
+         *
+         * @param now The time the wheel was advanced to.
+         */
+        protected abstract void expired(long now);
+
+        public boolean isScheduled() {
+            return slot >= 0;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    private final long resolution;
+    private final Timer[] slots;
+    private final int mask;
+    private long currentTick;
+    private long advances = 0;
+    private int scheduled = 0;
+
+    /**
+     * @param resolution The time covered by each slot.
+     * @param slotCount The number of slots. Rounded up to a power of 2.
+     * @param now The time now.
+     */
+    public TimerWheel(long resolution, int slotCount, long now) {
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.resolution = resolution;
+        this.slots = new Timer[size];
+        this.mask = size - 1;
+        this.currentTick = tickOf(now);
+    }
+
+    /**
+     * Schedule a timer. If it is already scheduled it is moved.
+     *
+     * @param timer The timer
+     * @param deadline The time the timer should expire
+     */
+    public void schedule(Timer timer, long deadline) {
+        cancel(timer);
+        timer.deadline = deadline;
+        timer.scheduledIn = advances;
+        /*
+        A deadline in the past goes in the current slot so it is expired
+        the next time the wheel is advanced.
+         */
+        int slot = (int) (Math.max(tickOf(deadline), currentTick) & mask);
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = slots[slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        slots[slot] = timer;
+        scheduled++;
+    }
+
+    /**
+     * Cancel a timer. Does nothing if it is not scheduled.
+     *
+     * @param timer The timer
+     */
+    public void cancel(Timer timer) {
+        if (timer.slot < 0) {
+            return;
+        }
+        if (timer.prev == null) {
+            slots[timer.slot] = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.next = null;
+        timer.prev = null;
+        timer.slot = -1;
+        scheduled--;
+    }
+
+    /**
+     * Expire all timers with a deadline at or before now.
+     *
+     * Each slot between the last advance and now is visited once. If more
+     * time has passed than the wheel covers then each slot is only visited
+     * once.
+     *
+     * A timer that is scheduled by another timer while the wheel is being
+     * advanced is not expired until the next advance.
+     *
+     * @param now The time now.
+     */
+    public void advance(long now) {
+        advances++;
+        long nowTick = tickOf(now);
+        long ticks = Math.min(nowTick - currentTick, slots.length - 1);
+        for (long t = nowTick - ticks; t <= nowTick; t++) {
+            expireSlot((int) (t & mask), now);
+        }
+        currentTick = nowTick;
+    }
+
+    /**
+     * Find the earliest deadline.
+     *
+     * This looks at every slot so only use it when there is nothing else to
+     * do (for example before the thread is parked).
+     *
+     * @return The earliest deadline. Long.MAX_VALUE if no timers are
+     * scheduled.
+     */
+    public long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        if (scheduled == 0) {
+            return next;
+        }
+        for (Timer slot : slots) {
+            for (Timer timer = slot; timer != null; timer = timer.next) {
+                next = Math.min(next, timer.deadline);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return The number of timers scheduled.
+     */
+    public int size() {
+        return scheduled;
+    }
+
+    private void expireSlot(int slot, long now) {
+        Timer timer = slots[slot];
+        while (timer != null) {
+            if ((timer.deadline <= now) && (timer.scheduledIn < advances)) {
+                cancel(timer);
+                timer.expired(now);
+                /*
+                The timer may have changed the slot so start it again.
+                 */
+                timer = slots[slot];
+            } else {
+                timer = timer.next;
+            }
+        }
+    }
+
+    private long tickOf(long time) {
+        return Math.floorDiv(time, resolution);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+/**
+ * Some text to be typed by the RobotMouseThread.
+ *
+ * The text is typed one character at a time with a gap between each so the
+ * thread can keep moving the mouse and clicking while it types. Characters
+ * that KeyMap cannot type are skipped.
+ *
+ * cancel() can be called from any thread.
+ */
+public class TypingJob {
+
+    private final String text;
+    private final TypingListener listener;
+    private volatile boolean cancelled = false;
+    private volatile boolean done = false;
+    private volatile int typed = 0;
+    private int skipped = 0;
+
+    /**
+     * @param text The text to type
+     * @param listener Told how the typing is going. Can be null.
+     */
+    public TypingJob(String text, TypingListener listener) {
+        this.text = text;
+        this.listener = listener;
+    }
+
+    /**
+     * Stop typing. Characters already typed are not undone.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true when all the text has been typed or the job was cancelled.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return The number of characters done so far.
+     */
+    public int getTyped() {
+        return typed;
+    }
+
+    /**
+     * @return The number of characters that could not be typed.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /*
+    The methods below are only called in the RobotMouseThread.
+     */
+    boolean hasNext() {
+        return !cancelled && (typed < text.length());
+    }
+
+    /**
+     * @return The KeyMap value for the next character. The character is
+     * counted as typed.
+     */
+    int next() {
+        int key = KeyMap.keyFor(text.charAt(typed));
+        if (key == KeyMap.NONE) {
+            skipped++;
+        }
+        typed++;
+        if (listener != null) {
+            listener.progress(typed, text.length());
+        }
+        return key;
+    }
+
+    void finish(boolean cancel) {
+        if (cancel) {
+            cancelled = true;
+        }
+        done = true;
+        if (listener != null) {
+            listener.finished(typed, text.length(), cancelled);
+        }
+    }
+}
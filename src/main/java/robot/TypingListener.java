@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+/**
+ * Told how typing is going. The methods are called in the RobotMouseThread
+ * so they must be quick. GUI code must use Platform.runLater.
+ */
+public interface TypingListener {
+
+    /**
+     * Called after each character.
+     *
+     * @param typed The number of characters done so far
+     * @param total The number of characters in the text
+     */
+    void progress(int typed, int total);
+
+    /**
+     * Called once when the typing has finished or was cancelled.
+     *
+     * @param typed The number of characters done
+     * @param total The number of characters in the text
+     * @param cancelled true if it was cancelled (or the mouse disconnected)
+     */
+    void finished(int typed, int total, boolean cancelled);
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+/**
+ * Smooth the mouse velocity between speed commands.
+ *
+ * The MouseController sends a new speed for each sensor reading (about 100 a
+ * second, with jitter and gaps). The robot thread ticks faster than that so
+ * without interpolation the speed changes in steps. Here the velocity ramps
+ * from where it is now to the new speed over the time between the last two
+ * commands, so it arrives at the new speed about when the next command is
+ * expected.
+ *
+ * The distance moved in a tick is the average of the velocity at the start
+ * and end of the tick times the tick time. The caller keeps the position as
+ * a double so fractions of a pixel add up.
+ *
+ * Times are System.nanoTime() values. Velocities are pixels per second.
+ * No objects are created. This class is NOT thread safe. It is used by the
+ * robot thread.
+ */
+public class VelocityInterpolator {
+
+    private final boolean enabled;
+    private final long minInterval;
+    private final long maxInterval;
+
+    private double fromX;
+    private double fromY;
+    private double toX;
+    private double toY;
+    private long rampStart;
+    private long rampTime = 0;
+    private long lastCommand;
+    private boolean hasCommand = false;
+    private long lastAdvance;
+    private double dx;
+    private double dy;
+
+    /**
+     * @param enabled false and the velocity changes straight away (steps).
+     * @param minInterval The shortest ramp time (nano seconds).
+     * @param maxInterval The longest ramp time (nano seconds). Longer gaps
+     * between commands (radio gaps) use this.
+     */
+    public VelocityInterpolator(boolean enabled, long minInterval, long maxInterval) {
+        this.enabled = enabled;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * A new speed command.
+     *
+     * @param vx The x velocity
+     * @param vy The y velocity
+     * @param time The time of the command
+     */
+    public void setTarget(double vx, double vy, long time) {
+        /*
+        Start the ramp from the velocity now so there is no jump.
+         */
+        fromX = velocityX(time);
+        fromY = velocityY(time);
+        toX = vx;
+        toY = vy;
+        rampStart = time;
+        if (enabled && hasCommand) {
+            rampTime = Math.max(minInterval, Math.min(maxInterval, time - lastCommand));
+        } else {
+            rampTime = 0;
+        }
+        lastCommand = time;
+        hasCommand = true;
+    }
+
+    /**
+     * Start again with no velocity. The next advance does not move.
+     *
+     * @param now The time now
+     */
+    public void reset(long now) {
+        fromX = 0;
+        fromY = 0;
+        toX = 0;
+        toY = 0;
+        rampTime = 0;
+        hasCommand = false;
+        lastAdvance = now;
+    }
+
+    /**
+     * Work out the distance moved since the last advance. Use getDx() and
+     * getDy() for the result.
+     *
+     * @param now The time now
+     */
+    public void advance(long now) {
+        double seconds = (now - lastAdvance) / 1000000000.0;
+        if (seconds <= 0) {
+            dx = 0;
+            dy = 0;
+            return;
+        }
+        /*
+        The velocity is a straight line during the ramp so the trapezoid is
+        exact unless the ramp ends inside the tick. Split it there.
+         */
+        long rampEnd = rampStart + rampTime;
+        if ((lastAdvance < rampEnd) && (now > rampEnd)) {
+            double s1 = (rampEnd - lastAdvance) / 1000000000.0;
+            double s2 = (now - rampEnd) / 1000000000.0;
+            dx = ((velocityX(lastAdvance) + toX) / 2 * s1) + (toX * s2);
+            dy = ((velocityY(lastAdvance) + toY) / 2 * s1) + (toY * s2);
+        } else {
+            dx = (velocityX(lastAdvance) + velocityX(now)) / 2 * seconds;
+            dy = (velocityY(lastAdvance) + velocityY(now)) / 2 * seconds;
+        }
+        lastAdvance = now;
+    }
+
+    private double fraction(long time) {
+        if ((rampTime <= 0) || (time >= rampStart + rampTime)) {
+            return 1.0;
+        }
+        if (time <= rampStart) {
+            return 0.0;
+        }
+        return (time - rampStart) / (double) rampTime;
+    }
+
+    /**
+     * @param time A time
+     * @return The x velocity at the time
+     */
+    public double velocityX(long time) {
+        return fromX + ((toX - fromX) * fraction(time));
+    }
+
+    /**
+     * @param time A time
+     * @return The y velocity at the time
+     */
+    public double velocityY(long time) {
+        return fromY + ((toY - fromY) * fraction(time));
+    }
+
+    /**
+     * @param now The time now
+     * @return true if the mouse is moving now or will move (ramp not done).
+     */
+    public boolean isMoving(long now) {
+        return (toX != 0) || (toY != 0) || (velocityX(now) != 0) || (velocityY(now) != 0);
+    }
+
+    public double getDx() {
+        return dx;
+    }
+
+    public double getDy() {
+        return dy;
+    }
+}
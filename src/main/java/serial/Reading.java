@@ -52,6 +52,21 @@ public class Reading {
      * @Throws ReadingException is the data is not valid
      */
     public static Reading parse(String data, boolean swapLR, boolean swapUD) {
+        return parse(data, swapLR, swapUD, System.currentTimeMillis());
+    }
+
+    /**
+     * Factory method to return a reading from the sensor data with a given
+     * time stamp. Used when replaying recorded sensor data.
+     *
+     * @param data the sensor data
+     * @param swapLR flag if need to swap left and right buttons.
+     * @param swapUD flag if need to swap up and down movement.
+     * @param timestamp The time (ms) of the reading
+     * @return The Reading.
+     * @Throws ReadingException is the data is not valid
+     */
+    public static Reading parse(String data, boolean swapLR, boolean swapUD, long timestamp) {
         if (data == null) {
             return null;
         }
@@ -74,9 +89,9 @@ public class Reading {
                 y = -y;
             }
             if (swapLR) {
-                return new Reading(x, -y, h, b2S, b1S, b1R, b2R);
+                return new Reading(x, -y, h, b2S, b1S, b1R, b2R, timestamp);
             } else {
-                return new Reading(x, -y, h, b1S, b2S, b1R, b2R);
+                return new Reading(x, -y, h, b1S, b2S, b1R, b2R, timestamp);
             }
         } catch (Exception ex) {
             throw new ReadingException(("Failed to read ["+data+"]"), ex);
@@ -90,8 +105,8 @@ public class Reading {
     @Override
     public String toString() {
         return "Reading{" 
-                + "x=" + df2.format(getX()) 
-                + ", y=" + df2.format(getY()) 
+                + "x=" + DF2.get().format(getX()) 
+                + ", y=" + DF2.get().format(getY()) 
                 + ", h=" + getHeading()
                 + ", b1S=" + b1S
                 + ", b2S=" + b2S
@@ -100,7 +115,11 @@ public class Reading {
                 + "}";
     }
 
-    private static DecimalFormat df2 = new DecimalFormat("000000.0");
+    /*
+    DecimalFormat is not thread safe and readings are formatted by the sensor
+    thread and the GUI so each thread has its own.
+     */
+    private static final ThreadLocal<DecimalFormat> DF2 = ThreadLocal.withInitial(() -> new DecimalFormat("000000.0"));
 
 /**
  * Create a Reading
@@ -111,8 +130,9 @@ public class Reading {
  * @param b2S The B|A button state on the sensor (B if not swapped)
  * @param b1R The A|B button state on the receiver (A if not swapped, false if no receiver)
  * @param b2R The B|A button state on the receiver (A if not swapped, false if no receiver)
+ * @param timestamp The time (ms) of the reading
  */
-    private Reading(double x, double y, double heading, boolean b1S, boolean b2S, boolean b1R, boolean b2R) {
+    private Reading(double x, double y, double heading, boolean b1S, boolean b2S, boolean b1R, boolean b2R, long timestamp) {
         this.x = x;
         this.y = y;
         this.heading = heading;
@@ -120,7 +140,7 @@ public class Reading {
         this.b2S = b2S;
         this.b1R = b1R;
         this.b2R = b2R;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
     }
 
     public double getX() {
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replay recorded sensor data to a SerialPortListener.
+ *
+ * The data is the raw data from the sensor, one reading per line. This is the
+ * format written to the console when debug.sensordata=true. Blank lines and
+ * lines that start with '#' are ignored.
+ *
+ * The data is parsed once when the source is created. Each reading is given a
+ * time stamp 'interval' ms after the one before so the replay does not depend
+ * on when it is run.
+ *
+ * Used to test and benchmark the code downstream of the sensor without the
+ * sensor connected.
+ */
+public class ReplaySource {
+
+    private final Reading[] readings;
+
+    /**
+     * @param lines The raw sensor data
+     * @param swapLR flag if need to swap left and right buttons.
+     * @param swapUD flag if need to swap up and down movement.
+     * @param startTime The time stamp (ms) of the first reading
+     * @param interval The time (ms) between readings
+     * @throws ReadingException if any of the data is invalid
+     */
+    public ReplaySource(List<String> lines, boolean swapLR, boolean swapUD, long startTime, long interval) {
+        List<Reading> list = new ArrayList<>();
+        long timestamp = startTime;
+        for (String line : lines) {
+            String data = line.trim();
+            if ((data.length() > 0) && (!data.startsWith("#"))) {
+                list.add(Reading.parse(data, swapLR, swapUD, timestamp));
+                timestamp = timestamp + interval;
+            }
+        }
+        this.readings = list.toArray(new Reading[list.size()]);
+    }
+
+    /**
+     * Load the recorded sensor data from a file.
+     *
+     * @param fileName The name of the file
+     * @param swapLR flag if need to swap left and right buttons.
+     * @param swapUD flag if need to swap up and down movement.
+     * @param interval The time (ms) between readings
+     * @return The replay source
+     * @throws SerialMonitorException if the file cannot be read.
+     */
+    public static ReplaySource load(String fileName, boolean swapLR, boolean swapUD, long interval) {
+        try {
+            return new ReplaySource(Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8), swapLR, swapUD, 0, interval);
+        } catch (IOException ex) {
+            throw new SerialMonitorException("Failed to read replay file [" + fileName + "]", ex);
+        }
+    }
+
+    /**
+     * Pass every reading to the listener as fast as possible.
+     *
+     * @param listener The listener
+     * @return The number of readings passed to the listener
+     */
+    public int replay(SerialPortListener listener) {
+        for (Reading reading : readings) {
+            listener.reading(reading);
+        }
+        return readings.length;
+    }
+
+    /**
+     * Replay the readings a number of times and time it.
+     *
+     * The first pass is not timed. It lets the JIT compile the listener.
+     *
+     * @param listener The listener
+     * @param passes The number of timed passes
+     * @return The average time for each reading in nano seconds
+     */
+    public double benchmark(SerialPortListener listener, int passes) {
+        replay(listener);
+        long start = System.nanoTime();
+        long count = 0;
+        for (int i = 0; i < passes; i++) {
+            count = count + replay(listener);
+        }
+        return (System.nanoTime() - start) / (double) Math.max(1, count);
+    }
+
+    /**
+     * @return The number of readings
+     */
+    public int size() {
+        return readings.length;
+    }
+
+    /**
+     * @param index The index of the reading
+     * @return The reading
+     */
+    public Reading get(int index) {
+        return readings[index];
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package keyboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WordPredictorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPredict() throws Exception {
+        File words = folder.newFile("words.txt");
+        Files.write(words.toPath(), Arrays.asList("# comment", "hello 100", "help 50", "helmet", ""), StandardCharsets.UTF_8);
+        File history = new File(folder.getRoot(), "history.txt");
+        WordPredictor predictor = new WordPredictor(words.getPath(), history.getPath(), 1000, 3);
+        String[] out = new String[3];
+        assertEquals(0, predictor.predict("", out));
+        assertEquals(3, predictor.predict("hel", out));
+        assertArrayEquals(new String[]{"hello", "help", "helmet"}, out);
+        /*
+        A word the user types comes first and is kept in the history.
+         */
+        predictor.learn("Helium!");
+        predictor.learn("a"); // Too short
+        assertEquals(3, predictor.predict("hel", out));
+        assertEquals("helium", out[0]);
+        assertFalse(history.exists());
+        assertTrue(predictor.save().get());
+        assertEquals(Arrays.asList("helium"), Files.readAllLines(history.toPath(), StandardCharsets.UTF_8));
+        /*
+        Loaded again with the history.
+         */
+        WordPredictor again = new WordPredictor(words.getPath(), history.getPath(), 1000, 3);
+        again.predict("he", out);
+        assertEquals("helium", out[0]);
+    }
+
+    @Test
+    public void testMissingFiles() {
+        File none = new File(folder.getRoot(), "none.txt");
+        WordPredictor predictor = new WordPredictor(none.getPath(), null, 1000, 3);
+        assertEquals(0, predictor.getTrie().size());
+        predictor.learn("word");
+        assertEquals(1, predictor.getTrie().size());
+    }
+
+    @Test
+    public void testHistoryNotWritten() throws Exception {
+        /*
+        The history cannot be written (the folder does not exist). The word
+        is still predicted and nothing is thrown.
+         */
+        File history = new File(folder.getRoot(), "missing/history.txt");
+        WordPredictor predictor = new WordPredictor(null, history.getPath(), 1000, 3);
+        predictor.learn("hello");
+        predictor.learn("help");
+        assertFalse(predictor.save().get());
+        assertFalse(history.exists());
+        String[] out = new String[3];
+        assertEquals(2, predictor.predict("hel", out));
+        assertTrue(predictor.save().get()); // Nothing new to save
+    }
+
+    @Test(expected = config.ConfigException.class)
+    public void testBadCount() throws IOException {
+        File words = folder.newFile("bad.txt");
+        Files.write(words.toPath(), Arrays.asList("hello lots"), StandardCharsets.UTF_8);
+        new WordPredictor(words.getPath(), null, 1000, 3);
+    }
+
+    @Test
+    public void testWordFile() {
+        /*
+        The word file that comes with the application.
+         */
+        WordPredictor predictor = new WordPredictor("words.txt", null, 1000, 4);
+        String[] out = new String[4];
+        assertEquals(4, predictor.predict("th", out));
+        assertEquals("the", out[0]);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package keyboard;
+
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class WordTrieTest {
+
+    @Test
+    public void testComplete() {
+        WordTrie trie = new WordTrie(3);
+        trie.add("the", 100);
+        trie.add("then", 20);
+        trie.add("them", 30);
+        trie.add("there", 25);
+        trie.add("this", 50);
+        trie.add("The", 5); // Same word
+        assertEquals(5, trie.size());
+        assertEquals(105, trie.getCount("the"));
+        assertEquals(0, trie.getCount("th"));
+        String[] out = new String[3];
+        assertEquals(3, trie.complete("th", out));
+        assertArrayEquals(new String[]{"the", "this", "them"}, out);
+        assertEquals(3, trie.complete("THE", out));
+        assertArrayEquals(new String[]{"the", "them", "there"}, out);
+        assertEquals(0, trie.complete("x", out));
+        String[] two = new String[2];
+        assertEquals(2, trie.complete("the", two));
+        assertArrayEquals(new String[]{"the", "them"}, two);
+    }
+
+    @Test
+    public void testPromote() {
+        WordTrie trie = new WordTrie(2);
+        trie.add("apple", 10);
+        trie.add("apply", 5);
+        trie.add("ape", 1);
+        String[] out = new String[2];
+        trie.complete("ap", out);
+        assertArrayEquals(new String[]{"apple", "apply"}, out);
+        /*
+        Using a word moves it up.
+         */
+        trie.add("ape", 20);
+        trie.complete("ap", out);
+        assertArrayEquals(new String[]{"ape", "apple"}, out);
+        assertEquals(1, trie.complete("ape", out));
+    }
+
+    /*
+    A trie of 50000 made up words still gives the most used words first.
+     */
+    @Test
+    public void testManyWords() {
+        WordTrie trie = largeTrie();
+        assertTrue(trie.getNodeCount() > trie.size());
+        String[] out = new String[4];
+        assertEquals(4, trie.complete("a", out));
+        for (int i = 1; i < out.length; i++) {
+            assertTrue(out[i - 1].startsWith("a"));
+            assertTrue(trie.getCount(out[i - 1]) >= trie.getCount(out[i]));
+        }
+    }
+
+    /*
+    Time the lookups in a trie of 50000 made up words. Timings depend on the
+    machine so this is run by hand.
+     */
+    @Ignore("Benchmark")
+    @Test
+    public void testSpeed() {
+        WordTrie trie = largeTrie();
+        String[] prefixes = {"a", "qu", "th", "str", "zzz", "mo", "b", "ele"};
+        String[] out = new String[4];
+        int found = 0;
+        for (int i = 0; i < 100000; i++) {
+            found += trie.complete(prefixes[i % prefixes.length], out);
+        }
+        long start = System.nanoTime();
+        int passes = 1000000;
+        for (int i = 0; i < passes; i++) {
+            found += trie.complete(prefixes[i % prefixes.length], out);
+        }
+        double ns = (System.nanoTime() - start) / (double) passes;
+        System.out.println(String.format("Word trie: %d words %d nodes, lookup %.0fns", trie.size(), trie.getNodeCount(), ns));
+        assertTrue(found > 0);
+    }
+
+    private static WordTrie largeTrie() {
+        WordTrie trie = new WordTrie(4);
+        java.util.Random random = new java.util.Random(1);
+        char[] word = new char[8];
+        for (int i = 0; i < 50000; i++) {
+            int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word[j] = (char) ('a' + random.nextInt(26));
+            }
+            trie.add(new String(word, 0, length), 1 + random.nextInt(1000));
+        }
+        return trie;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package metrics;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testEmpty() {
+        Histogram h = new Histogram("empty");
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMin());
+        assertEquals(0, h.getMax());
+        assertEquals(0, h.getPercentile(50));
+        assertEquals(0.0, h.getMean(), 0.0);
+    }
+
+    @Test
+    public void testValues() {
+        Histogram h = new Histogram("values");
+        for (int i = 1; i <= 100; i++) {
+            h.record(i);
+        }
+        h.record(-5); // Counted as 0
+        assertEquals(101, h.getCount());
+        assertEquals(0, h.getMin());
+        assertEquals(100, h.getMax());
+        assertEquals(5050, h.getTotal());
+        assertEquals(50.0, h.getMean(), 0.001);
+        /*
+        50 is in the bucket 32..63
+         */
+        assertEquals(63, h.getPercentile(50));
+        assertEquals(100, h.getPercentile(99)); // Not more than max
+        assertEquals(0, h.getPercentile(0));
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+    }
+
+    @Test
+    public void testMetrics() {
+        assertSame(Metrics.histogram("test.histogram"), Metrics.histogram("test.histogram"));
+        Metrics.counter("test.counter").addAndGet(3);
+        Metrics.histogram("test.histogram").record(2000);
+        assertTrue(Metrics.report().contains("test.counter: 3"));
+        assertTrue(Metrics.report().contains("test.histogram: count 1 mean 2.0us"));
+        Metrics.valueHistogram("test.pixels").record(5);
+        assertFalse(Metrics.valueHistogram("test.pixels").isTimes());
+        assertTrue(Metrics.report().contains("test.pixels: count 1 mean 5.0 p50 5"));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import java.awt.Rectangle;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class AbsolutePointerTest {
+
+    @Test
+    public void testMapping() {
+        AbsolutePointer p = new AbsolutePointer(new Rectangle(0, 0, 1000, 800), 20, 200, 1.0, 0.25);
+        p.update(0, 0);
+        assertEquals(500, p.getX(), 0.001);
+        assertEquals(400, p.getY(), 0.001);
+        p.update(10, 100); // Half way to the top left of the active zone
+        assertEquals(250, p.getX(), 0.001);
+        assertEquals(600, p.getY(), 0.001);
+        p.update(-40, -400); // Past the edge of the active zone
+        assertEquals(999, p.getX(), 0.001);
+        assertEquals(0, p.getY(), 0.001);
+    }
+
+    @Test
+    public void testSmoothing() {
+        AbsolutePointer p = new AbsolutePointer(new Rectangle(0, 0, 1000, 800), 20, 200, 0.5, 0.25);
+        p.update(0, 0);
+        assertEquals(500, p.getX(), 0.001); // First position is not smoothed
+        p.update(-10, 0);
+        assertEquals(625, p.getX(), 0.001);
+        p.update(-10, 0);
+        assertEquals(687.5, p.getX(), 0.001);
+        p.reset();
+        p.update(0, 0);
+        assertEquals(500, p.getX(), 0.001);
+    }
+
+    @Test
+    public void testPrecision() {
+        AbsolutePointer p = new AbsolutePointer(new Rectangle(0, 0, 1000, 800), 20, 200, 1.0, 0.25);
+        p.update(4, 0);
+        assertEquals(400, p.getX(), 0.001);
+        p.setPrecision(true);
+        p.update(0, 40);
+        assertEquals(425, p.getX(), 0.001);
+        assertEquals(420, p.getY(), 0.001);
+        p.setPrecision(false);
+        p.update(0, 40);
+        assertEquals(500, p.getX(), 0.001);
+        assertEquals(480, p.getY(), 0.001);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import serial.Reading;
+
+public class CalibrationTest {
+
+    @Test
+    public void testHeadingWrap() {
+        Calibration c = new Calibration(10);
+        /*
+        Readings either side of 0/360 and one wild reading
+         */
+        c.add(Reading.parse("0,0,358,0,0,0,0:", false, true));
+        c.add(Reading.parse("0,0,359,0,0,0,0:", false, true));
+        c.add(Reading.parse("0,0,1,0,0,0,0:", false, true));
+        c.add(Reading.parse("0,0,0,0,0,0,0:", false, true));
+        c.add(Reading.parse("0,0,90,0,0,0,0:", false, true));
+        assertEquals(0, c.getHeadingCentre());
+        c.add(Reading.parse("0,0,358,0,0,0,0:", false, true));
+        c.add(Reading.parse("0,0,357,0,0,0,0:", false, true));
+        assertEquals(359, c.getHeadingCentre());
+        assertEquals(7, c.size());
+    }
+
+    @Test
+    public void testVertical() {
+        Calibration c = new Calibration(5);
+        assertTrue(c.add(Reading.parse("0,100,0,0,0,0,0:", false, true)));
+        assertTrue(c.add(Reading.parse("0,110,0,0,0,0,0:", false, true)));
+        assertTrue(c.add(Reading.parse("0,-900,0,0,0,0,0:", false, true)));
+        assertTrue(c.add(Reading.parse("0,90,0,0,0,0,0:", false, true)));
+        assertTrue(c.add(Reading.parse("0,105,0,0,0,0,0:", false, true)));
+        assertFalse(c.add(Reading.parse("0,105,0,0,0,0,0:", false, true)));
+        assertEquals(100, c.getVerticalCentre());
+        assertEquals(5, c.size());
+    }
+
+    @Test
+    public void testNoise() {
+        Calibration c = new Calibration(100);
+        for (int i = 0; i < 100; i++) {
+            c.add(Reading.parse("0," + (i % 10) * 2 + ",0,0,0,0,0:", false, true));
+        }
+        assertEquals(10, c.getVerticalCentre());
+        assertEquals(8.0, c.getVerticalNoise(), 0.001);
+        assertEquals(0.0, c.getHeadingNoise(), 0.001);
+
+        assertArrayEquals(new long[]{10, 36, 281}, Calibration.zoneData(10, 9.0, 20, new long[]{0, 85, 330}));
+        assertArrayEquals(new long[]{10, 20, 265}, Calibration.zoneData(10, 1.0, 20, new long[]{0, 85, 330}));
+        assertArrayEquals(new long[]{9, 9}, Calibration.hysteresis(8.5));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEmpty() {
+        new Calibration(5).getHeadingCentre();
+    }
+}
@@ -76,6 +76,19 @@ public class DegreesTest {
         assertEquals(350, dd.diffAntiClockwise(new Degrees(331))); 
     }
     
+    @Test
+    public void testDiffShortest() {
+        Degrees dd = new Degrees(341);
+        assertEquals(10, dd.diffShortest(new Degrees(351)));
+        assertEquals(19, dd.diffShortest(new Degrees(0)));
+        assertEquals(110, dd.diffShortest(new Degrees(91)));
+        assertEquals(0, dd.diffShortest(new Degrees(341)));
+        assertEquals(-10, dd.diffShortest(new Degrees(331)));
+        assertEquals(180, dd.diffShortest(new Degrees(161)));
+        assertEquals(-179, dd.diffShortest(new Degrees(162)));
+        assertEquals(-20, new Degrees(10).diffShortest(new Degrees(350)));
+    }
+
     @Test
     public void testBasic() {
         Degrees d = new Degrees(90);
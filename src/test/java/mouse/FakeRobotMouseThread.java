@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import java.util.EnumSet;
+import java.util.Set;
+import robot.MouseButton;
+import robot.RobotMouseThreadInterface;
+
+/**
+ * A fake RobotMouseThread for tests. It logs the calls made to it (see
+ * toString) and adds up how far the mouse was asked to move.
+ *
+ * Each call is logged as its name and arguments followed by ':' for example
+ * "setSpeedX(1.0):leftButtonPress:".
+ */
+public class FakeRobotMouseThread implements RobotMouseThreadInterface {
+
+    private final StringBuilder log;
+    private final Set<MouseButton> pressed = EnumSet.noneOf(MouseButton.class);
+    private boolean connected = false;
+    private double moved = 0;
+
+    public FakeRobotMouseThread() {
+        this(new StringBuilder());
+    }
+
+    /**
+     * @param log The calls are added to this.
+     */
+    public FakeRobotMouseThread(StringBuilder log) {
+        this.log = log;
+    }
+
+    /**
+     * @return The calls made so far.
+     */
+    @Override
+    public String toString() {
+        return log.toString();
+    }
+
+    /**
+     * @return The total of the speeds and moves asked for. Each absolute move
+     * counts as 1.
+     */
+    public double getMoved() {
+        return moved;
+    }
+
+    /**
+     * Clear the log and the moved total.
+     */
+    public void clear() {
+        log.setLength(0);
+        moved = 0;
+    }
+
+    @Override
+    public void connect() {
+        connected = true;
+        log.append("connect:");
+    }
+
+    @Override
+    public void disConnect() {
+        connected = false;
+        log.append("disConnect:");
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public boolean dataReceived() {
+        return false;
+    }
+
+    @Override
+    public void buttonPress(MouseButton button) {
+        pressed.add(button);
+        log.append(button.name().toLowerCase()).append("ButtonPress:");
+    }
+
+    @Override
+    public void buttonRelease(MouseButton button) {
+        pressed.remove(button);
+        log.append(button.name().toLowerCase()).append("ButtonRelease:");
+    }
+
+    @Override
+    public boolean isButtonPressed(MouseButton button) {
+        return pressed.contains(button);
+    }
+
+    @Override
+    public void leftButtonClick(int count) {
+        log.append("leftButtonClick(").append(count).append("):");
+    }
+
+    @Override
+    public void scroll(int notches) {
+        log.append("scroll(").append(notches).append("):");
+    }
+
+    @Override
+    public void setScrollRate(double notchesPerSecond) {
+        log.append("setScrollRate(").append(notchesPerSecond).append("):");
+    }
+
+    @Override
+    public void type(String s) {
+        log.append("type(").append(s).append("):");
+    }
+
+    @Override
+    public void setSpeedX(double x) {
+        moved += Math.abs(x);
+        log.append("setSpeedX(").append(x).append("):");
+    }
+
+    @Override
+    public void setSpeedY(double y) {
+        moved += Math.abs(y);
+        log.append("setSpeedY(").append(y).append("):");
+    }
+
+    @Override
+    public void moveMouseAbs(double x, double y) {
+        moved += 1;
+        log.append("moveMouseAbs(").append(x).append(',').append(y).append("):");
+    }
+
+    @Override
+    public void moveMouseRel(double dx, double dy) {
+        moved += Math.abs(dx) + Math.abs(dy);
+        log.append("moveMouseRel(").append(dx).append(',').append(dy).append("):");
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+import robot.RobotMouseThreadInterface;
+import serial.Reading;
+import serial.ReplaySource;
+import serial.SerialPortListener;
+
+/**
+ * Test the GestureRecognizer with generated sensor data.
+ *
+ * Readings are 10ms apart (100 per second) like the real sensor.
+ */
+public class GestureRecognizerTest {
+
+    private static final int WINDOW = 100;
+
+    @Test
+    public void testNod() {
+        GestureRecognizer gr = createGestureRecognizer(WINDOW);
+        List<String> lines = still(50);
+        lines.addAll(nod(1));
+        lines.addAll(still(50));
+        assertEquals("NOD:", recognise(gr, lines));
+    }
+
+    @Test
+    public void testShake() {
+        GestureRecognizer gr = createGestureRecognizer(WINDOW);
+        List<String> lines = still(50);
+        lines.addAll(shake(1, 350)); // Shake across North
+        lines.addAll(still(50));
+        assertEquals("SHAKE:", recognise(gr, lines));
+    }
+
+    @Test
+    public void testTilt() {
+        GestureRecognizer gr = createGestureRecognizer(WINDOW);
+        List<String> lines = still(50);
+        lines.addAll(tilt(60, 500)); // Held for 600ms
+        lines.addAll(still(50));
+        lines.addAll(tilt(20, -500)); // Only held for 200ms
+        lines.addAll(still(50));
+        lines.addAll(tilt(60, -500));
+        assertEquals("TILT_RIGHT:TILT_LEFT:", recognise(gr, lines));
+    }
+
+    @Test
+    public void testStillAndSlowMovement() {
+        GestureRecognizer gr = createGestureRecognizer(WINDOW);
+        List<String> lines = still(200);
+        for (int i = 0; i < 300; i++) {
+            lines.add("0," + (i * 2) + "," + (i / 10) + ",0,0,0,0"); // Slow look down and left
+        }
+        assertEquals("", recognise(gr, lines));
+    }
+
+    @Test
+    public void testGestureAction() {
+        StringBuilder log = new StringBuilder();
+        MouseController mc = createMouseController(log);
+        mc.setGestureRecognizer(createGestureRecognizer(WINDOW));
+        mc.setGestureAction(GestureRecognizer.Gesture.SHAKE, GestureAction.TOGGLE_MOUSE, null);
+        mc.setGestureAction(GestureRecognizer.Gesture.NOD, GestureAction.DOUBLE_CLICK, null);
+        mc.setGestureAction(GestureRecognizer.Gesture.TILT_LEFT, GestureAction.TYPE, "hello");
+
+        List<String> lines = still(50);
+        lines.addAll(nod(1)); // Not connected so nothing happens
+        lines.addAll(still(50));
+        lines.addAll(shake(1, 0)); // Connect
+        lines.addAll(still(50));
+        lines.addAll(nod(1));
+        lines.addAll(still(50));
+        lines.addAll(tilt(60, -500));
+        new ReplaySource(lines, false, true, 0, 10).replay(mc);
+        assertTrue(mc.isConnectedToMouse());
+        assertEquals(1, count(log.toString(), "connect:"));
+        assertEquals(1, count(log.toString(), "leftButtonClick(2):"));
+        assertEquals(1, count(log.toString(), "type(hello):"));
+    }
+
+    /**
+     * Benchmark the MouseController with and without gestures using a replay
+     * of generated sensor data. The cost of the gesture recogniser must not
+     * depend on the size of the window.
+     *
+     * Timings depend on the machine so this is run by hand.
+     */
+    @Ignore("Benchmark")
+    @Test
+    public void testBenchmark() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lines.addAll(still(100));
+            lines.addAll(nod(2));
+            lines.addAll(shake(2, 10));
+            lines.addAll(tilt(60, 500));
+        }
+        ReplaySource replay = new ReplaySource(lines, false, true, 0, 10);
+
+        MouseController plain = createMouseController(new StringBuilder());
+        plain.connectTheMouse();
+        double nsPlain = replay.benchmark(plain, 20);
+
+        MouseController gestures = createMouseController(new StringBuilder());
+        gestures.setGestureRecognizer(createGestureRecognizer(WINDOW));
+        gestures.connectTheMouse();
+        double nsGestures = replay.benchmark(gestures, 20);
+
+        double nsSmall = replay.benchmark(recognizerListener(createGestureRecognizer(32)), 20);
+        double nsLarge = replay.benchmark(recognizerListener(createGestureRecognizer(4096)), 20);
+
+        System.out.println(String.format("Gesture benchmark: %d readings. MouseController %.0fns, with gestures %.0fns. Recogniser window 32 %.0fns, window 4096 %.0fns",
+                replay.size(), nsPlain, nsGestures, nsSmall, nsLarge));
+        assertTrue(nsPlain > 0);
+    }
+
+    private static SerialPortListener recognizerListener(GestureRecognizer gr) {
+        return new SerialPortListener() {
+            @Override
+            public void reading(Reading r) {
+                gr.update(r);
+            }
+
+            @Override
+            public void fail(Exception e) {
+            }
+
+            @Override
+            public void connectedSensor(String devicePort, int baud, String name) {
+            }
+
+            @Override
+            public void disConnectedSensor(String devicePort, String name) {
+            }
+
+            @Override
+            public boolean rawData(String s) {
+                return false;
+            }
+        };
+    }
+
+    private static String recognise(GestureRecognizer gr, List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        ReplaySource replay = new ReplaySource(lines, false, true, 0, 10);
+        for (int i = 0; i < replay.size(); i++) {
+            GestureRecognizer.Gesture g = gr.update(replay.get(i));
+            if (g != null) {
+                sb.append(g).append(':');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static GestureRecognizer createGestureRecognizer(int window) {
+        return new GestureRecognizer(window, 2, 150, 10, 300, 400);
+    }
+
+    private static List<String> still(int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add("0,0,0,0,0,0,0");
+        }
+        return lines;
+    }
+
+    /**
+     * Pitch swings +-400 twice a second.
+     */
+    private static List<String> nod(int seconds) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < seconds * 100; i++) {
+            lines.add("0," + Math.round(400 * Math.sin(i * Math.PI / 25)) + ",0,0,0,0,0");
+        }
+        return lines;
+    }
+
+    /**
+     * Heading swings +-25 degrees twice a second around the centre.
+     */
+    private static List<String> shake(int seconds, long centre) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < seconds * 100; i++) {
+            long h = Math.floorMod(centre + Math.round(25 * Math.sin(i * Math.PI / 25)), 360);
+            lines.add("0,0," + h + ",0,0,0,0");
+        }
+        return lines;
+    }
+
+    private static List<String> tilt(int count, long roll) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add(roll + ",0,0,0,0,0,0");
+        }
+        return lines;
+    }
+
+    private static int count(String log, String s) {
+        int c = 0;
+        int i = log.indexOf(s);
+        while (i >= 0) {
+            c++;
+            i = log.indexOf(s, i + s.length());
+        }
+        return c;
+    }
+
+    private static MouseController createMouseController(StringBuilder log) {
+        return new MouseController(createMockRobotMouseThread(log), new long[]{0, 10, 20}, 1, new long[]{0, 80, 330}, 1);
+    }
+
+    /**
+     * Create a MOCK RobotMouseThread to log calls
+     *
+     * @return A MOCK RobotMouseThread
+     */
+    private static RobotMouseThreadInterface createMockRobotMouseThread(StringBuilder log) {
+        return new FakeRobotMouseThread(log);
+    }
+}
@@ -18,7 +18,9 @@ package mouse;
  *
  */
 import org.junit.Test;
+import java.awt.Rectangle;
 import static org.junit.Assert.*;
+import robot.MouseButton;
 import robot.RobotMouseThreadInterface;
 import serial.Reading;
 
@@ -116,88 +118,277 @@ public class MouseControllerTest {
         assertFalse(robot.toString().contains("Button"));
     }
 
-    /**
-     * Create a MOCK RobotMouseThread to log calls
-     * @return A MOCK RobotMouseThread
-     */
-    private RobotMouseThreadInterface createMockRobotMouseThread() {
-        return new RobotMouseThreadInterface() {
-            private StringBuilder log = new StringBuilder();
-            private boolean connected = false;
-            private boolean leftButtonPress = false;
-            private boolean rightButtonPress = false;
-
-            @Override
-            public String toString() {
-                return log.toString();
-            }
+    @Test
+    public void testHeadingHysteresis() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, new long[]{3, 0}, 1, new long[]{0, 20, 30}, new long[]{0, 0}, 1, 0);
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,0,350,0,0,0,0:", true, true)); // Null zone
+        assertEquals(MouseState.NULL_ZONE, mc.getMouseHeadingState());
+        mc.reading(Reading.parse("0,0,348,0,0,0,0:", true, true)); // Past the edge but inside the hysteresis
+        assertEquals(MouseState.NULL_ZONE, mc.getMouseHeadingState());
+        mc.reading(Reading.parse("0,0,346,0,0,0,0:", true, true)); // Past the hysteresis
+        assertEquals(MouseState.ACTIVE, mc.getMouseHeadingState());
+        mc.reading(Reading.parse("0,0,349,0,0,0,0:", true, true)); // Back inside the edge but inside the hysteresis
+        assertEquals(MouseState.ACTIVE, mc.getMouseHeadingState());
+        mc.reading(Reading.parse("0,0,353,0,0,0,0:", true, true)); // Back past the hysteresis
+        assertEquals(MouseState.NULL_ZONE, mc.getMouseHeadingState());
+        mc.disConnectTheMouse();
 
-            @Override
-            public void connect() {
-                connected = true;
-                log.append("connect:");
-            }
+        assertEquals(2, count(robot.toString(), "setSpeedX(0.0)"));
+        assertEquals(1, count(robot.toString(), "setSpeedY(0.0)"));
+        assertTrue(robot.toString().contains("setSpeedX(-14.0)"));
+        assertTrue(robot.toString().contains("setSpeedX(-11.0)"));
+        assertFalse(robot.toString().contains("setSpeedX(-12.0)"));
+        assertEquals(5, mc.getSuppressedSpeedCommands()); // 10 speeds, only 5 changes
+        assertEquals(8, mc.getSuppressedButtonCommands()); // Buttons never change
+    }
 
-            @Override
-            public void setSpeedX(double x) {
-                log.append("setSpeedX(").append(x).append("):");
-            }
+    @Test
+    public void testVerticalHysteresis() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, new long[]{0, 0}, 1, new long[]{0, 20, 30}, new long[]{0, 5}, 1, 0);
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,29,0,0,0,0,0:", true, true));
+        assertEquals(MouseState.ACTIVE, mc.getMouseVerticalState());
+        mc.reading(Reading.parse("0,33,0,0,0,0,0:", true, true)); // Inside the hysteresis
+        assertEquals(MouseState.ACTIVE, mc.getMouseVerticalState());
+        mc.reading(Reading.parse("0,36,0,0,0,0,0:", true, true)); // Past the hysteresis
+        assertEquals(MouseState.INACTIVE, mc.getMouseVerticalState());
+        mc.reading(Reading.parse("0,28,0,0,0,0,0:", true, true)); // Must come back past the hysteresis
+        assertEquals(MouseState.INACTIVE, mc.getMouseVerticalState());
+        mc.reading(Reading.parse("0,24,0,0,0,0,0:", true, true));
+        assertEquals(MouseState.ACTIVE, mc.getMouseVerticalState());
+        mc.disConnectTheMouse();
 
-            @Override
-            public void setSpeedY(double y) {
-                log.append("setSpeedY(").append(y).append("):");
-            }
+        assertTrue(robot.toString().contains("setSpeedY(29.0)"));
+        assertTrue(robot.toString().contains("setSpeedY(33.0)"));
+        assertTrue(robot.toString().contains("setSpeedY(24.0)"));
+        assertFalse(robot.toString().contains("setSpeedY(36.0)"));
+        assertFalse(robot.toString().contains("setSpeedY(28.0)"));
+    }
 
-            @Override
-            public void disConnect() {
-                connected = false;
-                log.append("disConnect:");
-            }
+    @Test
+    public void testButtonDebounce() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, new long[]{0, 0}, 1, new long[]{0, 20, 30}, new long[]{0, 0}, 1, 10000);
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,0,0,0,1,0,0:", false, true)); // Left down
+        mc.reading(Reading.parse("0,0,0,0,0,0,0:", false, true)); // Left up too soon (bounce)
+        mc.reading(Reading.parse("0,0,0,0,1,0,0:", false, true)); // Left down again
+        mc.disConnectTheMouse();
 
-            @Override
-            public boolean isConnected() {
-                return connected;
-            }
+        assertEquals(1, count(robot.toString(), "leftButtonPress"));
+        assertEquals(0, count(robot.toString(), "leftButtonRelease"));
+        assertEquals(1, count(robot.toString(), "rightButtonRelease"));
+        assertEquals(4, mc.getSuppressedButtonCommands());
+        /*
+        Re-connecting always sends the button state.
+         */
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,0,0,0,0,0,0:", false, true));
+        assertEquals(1, count(robot.toString(), "leftButtonRelease"));
+    }
 
-            @Override
-            public void leftButtonPress() {
-                leftButtonPress = true;
-                log.append("leftButtonPress:");
-            }
+    @Test
+    public void testButtonNoDebounce() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,0,0,0,1,0,0:", false, true));
+        mc.reading(Reading.parse("0,0,0,0,0,0,0:", false, true));
+        mc.reading(Reading.parse("0,0,0,0,1,0,0:", false, true));
+        mc.disConnectTheMouse();
 
-            @Override
-            public void leftButtonRelease() {
-                leftButtonPress = false;
-                log.append("leftButtonRelease:");
-            }
+        assertEquals(2, count(robot.toString(), "leftButtonPress"));
+        assertEquals(1, count(robot.toString(), "leftButtonRelease"));
+        assertEquals(1, count(robot.toString(), "rightButtonRelease"));
+    }
 
-            @Override
-            public void rightButtonPress() {
-                rightButtonPress = true;
-                log.append("rightButtonPress:");
-            }
+    @Test
+    public void testButtonMapping() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.setButtonMapping(MouseButton.BACK, null, MouseButton.MIDDLE, MouseButton.MIDDLE);
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,0,0,0,0,0,0:", false, true));
+        assertEquals("connect:setSpeedX(0.0):setSpeedY(0.0):middleButtonRelease:backButtonRelease:", robot.toString());
+        mc.reading(Reading.parse("0,0,0,1,1,0,0:", false, true)); // B1S (B2S not used)
+        assertTrue(robot.toString().endsWith("backButtonPress:"));
+        assertTrue(mc.isConnectedToMouse());
+        assertTrue(robot.isButtonPressed(MouseButton.BACK));
+        assertFalse(mc.isLeftButtonPressed());
+        /*
+        Both receiver buttons press MIDDLE. It is down while either is down.
+         */
+        mc.reading(Reading.parse("0,0,0,0,0,1,0:", false, true));
+        mc.reading(Reading.parse("0,0,0,0,0,1,1:", false, true));
+        mc.reading(Reading.parse("0,0,0,0,0,0,1:", false, true));
+        assertTrue(robot.isButtonPressed(MouseButton.MIDDLE));
+        mc.reading(Reading.parse("0,0,0,0,0,0,0:", false, true));
+        assertFalse(robot.isButtonPressed(MouseButton.MIDDLE));
+        assertEquals(2, count(robot.toString(), "middleButtonRelease"));
+        assertEquals(0, count(robot.toString(), "left"));
+        assertEquals(0, count(robot.toString(), "right"));
+    }
 
-            @Override
-            public void rightButtonRelease() {
-                rightButtonPress = false;
-                log.append("rightButtonRelease:");
-            }
+    @Test
+    public void testDriftCompensation() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.setDriftCompensator(new DriftCompensator(0.1, 100, 5, 50, 2, 30));
+        long time = 0;
+        /*
+        Not connected so no drift compensation
+         */
+        for (int i = 0; i < 200; i++) {
+            mc.reading(Reading.parse("0,5,4,0,0,0,0:", true, true, time += 10));
+        }
+        assertEquals(0, mc.getHeadingAdjustment());
+        assertEquals(0, mc.getVerticalAdjustment());
+        /*
+        Resting 4 degrees and 5 up from the centre
+         */
+        mc.connectTheMouse();
+        for (int i = 0; i < 200; i++) {
+            mc.reading(Reading.parse("0,5,4,0,0,0,0:", true, true, time += 10));
+        }
+        assertEquals(4, mc.getHeadingAdjustment());
+        assertEquals(5, mc.getVerticalAdjustment());
+        assertEquals(354, mc.getHeadingMin());
+        assertEquals(14, mc.getHeadingMax());
+        assertEquals(-15, mc.getVerticalMin());
+        assertEquals(25, mc.getVerticalMax());
+        /*
+        Resting 9 degrees from the centre. The heading stops at the limit.
+         */
+        for (int i = 0; i < 300; i++) {
+            mc.reading(Reading.parse("0,5,9,0,0,0,0:", true, true, time += 10));
+        }
+        assertEquals(5, mc.getHeadingAdjustment());
+        assertEquals(MouseState.NULL_ZONE, mc.getMouseHeadingState());
+        assertEquals(-4, mc.getMouseHeadingOffset());
+        /*
+        Moving in the active zone does not change the centre
+         */
+        for (int i = 0; i < 300; i++) {
+            mc.reading(Reading.parse("0,5,20,0,0,0,0:", true, true, time += 10));
+        }
+        assertEquals(MouseState.ACTIVE, mc.getMouseHeadingState());
+        assertEquals(5, mc.getHeadingAdjustment());
+        mc.disConnectTheMouse();
+    }
 
-            @Override
-            public boolean isLeftButtonPressed() {
-                return leftButtonPress;
+    @Test
+    public void testNoDriftCompensationWhenAiming() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.setDriftCompensator(new DriftCompensator(0.1, 100, 5, 50, 2, 30));
+        mc.setScreen(new Rectangle(0, 0, 400, 300), 1.0, 0.5);
+        mc.connectTheMouse();
+        long time = 0;
+        /*
+        Looking at a point in the null zone in ABSOLUTE and RELATIVE modes
+        is aiming not resting so the centre does not move.
+         */
+        for (PointerMode mode : new PointerMode[]{PointerMode.ABSOLUTE, PointerMode.RELATIVE}) {
+            mc.setPointerMode(mode);
+            for (int i = 0; i < 200; i++) {
+                mc.reading(Reading.parse("0,5,4,0,0,0,0:", true, true, time += 10));
             }
+            assertEquals(0, mc.getHeadingAdjustment());
+            assertEquals(0, mc.getVerticalAdjustment());
+        }
+        mc.disConnectTheMouse();
+    }
 
-            @Override
-            public boolean isRightButtonPressed() {
-                return rightButtonPress;
-            }
+    @Test
+    public void testCentreAdjustmentLimit() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.setCentreAdjustment(-50, -50);
+        assertEquals(-10, mc.getHeadingAdjustment());
+        assertEquals(-20, mc.getVerticalAdjustment());
+        assertEquals(340, mc.getHeadingMin());
+        assertEquals(-40, mc.getVerticalMin());
+    }
 
-            @Override
-            public void moveMouseAbs(double x, double y) {
-                log.append("moveMouseAbs(").append(y).append(',').append(y).append("):");
-            }
-        };
+    @Test
+    public void testAbsoluteMode() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.setScreen(new Rectangle(0, 0, 400, 300), 1.0, 0.5);
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,0,345,0,0,0,0:", true, true)); // Joystick
+        assertTrue(robot.toString().contains("setSpeedX(-15.0)"));
+        assertFalse(robot.toString().contains("moveMouseAbs"));
+        /*
+        Change mode without re-connecting. The mouse is stopped.
+         */
+        mc.setPointerMode(PointerMode.ABSOLUTE);
+        mc.reading(Reading.parse("0,15,345,0,0,0,0:", true, true));
+        assertTrue(robot.toString().endsWith("setSpeedX(0.0):moveMouseAbs(50.0,225.0):"));
+        mc.reading(Reading.parse("0,15,345,0,0,0,0:", true, true)); // Same position is not sent again
+        mc.reading(Reading.parse("0,-30,20,0,0,0,0:", true, true));
+        assertTrue(robot.toString().endsWith("moveMouseAbs(50.0,225.0):moveMouseAbs(399.0,0.0):"));
+        assertFalse(robot.toString().contains("setSpeedX(20.0)"));
+        mc.setPointerMode(PointerMode.JOYSTICK);
+        mc.reading(Reading.parse("0,0,345,0,0,0,0:", true, true));
+        assertTrue(robot.toString().endsWith("setSpeedX(-15.0):"));
+        mc.disConnectTheMouse();
+    }
+
+    @Test
+    public void testRelativeMode() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.setRelativePointer(new RelativePointer(10, 1, 1.0, 0, 0));
+        mc.setPointerMode(PointerMode.RELATIVE);
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("0,0,340,0,0,0,0:", true, true)); // The reference. Does not move
+        mc.reading(Reading.parse("0,5,342,0,0,0,0:", true, true));
+        mc.reading(Reading.parse("0,5,342,0,0,0,0:", true, true)); // Still
+        mc.reading(Reading.parse("0,5,1,0,0,0,0:", true, true));
+        mc.disConnectTheMouse();
+        assertEquals(count(robot.toString(), "setSpeed"), count(robot.toString(), "(0.0)")); // Only stops
+        assertTrue(robot.toString().contains("moveMouseRel(20.0,5.0):moveMouseRel(190.0,0.0):"));
+        assertEquals(2, count(robot.toString(), "moveMouseRel"));
+    }
+
+    @Test
+    public void testRollScroll() {
+        RobotMouseThreadInterface robot = createMockRobotMouseThread();
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 20, 30}, 1);
+        mc.setRollScroller(new RollScroller(100, 20, 0.1, 50));
+        mc.reading(Reading.parse("0,0,0,0,0,0,0:", true, true)); // Not connected
+        mc.connectTheMouse();
+        mc.reading(Reading.parse("500,0,0,0,0,0,0:", true, true)); // Level
+        mc.reading(Reading.parse("600,0,0,0,0,0,0:", true, true));
+        mc.reading(Reading.parse("700,0,0,0,0,0,0:", true, true));
+        mc.reading(Reading.parse("700,0,0,0,0,0,0:", true, true)); // Same rate is not sent again
+        mc.reading(Reading.parse("300,0,0,0,0,0,0:", true, true));
+        mc.reading(Reading.parse("520,0,0,0,0,0,0:", true, true));
+        mc.disConnectTheMouse();
+        assertTrue(robot.toString().endsWith("setScrollRate(10.0):setScrollRate(-10.0):setScrollRate(0.0):disConnect:"));
+        assertEquals(4, count(robot.toString(), "setScrollRate"));
+    }
+
+    private static int count(String log, String s) {
+        int c = 0;
+        int i = log.indexOf(s);
+        while (i >= 0) {
+            c++;
+            i = log.indexOf(s, i + s.length());
+        }
+        return c;
+    }
+
+    /**
+     * Create a MOCK RobotMouseThread to log calls
+     * @return A MOCK RobotMouseThread
+     */
+    private RobotMouseThreadInterface createMockRobotMouseThread() {
+        return new FakeRobotMouseThread();
     }
 
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import java.awt.Rectangle;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class PoseMappingTest {
+
+    /*
+    A 3 by 3 grid of head poses.
+     */
+    private static final long[] H9 = {0, 20, 0, -20, 20, -20, 20, 0, -20};
+    private static final long[] V9 = {0, -200, -200, -200, 0, 0, 200, 200, 200};
+
+    @Test
+    public void testFitQuadratic() {
+        double[] cx = {960, -40, 0.1, 0.02, 0.3, 0.0001};
+        double[] cy = {540, 0.5, 2.5, 0.001, -0.2, 0.0005};
+        PoseMapping truth = new PoseMapping(cx, cy);
+        double[] x = new double[H9.length];
+        double[] y = new double[H9.length];
+        for (int i = 0; i < H9.length; i++) {
+            truth.map(H9[i], V9[i]);
+            x[i] = truth.getX();
+            y[i] = truth.getY();
+        }
+        PoseMapping fitted = PoseMapping.fit(H9, V9, x, y);
+        assertArrayEquals(cx, fitted.getCoefficientsX(), 1e-6);
+        assertArrayEquals(cy, fitted.getCoefficientsY(), 1e-6);
+        fitted.map(10, -100);
+        truth.map(10, -100);
+        assertEquals(truth.getX(), fitted.getX(), 1e-6);
+        assertEquals(truth.getY(), fitted.getY(), 1e-6);
+    }
+
+    @Test
+    public void testFitFivePoints() {
+        long[] h = {0, 20, -20, 20, -20};
+        long[] v = {0, -200, -200, 200, 200};
+        double[] x = {960, 192, 1728, 192, 1728};
+        double[] y = {540, 108, 108, 972, 972};
+        PoseMapping m = PoseMapping.fit(h, v, x, y);
+        for (int i = 0; i < h.length; i++) {
+            m.map(h[i], v[i]);
+            assertEquals(x[i], m.getX(), 1e-6);
+            assertEquals(y[i], m.getY(), 1e-6);
+        }
+        assertEquals(0.0, m.getCoefficientsX()[4], 0.0); // No squared terms
+        assertEquals(0.0, m.getCoefficientsY()[5], 0.0);
+    }
+
+    @Test
+    public void testLeastSquares() {
+        /*
+        Noise on one point is spread out, not followed exactly.
+         */
+        double[] x = new double[H9.length];
+        double[] y = new double[H9.length];
+        for (int i = 0; i < H9.length; i++) {
+            x[i] = 960 - (H9[i] * 40);
+            y[i] = 540 + (V9[i] * 2);
+        }
+        x[0] += 30;
+        PoseMapping m = PoseMapping.fit(H9, V9, x, y);
+        m.map(0, 0);
+        assertTrue(m.getX() > 960);
+        assertTrue(m.getX() < 990);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInLine() {
+        PoseMapping.fit(new long[]{0, 10, 20, 30}, new long[]{0, 0, 0, 0}, new double[]{0, 1, 2, 3}, new double[]{0, 1, 2, 3});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFew() {
+        PoseMapping.fit(new long[]{0, 10}, new long[]{0, 10}, new double[]{0, 1}, new double[]{0, 1});
+    }
+
+    @Test
+    public void testAbsolutePointer() {
+        AbsolutePointer p = new AbsolutePointer(new Rectangle(0, 0, 1920, 1080), 20, 200, 1.0, 0.25);
+        p.setMapping(new PoseMapping(new double[]{100, 1, 0, 0, 0, 0}, new double[]{200, 0, 1, 0, 0, 0}));
+        p.update(10, 20);
+        assertEquals(110, p.getX(), 0.001);
+        assertEquals(220, p.getY(), 0.001);
+    }
+}
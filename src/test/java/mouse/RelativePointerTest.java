@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+import serial.ReplaySource;
+
+public class RelativePointerTest {
+
+    @Test
+    public void testLinear() {
+        RelativePointer p = new RelativePointer(10, 0.5, 1.0, 0, 0);
+        assertFalse(p.update(100, 0)); // First reading is the reference
+        assertTrue(p.update(102, 40));
+        assertEquals(20, p.getDx(), 0.001);
+        assertEquals(20, p.getDy(), 0.001);
+        assertTrue(p.update(99, 40));
+        assertEquals(-30, p.getDx(), 0.001);
+        assertEquals(0, p.getDy(), 0.001);
+        assertFalse(p.update(99, 40)); // Still
+    }
+
+    @Test
+    public void testWrap() {
+        RelativePointer p = new RelativePointer(1, 1, 1.0, 0, 0);
+        p.update(358, 0);
+        p.update(2, 0);
+        assertEquals(4, p.getDx(), 0.001);
+        p.update(355, 0);
+        assertEquals(-7, p.getDx(), 0.001);
+    }
+
+    @Test
+    public void testDeadband() {
+        RelativePointer p = new RelativePointer(1, 1, 1.0, 1, 10);
+        p.update(0, 0);
+        assertFalse(p.update(1, 10)); // Noise
+        assertFalse(p.update(0, -5));
+        /*
+        Slow movements add up.
+         */
+        assertFalse(p.update(1, 5));
+        assertTrue(p.update(2, 15));
+        assertEquals(2, p.getDx(), 0.001);
+        assertEquals(15, p.getDy(), 0.001);
+    }
+
+    @Test
+    public void testCurve() {
+        RelativePointer p = new RelativePointer(1, 1, 2.0, 0, 0);
+        p.update(0, 0);
+        p.update(3, -4);
+        assertEquals(9, p.getDx(), 0.001);
+        assertEquals(-16, p.getDy(), 0.001);
+        p.reset();
+        assertFalse(p.update(90, 0));
+    }
+
+    /**
+     * Every pointer mode moves the mouse for a replay of a head moving left
+     * and right and up and down.
+     */
+    @Test
+    public void testModesMove() {
+        ReplaySource replay = headReplay();
+        for (PointerMode mode : PointerMode.values()) {
+            FakeRobotMouseThread robot = new FakeRobotMouseThread();
+            MouseController mc = createMouseController(robot, mode);
+            robot.clear();
+            replay.replay(mc);
+            assertTrue(mode.toString(), robot.getMoved() > 0);
+        }
+    }
+
+    /**
+     * Benchmark the MouseController in each pointer mode with the same
+     * replay.
+     *
+     * Timings depend on the machine so this is run by hand.
+     */
+    @Ignore("Benchmark")
+    @Test
+    public void testBenchmark() {
+        ReplaySource replay = headReplay();
+        StringBuilder sb = new StringBuilder();
+        for (PointerMode mode : PointerMode.values()) {
+            MouseController mc = createMouseController(new FakeRobotMouseThread(), mode);
+            sb.append(String.format(" %s %.0fns", mode, replay.benchmark(mc, 20)));
+        }
+        System.out.println("Pointer mode benchmark: " + replay.size() + " readings." + sb);
+    }
+
+    private static ReplaySource headReplay() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            long h = Math.floorMod(Math.round(30 * Math.sin(i * Math.PI / 200)), 360);
+            long y = Math.round(300 * Math.sin(i * Math.PI / 300));
+            lines.add("0," + y + "," + h + ",0,0,0,0");
+        }
+        return new ReplaySource(lines, false, true, 0, 10);
+    }
+
+    private static MouseController createMouseController(FakeRobotMouseThread robot, PointerMode mode) {
+        MouseController mc = new MouseController(robot, new long[]{0, 10, 20}, 1, new long[]{0, 80, 330}, 1);
+        mc.setScreen(new Rectangle(0, 0, 1920, 1080), 0.3, 0.25);
+        mc.setRelativePointer(new RelativePointer(20, 0.5, 1.2, 0, 10));
+        mc.setPointerMode(mode);
+        mc.connectTheMouse();
+        return mc;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package mouse;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class RollScrollerTest {
+
+    @Test
+    public void testRate() {
+        RollScroller scroller = new RollScroller(100, 20, 0.1, 5);
+        assertFalse(scroller.update(1000)); // Level
+        assertFalse(scroller.update(1110)); // In the null zone (hysteresis)
+        assertTrue(scroller.update(1130));
+        assertEquals(MouseState.ACTIVE, scroller.getState());
+        assertEquals(3.0, scroller.getScrollRate(), 0.0001);
+        assertTrue(scroller.update(1090)); // Still scrolling (hysteresis) but no rate
+        assertEquals(MouseState.ACTIVE, scroller.getState());
+        assertEquals(0.0, scroller.getScrollRate(), 0.0);
+        scroller.update(1070);
+        assertEquals(MouseState.NULL_ZONE, scroller.getState());
+        scroller.update(500);
+        assertEquals(-5.0, scroller.getScrollRate(), 0.0); // Max rate
+        scroller.reset();
+        assertEquals(0.0, scroller.getScrollRate(), 0.0);
+        assertFalse(scroller.update(500)); // New level
+    }
+
+    @Test
+    public void testReverse() {
+        RollScroller scroller = new RollScroller(100, 20, -0.1, 50);
+        scroller.update(0);
+        scroller.update(200);
+        assertEquals(-10.0, scroller.getScrollRate(), 0.0001);
+        scroller.update(-200);
+        assertEquals(10.0, scroller.getScrollRate(), 0.0001);
+    }
+}
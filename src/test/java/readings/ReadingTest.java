@@ -18,6 +18,7 @@
 package readings;
 
 import static org.junit.Assert.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import serial.Reading;
 import serial.ReadingException;
@@ -117,6 +118,34 @@ public class ReadingTest {
 
     }
 
+    /**
+     * Test that readings can be formatted by more than one thread at a time
+     * (the sensor thread and the GUI).
+     */
+    @Test
+    public void testToStringThreads() throws InterruptedException {
+        Reading r1 = Reading.parse("10.456,143,0,0,0,1,1:", false, false);
+        Reading r2 = Reading.parse("-123456.78,0.04,5,1,1,0,0:", false, false);
+        String s1 = r1.toString();
+        String s2 = r2.toString();
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    if (!s1.equals(r1.toString()) || !s2.equals(r2.toString())) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+    }
+
     private void testParseFail(String s, boolean lr, boolean ud) {
         try {
             Reading r = Reading.parse(s, lr, ud);
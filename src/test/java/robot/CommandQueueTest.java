@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import robot.CommandQueue.Command;
+
+public class CommandQueueTest {
+
+    @Test
+    public void testOrder() {
+        CommandQueue q = new CommandQueue(4);
+        assertTrue(q.isEmpty());
+        assertFalse(q.peek());
+        assertTrue(q.offer(Command.PRESS, 16, 1));
+        assertTrue(q.offer(Command.RELEASE, 16, 2));
+        assertEquals(2, q.size());
+        assertTrue(q.peek());
+        assertEquals(Command.PRESS, q.getCommand());
+        assertEquals(16, q.getArg());
+        assertEquals(1, q.getTime());
+        /*
+        Peek again does not take it off.
+         */
+        assertTrue(q.peek());
+        assertEquals(Command.PRESS, q.getCommand());
+        q.remove();
+        assertTrue(q.peek());
+        assertEquals(Command.RELEASE, q.getCommand());
+        assertEquals(2, q.getTime());
+        q.remove();
+        assertFalse(q.peek());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testFull() {
+        CommandQueue q = new CommandQueue(3);
+        assertEquals(4, q.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(q.offer(Command.TYPE, i, i));
+        }
+        assertFalse(q.offer(Command.TYPE, 99, 99));
+        assertEquals(4, q.size());
+        /*
+        Round the ring a few times.
+         */
+        for (int i = 4; i < 20; i++) {
+            assertTrue(q.peek());
+            assertEquals(i - 4, q.getArg());
+            q.remove();
+            assertTrue(q.offer(Command.TYPE, i, i));
+        }
+        assertEquals(4, q.size());
+    }
+
+    /*
+    Four threads send commands while this thread takes them off. Each
+    thread's commands must arrive in order and none are lost.
+     */
+    @Test
+    public void testManyProducers() throws InterruptedException {
+        final int producers = 4;
+        final int each = 20000;
+        CommandQueue q = new CommandQueue(256);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < each; i++) {
+                    while (!q.offer(Command.SCROLL, (id << 24) | i, System.nanoTime())) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        int[] next = new int[producers];
+        int received = 0;
+        long start = System.nanoTime();
+        while (received < producers * each) {
+            if (q.peek()) {
+                int arg = q.getArg();
+                q.remove();
+                int id = arg >>> 24;
+                assertEquals(next[id], arg & 0xFFFFFF);
+                next[id]++;
+                received++;
+            } else if (System.nanoTime() - start > 10000000000L) {
+                fail("Commands lost");
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(q.isEmpty());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import static org.junit.Assert.*;
+import mouse.FakeRobotMouseThread;
+import org.junit.Test;
+
+/**
+ * Test the dwell clicker with a MOCK RobotMouseThread that logs the button
+ * calls. Times are in nano seconds.
+ */
+public class DwellClickerTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testLeftClick() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10 * MS, 64, 0);
+        DwellClicker dwell = createDwellClicker(log, wheel, DwellClicker.DwellAction.LEFT_CLICK);
+
+        tick(wheel, dwell, 0, 100, 100, true);
+        assertEquals(DwellClicker.DwellState.DWELLING, dwell.getState());
+        tick(wheel, dwell, 500, 103, 100, true); // Small move is OK
+        tick(wheel, dwell, 990, 103, 100, true);
+        assertEquals("", log.toString());
+        tick(wheel, dwell, 1010, 103, 100, true);
+        assertEquals("leftButtonPress:", log.toString());
+        assertEquals(DwellClicker.DwellState.COOLDOWN, dwell.getState());
+        tick(wheel, dwell, 1070, 103, 100, true);
+        assertEquals("leftButtonPress:leftButtonRelease:", log.toString());
+        assertEquals(1, dwell.getActions());
+        /*
+        Cool down is over but the pointer has not moved so no more clicks.
+         */
+        tick(wheel, dwell, 2100, 103, 100, true);
+        tick(wheel, dwell, 4100, 103, 100, true);
+        assertEquals(DwellClicker.DwellState.IDLE, dwell.getState());
+        assertEquals(1, dwell.getActions());
+        /*
+        Move away then dwell again.
+         */
+        tick(wheel, dwell, 4200, 200, 200, true);
+        assertEquals(DwellClicker.DwellState.DWELLING, dwell.getState());
+        tick(wheel, dwell, 5210, 200, 200, true);
+        assertEquals(2, dwell.getActions());
+    }
+
+    @Test
+    public void testMovingCancelsDwell() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10 * MS, 64, 0);
+        DwellClicker dwell = createDwellClicker(log, wheel, DwellClicker.DwellAction.RIGHT_CLICK);
+
+        tick(wheel, dwell, 0, 100, 100, true);
+        tick(wheel, dwell, 500, 120, 100, false); // Outside the radius
+        assertEquals(DwellClicker.DwellState.IDLE, dwell.getState());
+        tick(wheel, dwell, 1010, 120, 100, true); // Starts a new dwell
+        assertEquals("", log.toString());
+        tick(wheel, dwell, 2020, 120, 100, true);
+        tick(wheel, dwell, 2080, 120, 100, true);
+        assertEquals("rightButtonPress:rightButtonRelease:", log.toString());
+    }
+
+    @Test
+    public void testNotStillAtDeadline() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10 * MS, 64, 0);
+        DwellClicker dwell = createDwellClicker(log, wheel, DwellClicker.DwellAction.LEFT_CLICK);
+
+        tick(wheel, dwell, 0, 100, 100, true);
+        tick(wheel, dwell, 1010, 101, 100, false); // Moving inside the radius
+        assertEquals(DwellClicker.DwellState.IDLE, dwell.getState());
+        tick(wheel, dwell, 1040, 101, 100, true); // Still again so a new dwell
+        assertEquals("", log.toString());
+        tick(wheel, dwell, 2050, 101, 100, true);
+        assertEquals("leftButtonPress:", log.toString());
+    }
+
+    @Test
+    public void testMovingInsideRadius() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10 * MS, 64, 0);
+        DwellClicker dwell = createDwellClicker(log, wheel, DwellClicker.DwellAction.LEFT_CLICK);
+
+        tick(wheel, dwell, 0, 100, 100, true);
+        tick(wheel, dwell, 400, 104, 100, false); // Moving inside the radius
+        tick(wheel, dwell, 600, 105, 100, false);
+        assertEquals(DwellClicker.DwellState.IDLE, dwell.getState());
+        tick(wheel, dwell, 700, 105, 100, true); // Stopped
+        assertEquals(DwellClicker.DwellState.DWELLING, dwell.getState());
+        /*
+        The first dwell would have been due at 1000. The click must wait for
+        the whole dwell time from when the pointer stopped.
+         */
+        tick(wheel, dwell, 1010, 105, 100, true);
+        tick(wheel, dwell, 1690, 105, 100, true);
+        assertEquals("", log.toString());
+        tick(wheel, dwell, 1710, 105, 100, true);
+        assertEquals("leftButtonPress:", log.toString());
+        assertEquals(1, dwell.getActions());
+    }
+
+    @Test
+    public void testDrag() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10 * MS, 64, 0);
+        DwellClicker dwell = createDwellClicker(log, wheel, DwellClicker.DwellAction.DRAG);
+
+        tick(wheel, dwell, 0, 100, 100, true);
+        tick(wheel, dwell, 1010, 100, 100, true);
+        assertEquals("leftButtonPress:", log.toString());
+        assertTrue(dwell.isDragging());
+        tick(wheel, dwell, 2100, 300, 300, true);
+        tick(wheel, dwell, 3110, 300, 300, true);
+        assertEquals("leftButtonPress:leftButtonRelease:", log.toString());
+        assertFalse(dwell.isDragging());
+    }
+
+    @Test
+    public void testOffReleasesDrag() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10 * MS, 64, 0);
+        DwellClicker dwell = createDwellClicker(log, wheel, DwellClicker.DwellAction.DRAG);
+
+        tick(wheel, dwell, 0, 100, 100, true);
+        tick(wheel, dwell, 1010, 100, 100, true);
+        assertTrue(dwell.isDragging());
+        dwell.setAction(DwellClicker.DwellAction.OFF);
+        tick(wheel, dwell, 1020, 100, 100, true);
+        assertEquals("leftButtonPress:leftButtonRelease:", log.toString());
+        assertFalse(dwell.isDragging());
+        assertEquals(DwellClicker.DwellState.IDLE, dwell.getState());
+        assertEquals(0, wheel.size());
+    }
+
+    private static void tick(TimerWheel wheel, DwellClicker dwell, long ms, double x, double y, boolean still) {
+        wheel.advance(ms * MS);
+        dwell.update(ms * MS, x, y, still);
+    }
+
+    private static DwellClicker createDwellClicker(StringBuilder log, TimerWheel wheel, DwellClicker.DwellAction action) {
+        DwellClicker dwell = new DwellClicker(createMockRobotMouseThread(log), wheel);
+        dwell.setDwellTime(1000);
+        dwell.setCooldown(1000);
+        dwell.setRadius(10);
+        dwell.setAction(action);
+        return dwell;
+    }
+
+    /**
+     * Create a MOCK RobotMouseThread to log button calls
+     *
+     * @return A MOCK RobotMouseThread
+     */
+    private static RobotMouseThreadInterface createMockRobotMouseThread(StringBuilder log) {
+        FakeRobotMouseThread robot = new FakeRobotMouseThread(log);
+        robot.connect();
+        robot.clear();
+        return robot;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.event.KeyEvent;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class KeyMapTest {
+
+    @Test
+    public void testLetters() {
+        assertEquals(KeyEvent.VK_A, KeyMap.keyFor('a'));
+        assertEquals(KeyEvent.VK_Z, KeyMap.keyFor('z'));
+        assertFalse(KeyMap.isShift(KeyMap.keyFor('q')));
+        assertTrue(KeyMap.isShift(KeyMap.keyFor('Q')));
+        assertEquals(KeyEvent.VK_Q, KeyMap.keyCode(KeyMap.keyFor('Q')));
+        assertEquals(KeyEvent.VK_5, KeyMap.keyFor('5'));
+        assertEquals(KeyEvent.VK_SPACE, KeyMap.keyFor(' '));
+        assertEquals(KeyEvent.VK_ENTER, KeyMap.keyFor('\n'));
+    }
+
+    @Test
+    public void testPunctuation() {
+        assertEquals(KeyEvent.VK_COMMA, KeyMap.keyFor(','));
+        assertEquals(KeyMap.SHIFT | KeyEvent.VK_1, KeyMap.keyFor('!'));
+        assertEquals(KeyMap.SHIFT | KeyEvent.VK_SLASH, KeyMap.keyFor('?'));
+        assertEquals(KeyMap.SHIFT | KeyEvent.VK_QUOTE, KeyMap.keyFor('"'));
+        assertEquals(KeyEvent.VK_BACK_SLASH, KeyMap.keyFor('\\'));
+        assertEquals(KeyMap.SHIFT | KeyEvent.VK_BACK_QUOTE, KeyMap.keyFor('~'));
+        /*
+        Every printable ASCII character can be typed.
+         */
+        for (char c = ' '; c < 127; c++) {
+            assertNotEquals("[" + c + "]", KeyMap.NONE, KeyMap.keyFor(c));
+        }
+    }
+
+    @Test
+    public void testNone() {
+        assertEquals(KeyMap.NONE, KeyMap.keyFor('é'));
+        assertEquals(KeyMap.NONE, KeyMap.keyFor((char) 0));
+        assertFalse(KeyMap.isShift(KeyMap.NONE));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class PositionCheckerTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testInterval() {
+        PositionChecker pc = new PositionChecker(20, 2, 100 * MS);
+        assertTrue(pc.isDue(0)); // First check is straight away
+        pc.check(0, 10, 10, 10, 10);
+        assertFalse(pc.isDue(50 * MS));
+        assertTrue(pc.isDue(100 * MS));
+        pc.setInterval(0);
+        assertTrue(pc.isDue(1));
+        pc.check(1, 10, 10, 10, 10);
+        assertTrue(pc.isDue(1));
+    }
+
+    @Test
+    public void testRepeats() {
+        PositionChecker pc = new PositionChecker(20, 2, 0);
+        /*
+        Inside the tolerance.
+         */
+        assertFalse(pc.check(0, 100, 100, 120, 80));
+        assertEquals(0, pc.getCounts());
+        /*
+        Out of position 3 times in a row is reported.
+         */
+        assertFalse(pc.check(0, 100, 100, 121, 100));
+        assertFalse(pc.check(0, 100, 100, 100, 79));
+        assertTrue(pc.check(0, 100, 100, 200, 200));
+        assertEquals(0, pc.getCounts());
+        /*
+        Back in position starts the count again.
+         */
+        assertFalse(pc.check(0, 100, 100, 200, 200));
+        assertFalse(pc.check(0, 100, 100, 200, 200));
+        assertFalse(pc.check(0, 100, 100, 100, 100));
+        assertFalse(pc.check(0, 100, 100, 200, 200));
+        assertEquals(1, pc.getCounts());
+        pc.reset();
+        assertEquals(0, pc.getCounts());
+    }
+}
@@ -0,0 +1,723 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import metrics.Metrics;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import robot.RecordingBackend.Event;
+
+/**
+ * Run the RobotMouseThread with the RecordingBackend so no display is
+ * needed (unlike RobotMouseThreadTest).
+ */
+public class RecordingBackendTest {
+
+    @Test
+    public void testRecord() {
+        RecordingBackend backend = new RecordingBackend(10, 20);
+        assertEquals(new Point(10, 20), backend.getLocation());
+        for (int i = 0; i < 2000; i++) {
+            backend.move(i, i + 1);
+        }
+        backend.press(InputEvent.BUTTON1_DOWN_MASK);
+        backend.release(InputEvent.BUTTON1_DOWN_MASK);
+        backend.wheel(-2);
+        backend.keyPress(KeyEvent.VK_A);
+        backend.keyRelease(KeyEvent.VK_A);
+        assertEquals(2005, backend.size());
+        assertEquals(2000, backend.count(Event.MOVE));
+        assertEquals(Event.MOVE, backend.getEvent(1999));
+        assertEquals(1999, backend.getA(1999));
+        assertEquals(2000, backend.getB(1999));
+        assertEquals(new Point(1999, 2000), backend.getLocation());
+        assertEquals(Event.WHEEL, backend.getEvent(2002));
+        assertEquals(-2, backend.getA(2002));
+        assertTrue(backend.getTime(2004) >= backend.getTime(0));
+        backend.setLocation(5, 5);
+        assertEquals(new Point(5, 5), backend.getLocation());
+        assertEquals(2005, backend.size());
+        backend.clear();
+        assertEquals(0, backend.size());
+    }
+
+    @Test
+    public void testThread() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        StringBuilder log = new StringBuilder();
+        RobotMouseThread thread = new RobotMouseThread(backend, createListener(log), new Rectangle(0, 0, 1000, 1000), 240, true);
+        thread.setPositionCheckRate(0);
+        thread.start();
+        try {
+            thread.connect();
+            /*
+            Press and release straight away. Neither is lost.
+             */
+            thread.leftButtonPress();
+            thread.leftButtonRelease();
+            waitFor(() -> backend.count(Event.RELEASE) == 1);
+            assertEquals(1, backend.count(Event.PRESS));
+            assertEquals(InputEvent.BUTTON1_DOWN_MASK, backend.getA(0));
+            assertEquals(Event.RELEASE, backend.getEvent(1));
+            waitFor(() -> thread.getButtonLeftState().equals(RobotMouseThread.ButtonState.IS_UP));
+            /*
+            Move right.
+             */
+            thread.setSpeedX(1000);
+            waitFor(() -> backend.getLocation().x > 600);
+            thread.setSpeedX(0);
+            int moves = backend.count(Event.MOVE);
+            assertTrue(moves > 10);
+            int last = 500;
+            for (int i = 0; i < backend.size(); i++) {
+                if (backend.getEvent(i).equals(Event.MOVE)) {
+                    assertTrue(backend.getA(i) > last); // Only moves when the pixel changes
+                    assertEquals(500, backend.getB(i));
+                    last = backend.getA(i);
+                }
+            }
+            /*
+            The user holds the mouse somewhere else. The thread sees it
+            (checks every move).
+             */
+            thread.setSpeedY(200);
+            waitFor(() -> {
+                backend.setLocation(100, 100);
+                synchronized (log) {
+                    return log.toString().contains("mouseNotInPosition(3)");
+                }
+            });
+            thread.setSpeedY(0);
+            thread.rightButtonPress();
+            waitFor(() -> thread.isRightButtonPressed());
+            thread.disConnect();
+            assertFalse(thread.isRightButtonPressed());
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+        assertFalse(thread.isAlive());
+        /*
+        The pointer does not move after the button is released.
+         */
+        int released = lastIndexOf(backend, Event.RELEASE, InputEvent.BUTTON3_DOWN_MASK);
+        assertTrue(released >= 0);
+        assertNoMoveAfter(backend, released);
+        assertTrue(log.toString().startsWith("connectedMouse:"));
+        assertTrue(log.toString().endsWith("disConnectedMouse:"));
+    }
+
+    /**
+     * Absolute moves from another thread (the sensor thread) are done by the
+     * robot thread on its tick. Only the last point given before a tick is
+     * moved to.
+     */
+    @Test
+    public void testMoveAbs() throws InterruptedException {
+        RobotThreadBackend backend = new RobotThreadBackend(500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), 60, true);
+        thread.setPositionCheckRate(0);
+        backend.setRobotThread(thread);
+        thread.start();
+        try {
+            thread.connect();
+            for (int i = 1; i <= 1000; i++) {
+                thread.moveMouseAbs(i / 2, i / 4);
+            }
+            waitFor(() -> backend.location().equals(new Point(500, 250)));
+            assertTrue(backend.count(Event.MOVE) < 1000);
+            thread.moveMouseAbs(-50, 2000);
+            waitFor(() -> backend.location().equals(new Point(0, 1000)));
+            thread.disConnect();
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+        assertEquals(0, backend.getOtherThreadCalls());
+    }
+
+    /**
+     * A second screen to the right of the first. The pointer is kept on it.
+     */
+    @Test
+    public void testMoveAbsSecondScreen() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(1500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(1000, 200, 1000, 800), 60, true);
+        thread.setPositionCheckRate(0);
+        thread.start();
+        try {
+            thread.connect();
+            thread.moveMouseAbs(1200, 400);
+            waitFor(() -> backend.getLocation().equals(new Point(1200, 400)));
+            thread.moveMouseAbs(500, 100);
+            waitFor(() -> backend.getLocation().equals(new Point(1000, 200)));
+            thread.moveMouseAbs(2500, 1500);
+            waitFor(() -> backend.getLocation().equals(new Point(2000, 1000)));
+            thread.disConnect();
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    /**
+     * Relative moves from another thread are added up until the tick so
+     * none are lost, even when they are too small to move a pixel alone.
+     */
+    @Test
+    public void testMoveRel() throws InterruptedException {
+        RobotThreadBackend backend = new RobotThreadBackend(500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), 60, true);
+        thread.setPositionCheckRate(0);
+        backend.setRobotThread(thread);
+        thread.start();
+        try {
+            thread.connect();
+            for (int i = 0; i < 1000; i++) {
+                thread.moveMouseRel(0.25, -0.125);
+            }
+            waitFor(() -> backend.location().equals(new Point(750, 375)));
+            Thread.sleep(50);
+            assertEquals(new Point(750, 375), backend.location());
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+        assertEquals(0, backend.getOtherThreadCalls());
+    }
+
+    @Test
+    public void testDisconnect() throws Exception {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        StringBuilder log = new StringBuilder();
+        RobotMouseThread thread = new RobotMouseThread(backend, createListener(log), new Rectangle(0, 0, 1000, 1000), 60, true);
+        /*
+        Not running so there is nothing to wait for.
+         */
+        assertTrue(thread.disConnectAsync().isDone());
+        thread.start();
+        try {
+            thread.connect();
+            thread.leftButtonPress();
+            waitFor(() -> thread.isLeftButtonPressed());
+            CompletableFuture<Void> done = thread.disConnectAsync();
+            assertFalse(thread.isConnected());
+            done.get(1, TimeUnit.SECONDS);
+            assertEquals(RobotMouseThread.ButtonState.IS_UP, thread.getButtonLeftState());
+            assertEquals(Event.RELEASE, backend.getEvent(backend.size() - 1));
+            /*
+            Every disconnect releases the button.
+             */
+            for (int i = 0; i < 20; i++) {
+                thread.connect();
+                thread.rightButtonPress();
+                waitFor(() -> thread.isRightButtonPressed());
+                thread.disConnect();
+                assertFalse(thread.isRightButtonPressed());
+            }
+            assertTrue(thread.getDisconnectStall().getCount() > 0);
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    @Test
+    public void testDisconnectInThread() throws Exception {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        RobotMouseThread[] holder = new RobotMouseThread[1];
+        /*
+        Like Main the listener disconnects when the mouse is out of position.
+        This is called in the thread so it must not wait for itself.
+         */
+        RobotMouseEventListener listener = new RobotMouseEventListener() {
+            @Override
+            public void mouseNotInPosition(Point expected, Point actual, int count) {
+                holder[0].disConnect();
+            }
+
+            @Override
+            public void connectedMouse() {
+            }
+
+            @Override
+            public void disConnectedMouse() {
+            }
+        };
+        RobotMouseThread thread = new RobotMouseThread(backend, listener, new Rectangle(0, 0, 1000, 1000), 240, true);
+        holder[0] = thread;
+        thread.setPositionCheckRate(0);
+        thread.getDisconnectStall().reset();
+        thread.start();
+        try {
+            thread.connect();
+            thread.leftButtonPress();
+            waitFor(() -> thread.isLeftButtonPressed());
+            thread.setSpeedX(500);
+            waitFor(() -> {
+                backend.setLocation(0, 0);
+                return !thread.isConnected();
+            });
+            waitFor(() -> !thread.isLeftButtonPressed());
+            waitFor(() -> thread.getDisconnectStall().getCount() > 0);
+            assertTrue(thread.getDisconnectStall().getMax() < 100000000L);
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    @Test
+    public void testTyping() throws Exception {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, createListener(new StringBuilder()), new Rectangle(0, 0, 1000, 1000), 240, true);
+        thread.setKeyInterval(2);
+        thread.start();
+        try {
+            thread.connect();
+            StringBuilder progress = new StringBuilder();
+            TypingJob job = thread.type("Hi, x!", createTypingListener(progress));
+            waitFor(() -> job.isDone());
+            assertFalse(job.isCancelled());
+            assertEquals(6, job.getTyped());
+            assertEquals("1/6:2/6:3/6:4/6:5/6:6/6:finished 6/6:", progress.toString());
+            StringBuilder keys = new StringBuilder();
+            for (int i = 0; i < backend.size(); i++) {
+                if (backend.getEvent(i).equals(Event.KEY_PRESS)) {
+                    keys.append(KeyEvent.getKeyText(backend.getA(i))).append(' ');
+                }
+            }
+            assertEquals("Shift H I Comma Space X Shift 1 ", keys.toString());
+            /*
+            A long text. Clicks are not held up by the typing. Then cancel it.
+             */
+            thread.setKeyInterval(20);
+            progress.setLength(0);
+            TypingJob longJob = thread.type("the quick brown fox jumps over the lazy dog", createTypingListener(progress));
+            TypingJob waiting = thread.type("waiting", null);
+            waitFor(() -> longJob.getTyped() >= 2);
+            thread.leftButtonClick(1);
+            waitFor(() -> backend.count(Event.PRESS) == 1);
+            assertFalse(longJob.isDone());
+            thread.cancelTyping();
+            waitFor(() -> longJob.isDone() && waiting.isDone());
+            assertTrue(longJob.isCancelled());
+            assertTrue(waiting.isCancelled());
+            assertEquals(0, waiting.getTyped());
+            assertTrue(longJob.getTyped() < 43);
+            assertTrue(progress.toString().endsWith("cancelled " + longJob.getTyped() + "/43:"));
+            /*
+            Disconnect cancels typing.
+             */
+            TypingJob last = thread.type("abcdefghijklmnopqrstuvwxyz", null);
+            thread.disConnect();
+            waitFor(() -> last.isDone());
+            assertTrue(last.isCancelled());
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    private static TypingListener createTypingListener(StringBuilder log) {
+        return new TypingListener() {
+            @Override
+            public void progress(int typed, int total) {
+                synchronized (log) {
+                    log.append(typed).append('/').append(total).append(':');
+                }
+            }
+
+            @Override
+            public void finished(int typed, int total, boolean cancelled) {
+                synchronized (log) {
+                    log.append(cancelled ? "cancelled " : "finished ").append(typed).append('/').append(total).append(':');
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testButtons() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), 60, true);
+        /*
+        Requested while not running.
+         */
+        thread.buttonPress(MouseButton.MIDDLE);
+        thread.buttonPress(MouseButton.BACK);
+        thread.buttonPress(MouseButton.BACK); // Already requested
+        assertEquals(RobotMouseThread.ButtonState.REQUEST_DOWN, thread.getButtonState(MouseButton.BACK));
+        assertEquals(RobotMouseThread.ButtonState.IS_UP, thread.getButtonState(MouseButton.FORWARD));
+        thread.start();
+        try {
+            thread.connect();
+            waitFor(() -> thread.isButtonPressed(MouseButton.MIDDLE) && thread.isButtonPressed(MouseButton.BACK));
+            assertEquals(2, backend.count(Event.PRESS));
+            assertEquals(MouseButton.MIDDLE.getMask(), backend.getA(0));
+            assertEquals(InputEvent.BUTTON2_DOWN_MASK, backend.getA(0));
+            assertEquals(MouseButton.BACK.getMask(), backend.getA(1));
+            assertFalse(thread.isLeftButtonPressed());
+            thread.buttonPress(MouseButton.FORWARD);
+            thread.buttonRelease(MouseButton.BACK);
+            waitFor(() -> thread.getButtonState(MouseButton.BACK).equals(RobotMouseThread.ButtonState.IS_UP));
+            assertTrue(thread.isButtonPressed(MouseButton.FORWARD));
+            assertEquals(1, backend.count(Event.RELEASE));
+            for (int i = 0; i < backend.size(); i++) {
+                if (backend.getEvent(i).equals(Event.RELEASE)) {
+                    assertEquals(MouseButton.BACK.getMask(), backend.getA(i));
+                }
+            }
+            thread.disConnect();
+            for (MouseButton button : MouseButton.buttons()) {
+                assertEquals(RobotMouseThread.ButtonState.IS_UP, thread.getButtonState(button));
+            }
+            assertEquals(3, backend.count(Event.RELEASE));
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    /**
+     * The commands waiting when the thread starts are taken together. The
+     * buttons are updated once for them except that a button pressed and
+     * then released is pressed first so the click is not lost.
+     */
+    @Test
+    public void testButtonBatch() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), 60, true);
+        thread.connect();
+        thread.buttonPress(MouseButton.LEFT);
+        thread.buttonPress(MouseButton.RIGHT);
+        thread.buttonRelease(MouseButton.LEFT);
+        thread.buttonPress(MouseButton.MIDDLE);
+        thread.start();
+        try {
+            waitFor(() -> thread.isButtonPressed(MouseButton.MIDDLE));
+            assertEquals(4, backend.size());
+            assertEquals(Event.PRESS, backend.getEvent(0));
+            assertEquals(MouseButton.LEFT.getMask(), backend.getA(0));
+            assertEquals(Event.PRESS, backend.getEvent(1));
+            assertEquals(MouseButton.RIGHT.getMask(), backend.getA(1));
+            assertEquals(Event.RELEASE, backend.getEvent(2));
+            assertEquals(MouseButton.LEFT.getMask(), backend.getA(2));
+            assertEquals(Event.PRESS, backend.getEvent(3));
+            assertEquals(MouseButton.MIDDLE.getMask(), backend.getA(3));
+            assertTrue(thread.isRightButtonPressed());
+            assertFalse(thread.isLeftButtonPressed());
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    @Test
+    public void testTelemetry() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(0, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), 240, false);
+        thread.setPositionCheckRate(0);
+        Metrics.reset(); // Shared with the other tests
+        thread.start();
+        try {
+            thread.connect();
+            thread.setSpeedX(960);
+            waitFor(() -> thread.getMovePixels().getCount() > 60);
+            thread.disConnect(); // No moves after this
+            assertTrue(thread.getAchievedRate() > 0);
+            assertTrue(thread.getLoopWork().getCount() > 0);
+            assertTrue(thread.getLoopPeriod().getCount() > 0);
+            assertTrue(thread.getMovePixels().getCount() > 0);
+            assertEquals(backend.count(Event.MOVE), Metrics.histogram("robot.call.move").getCount());
+            assertTrue(Metrics.histogram("robot.call.location").getCount() > 0);
+            assertTrue(Metrics.report().contains("robot.move.pixels: count"));
+            assertFalse(Metrics.report().contains("robot.move.pixels: count 0"));
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    @Test
+    public void testWatchdog() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), 120, true);
+        thread.setWatchdog(50, 150);
+        thread.start();
+        try {
+            thread.connect();
+            thread.leftButtonPress();
+            thread.setSpeedX(100);
+            thread.setScrollRate(10);
+            /*
+            Readings keep it going for longer than the stop time.
+             */
+            waitFor(() -> {
+                assertFalse(thread.dataReceived());
+                return movingFor(backend) > 150000000L;
+            });
+            assertFalse(thread.isDataStopped());
+            assertEquals(100.0, thread.getSpeedX(), 0.0);
+            /*
+            The readings stop. The mouse stops then the button is released.
+             */
+            waitFor(() -> thread.isDataStopped());
+            assertEquals(0.0, thread.getSpeedX(), 0.0);
+            assertEquals(0.0, thread.getScrollRate(), 0.0);
+            assertTrue(thread.isLeftButtonPressed());
+            waitFor(() -> !thread.isLeftButtonPressed());
+            int moves = backend.count(Event.MOVE);
+            assertNoMoveAfter(backend, lastIndexOf(backend, Event.RELEASE, InputEvent.BUTTON1_DOWN_MASK));
+            /*
+            A reading starts it again.
+             */
+            assertTrue(thread.dataReceived());
+            assertFalse(thread.dataReceived());
+            thread.setSpeedX(100);
+            waitFor(() -> backend.count(Event.MOVE) > moves);
+            assertTrue(thread.isConnected());
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    @Test
+    public void testWatchdogIdle() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(500, 500);
+        RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), 120, true);
+        thread.setWatchdog(50, 100);
+        thread.start();
+        try {
+            thread.connect();
+            waitFor(() -> thread.isConnected());
+            /*
+            Nothing is moving and no button is held so the watchdog does not
+            wake the thread.
+             */
+            Thread.sleep(100);
+            long ticks = Metrics.counter("robot.loop.ticks").get();
+            Thread.sleep(300);
+            assertEquals(ticks, Metrics.counter("robot.loop.ticks").get());
+            assertFalse(thread.isDataStopped());
+            /*
+            A held button is watched.
+             */
+            thread.leftButtonPress();
+            waitFor(() -> thread.isDataStopped());
+            waitFor(() -> !thread.isLeftButtonPressed());
+        } finally {
+            thread.close();
+            thread.join(1000);
+        }
+    }
+
+    /*
+    The same scroll rate gives the same notches at any tick rate.
+     */
+    @Test
+    public void testScrollRate() throws InterruptedException {
+        for (int tickRate : new int[]{60, 240}) {
+            RecordingBackend backend = new RecordingBackend(500, 500);
+            RobotMouseThread thread = new RobotMouseThread(backend, null, new Rectangle(0, 0, 1000, 1000), tickRate, true);
+            thread.start();
+            try {
+                thread.setScrollRate(20);
+                Thread.sleep(100);
+                assertEquals(0, backend.count(Event.WHEEL)); // Not connected
+                thread.connect();
+                long start = System.nanoTime();
+                Thread.sleep(500);
+                thread.setScrollRate(0);
+                double seconds = (System.nanoTime() - start) / 1000000000.0;
+                Thread.sleep(100);
+                int notches = 0;
+                for (int i = 0; i < backend.size(); i++) {
+                    if (backend.getEvent(i).equals(Event.WHEEL)) {
+                        notches += backend.getA(i);
+                    }
+                }
+                assertTrue(notches >= 8);
+                assertTrue(notches <= Math.ceil(seconds * 20));
+                /*
+                Scrolling up.
+                 */
+                backend.clear();
+                thread.setScrollRate(-100);
+                waitFor(() -> backend.count(Event.WHEEL) > 0);
+                assertTrue(backend.getA(0) < 0);
+                thread.disConnect();
+                assertEquals(0.0, thread.getScrollRate(), 0.0);
+            } finally {
+                thread.close();
+                thread.join(1000);
+            }
+        }
+    }
+
+    /**
+     * Counts the calls to the backend that are not made by the robot thread.
+     */
+    private static class RobotThreadBackend extends RecordingBackend {
+
+        private volatile Thread robotThread;
+        private final AtomicInteger otherThreadCalls = new AtomicInteger();
+
+        RobotThreadBackend(int x, int y) {
+            super(x, y);
+        }
+
+        void setRobotThread(Thread robotThread) {
+            this.robotThread = robotThread;
+        }
+
+        int getOtherThreadCalls() {
+            return otherThreadCalls.get();
+        }
+
+        private void check() {
+            Thread t = robotThread;
+            if ((t != null) && (Thread.currentThread() != t)) {
+                otherThreadCalls.incrementAndGet();
+            }
+        }
+
+        @Override
+        public synchronized void move(int x, int y) {
+            check();
+            super.move(x, y);
+        }
+
+        @Override
+        public synchronized Point getLocation() {
+            check();
+            return super.getLocation();
+        }
+
+        /**
+         * @return The location without counting the call (for the test).
+         */
+        Point location() {
+            return super.getLocation();
+        }
+
+        @Override
+        public synchronized void press(int buttons) {
+            check();
+            super.press(buttons);
+        }
+
+        @Override
+        public synchronized void release(int buttons) {
+            check();
+            super.release(buttons);
+        }
+
+        @Override
+        public synchronized void wheel(int notches) {
+            check();
+            super.wheel(notches);
+        }
+
+        @Override
+        public synchronized void keyPress(int keyCode) {
+            check();
+            super.keyPress(keyCode);
+        }
+
+        @Override
+        public synchronized void keyRelease(int keyCode) {
+            check();
+            super.keyRelease(keyCode);
+        }
+    }
+
+    private static int lastIndexOf(RecordingBackend backend, Event event, int a) {
+        for (int i = backend.size() - 1; i >= 0; i--) {
+            if (backend.getEvent(i).equals(event) && (backend.getA(i) == a)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void assertNoMoveAfter(RecordingBackend backend, int index) {
+        for (int i = index + 1; i < backend.size(); i++) {
+            assertNotEquals("Moved after event " + index, Event.MOVE, backend.getEvent(i));
+        }
+    }
+
+    /**
+     * @return The time (ns) between the first and the last move.
+     */
+    private static long movingFor(RecordingBackend backend) {
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < backend.size(); i++) {
+            if (backend.getEvent(i).equals(Event.MOVE)) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        return (first < 0) ? 0 : backend.getTime(last) - backend.getTime(first);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long start = System.nanoTime();
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() - start < 5000000000L);
+            Thread.sleep(1);
+        }
+    }
+
+    private static RobotMouseEventListener createListener(StringBuilder log) {
+        return new RobotMouseEventListener() {
+            @Override
+            public void mouseNotInPosition(Point expected, Point actual, int count) {
+                synchronized (log) {
+                    log.append("mouseNotInPosition(").append(count).append("):");
+                }
+            }
+
+            @Override
+            public void connectedMouse() {
+                synchronized (log) {
+                    log.append("connectedMouse:");
+                }
+            }
+
+            @Override
+            public void disConnectedMouse() {
+                synchronized (log) {
+                    log.append("disConnectedMouse:");
+                }
+            }
+        };
+    }
+}
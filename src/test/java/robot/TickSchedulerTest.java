@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import metrics.Histogram;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TickSchedulerTest {
+
+    @Test
+    public void testRate() {
+        Histogram jitter = new Histogram("jitter");
+        AtomicLong missed = new AtomicLong();
+        TickScheduler ts = new TickScheduler(240, jitter, missed);
+        assertEquals(4166666, ts.getPeriod());
+        long start = System.nanoTime();
+        ts.start(start);
+        for (int i = 0; i < 48; i++) {
+            ts.await();
+        }
+        long elapsed = System.nanoTime() - start;
+        /*
+        48 ticks at 240 per second is 200ms. Deadlines do not drift so it is
+        never less. Allow for a slow (shared) test machine.
+         */
+        assertTrue(elapsed >= 48 * ts.getPeriod());
+        assertTrue(elapsed < 1000000000L);
+        assertEquals(48, jitter.getCount() + missed.get());
+    }
+
+    @Test
+    public void testMissed() {
+        Histogram jitter = new Histogram("jitter");
+        AtomicLong missed = new AtomicLong();
+        TickScheduler ts = new TickScheduler(1000, jitter, missed);
+        ts.start(System.nanoTime() - 10000000L); // Started 10ms ago so very late
+        long now = ts.await();
+        assertEquals(1, missed.get());
+        assertEquals(0, jitter.getCount());
+        /*
+        Starts again from now so the next tick waits.
+         */
+        assertTrue(ts.await() - now >= 1000000L);
+    }
+
+    @Test
+    public void testIdleUntilDeadline() {
+        TickScheduler ts = new TickScheduler(1000, new Histogram("jitter"), new AtomicLong());
+        long start = System.nanoTime();
+        long now = start;
+        /*
+        The thread can wake early for no reason so check the time.
+         */
+        while (now - start < 20000000L) {
+            now = ts.idle(start + 20000000L);
+        }
+        assertTrue(now - start < 1000000000L);
+    }
+
+    @Test
+    public void testIdleWoken() throws InterruptedException {
+        TickScheduler ts = new TickScheduler(1000, new Histogram("jitter"), new AtomicLong());
+        Thread parked = Thread.currentThread();
+        Thread waker = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+            }
+            LockSupport.unpark(parked);
+        });
+        long start = System.nanoTime();
+        waker.start();
+        long now = ts.idle(Long.MAX_VALUE);
+        waker.join();
+        /*
+        Woken by the other thread and not parked for ever.
+         */
+        assertTrue(now - start < 5000000000L);
+    }
+
+    @Test
+    public void testAwaitUrgent() throws InterruptedException {
+        Histogram jitter = new Histogram("jitter");
+        TickScheduler ts = new TickScheduler(4, jitter, new AtomicLong());
+        AtomicBoolean urgent = new AtomicBoolean();
+        Thread parked = Thread.currentThread();
+        Thread waker = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+            }
+            urgent.set(true);
+            LockSupport.unpark(parked);
+        });
+        long start = System.nanoTime();
+        ts.start(start);
+        waker.start();
+        /*
+        The tick is 250ms away but the urgent work wakes it well before.
+         */
+        long now = ts.await(urgent::get);
+        long woken = System.nanoTime() - start;
+        waker.join();
+        assertEquals(TickScheduler.WOKEN, now);
+        assertTrue(woken < ts.getPeriod());
+        assertEquals(0, jitter.getCount());
+        /*
+        The tick is still due at the same time.
+         */
+        urgent.set(false);
+        now = ts.await(urgent::get);
+        assertTrue(now - start >= ts.getPeriod());
+        assertEquals(1, jitter.getCount());
+    }
+
+    @Test(expected = RobotMouseException.class)
+    public void testBadRate() {
+        new TickScheduler(0, new Histogram("jitter"), new AtomicLong());
+    }
+}
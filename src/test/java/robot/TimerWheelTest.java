@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TimerWheelTest {
+
+    /**
+     * A timer that logs when it expires.
+     */
+    private static class LogTimer extends TimerWheel.Timer {
+
+        private final String name;
+        private final StringBuilder log;
+
+        LogTimer(String name, StringBuilder log) {
+            this.name = name;
+            this.log = log;
+        }
+
+        @Override
+        protected void expired(long now) {
+            log.append(name).append('@').append(now).append(':');
+        }
+    }
+
+    @Test
+    public void testExpiresInOrder() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        LogTimer a = new LogTimer("A", log);
+        LogTimer b = new LogTimer("B", log);
+        wheel.schedule(a, 25);
+        wheel.schedule(b, 45);
+        assertEquals(2, wheel.size());
+        wheel.advance(20);
+        assertEquals("", log.toString());
+        wheel.advance(30);
+        assertEquals("A@30:", log.toString());
+        assertFalse(a.isScheduled());
+        assertTrue(b.isScheduled());
+        wheel.advance(100);
+        assertEquals("A@30:B@100:", log.toString());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testNextDeadline() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        assertEquals(Long.MAX_VALUE, wheel.nextDeadline());
+        LogTimer a = new LogTimer("A", log);
+        LogTimer b = new LogTimer("B", log);
+        wheel.schedule(a, 250); // Round the wheel
+        wheel.schedule(b, 45);
+        assertEquals(45, wheel.nextDeadline());
+        wheel.cancel(b);
+        assertEquals(250, wheel.nextDeadline());
+        wheel.advance(300);
+        assertEquals(Long.MAX_VALUE, wheel.nextDeadline());
+    }
+
+    @Test
+    public void testCancelAndMove() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        LogTimer a = new LogTimer("A", log);
+        LogTimer b = new LogTimer("B", log);
+        wheel.schedule(a, 15);
+        wheel.schedule(b, 15);
+        wheel.cancel(a);
+        wheel.cancel(a); // Does nothing
+        wheel.schedule(b, 35); // Move
+        assertEquals(1, wheel.size());
+        wheel.advance(20);
+        assertEquals("", log.toString());
+        wheel.advance(40);
+        assertEquals("B@40:", log.toString());
+    }
+
+    @Test
+    public void testLongerThanTheWheel() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10, 8, 0); // Wheel covers 80
+        LogTimer a = new LogTimer("A", log);
+        wheel.schedule(a, 205);
+        for (int t = 10; t < 200; t += 10) {
+            wheel.advance(t);
+        }
+        assertEquals("", log.toString());
+        wheel.advance(210);
+        assertEquals("A@210:", log.toString());
+    }
+
+    @Test
+    public void testDeadlineInThePast() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10, 8, 1000);
+        wheel.schedule(new LogTimer("A", log), 500);
+        wheel.advance(1001);
+        assertEquals("A@1001:", log.toString());
+    }
+
+    @Test
+    public void testRescheduleFromTimer() {
+        StringBuilder log = new StringBuilder();
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        TimerWheel.Timer repeat = new TimerWheel.Timer() {
+            @Override
+            protected void expired(long now) {
+                log.append("R@").append(now).append(':');
+                wheel.schedule(this, now); // Not run again until the next advance
+            }
+        };
+        wheel.schedule(repeat, 10);
+        wheel.advance(10);
+        assertEquals("R@10:", log.toString());
+        wheel.advance(11);
+        assertEquals("R@10:R@11:", log.toString());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020 Huw Hudson-Davies
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package robot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Huw
+ */
+public class VelocityInterpolatorTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testStepWhenDisabled() {
+        VelocityInterpolator vi = new VelocityInterpolator(false, 5 * MS, 50 * MS);
+        vi.reset(0);
+        vi.setTarget(100, -50, 0);
+        vi.advance(10 * MS);
+        assertEquals(100 * 0.01, vi.getDx(), 0.0001);
+        vi.setTarget(200, -50, 10 * MS);
+        assertEquals(200, vi.velocityX(10 * MS), 0.0001);
+        vi.advance(20 * MS);
+        assertEquals(200 * 0.01, vi.getDx(), 0.0001);
+        assertEquals(-50 * 0.01, vi.getDy(), 0.0001);
+    }
+
+    @Test
+    public void testRamp() {
+        VelocityInterpolator vi = new VelocityInterpolator(true, 5 * MS, 50 * MS);
+        vi.reset(0);
+        /*
+        First command is a step. The second ramps over the 10ms gap.
+         */
+        vi.setTarget(0, 0, 0);
+        vi.advance(10 * MS);
+        vi.setTarget(100, 0, 10 * MS);
+        assertEquals(50, vi.velocityX(15 * MS), 0.0001);
+        vi.advance(15 * MS);
+        assertEquals(50.0 / 2 * 0.005, vi.getDx(), 0.0001);
+        /*
+        The ramp ends inside this tick.
+         */
+        vi.advance(25 * MS);
+        assertEquals(75.0 * 0.005 + 100.0 * 0.005, vi.getDx(), 0.0001);
+        assertEquals(100, vi.velocityX(25 * MS), 0.0001);
+    }
+
+    @Test
+    public void testRampClamped() {
+        VelocityInterpolator vi = new VelocityInterpolator(true, 5 * MS, 50 * MS);
+        vi.reset(0);
+        vi.setTarget(0, 0, 0);
+        /*
+        A radio gap of 500ms ramps over the max time.
+         */
+        vi.setTarget(0, 100, 500 * MS);
+        assertEquals(50, vi.velocityY(525 * MS), 0.0001);
+        /*
+        Commands 1ms apart ramp over the min time.
+         */
+        vi.setTarget(0, 0, 501 * MS);
+        double v = vi.velocityY(501 * MS);
+        assertEquals(v / 2, vi.velocityY(503500000L), 0.0001);
+    }
+
+    @Test
+    public void testStops() {
+        VelocityInterpolator vi = new VelocityInterpolator(true, 5 * MS, 50 * MS);
+        vi.reset(0);
+        assertFalse(vi.isMoving(0));
+        vi.setTarget(100, 0, 0);
+        vi.setTarget(0, 0, 10 * MS);
+        assertTrue(vi.isMoving(15 * MS));
+        assertFalse(vi.isMoving(20 * MS));
+        vi.advance(20 * MS);
+        vi.advance(30 * MS);
+        assertEquals(0, vi.getDx(), 0.0);
+    }
+
+    /*
+    Simulate the robot thread at 240Hz with speed commands at about 100Hz
+    with jitter and radio gaps. The RMS jerk of the pointer path is lower
+    with interpolation.
+     */
+    @Test
+    public void testJerk() {
+        double off = jerk(false);
+        double on = jerk(true);
+        assertTrue(on < off);
+    }
+
+    private double jerk(boolean enabled) {
+        VelocityInterpolator vi = new VelocityInterpolator(enabled, MS * 1000 / 240, 50 * MS);
+        vi.reset(0);
+        long tick = 1000000000L / 240;
+        long nextCommand = 0;
+        int command = 0;
+        double x = 0;
+        double[] path = new double[240 * 5];
+        for (int i = 0; i < path.length; i++) {
+            long now = i * tick;
+            vi.advance(now);
+            x += vi.getDx();
+            path[i] = x;
+            /*
+            Only the latest command is seen by the robot thread.
+             */
+            double speed = Double.NaN;
+            while (nextCommand <= now) {
+                speed = 400 * Math.sin(nextCommand / 1000000000.0 * 2 * Math.PI);
+                command++;
+                nextCommand += (10 + ((command * 7919) % 5) - 2) * MS;
+                if ((command % 40) == 0) {
+                    nextCommand += 60 * MS;
+                }
+            }
+            if (!Double.isNaN(speed)) {
+                vi.setTarget(speed, 0, now);
+            }
+        }
+        double t = tick / 1000000000.0;
+        double sum = 0;
+        int n = 0;
+        for (int i = 3; i < path.length; i++) {
+            double j = (path[i] - 3 * path[i - 1] + 3 * path[i - 2] - path[i - 3]) / (t * t * t);
+            sum += j * j;
+            n++;
+        }
+        return Math.sqrt(sum / n);
+    }
+}